@@ -0,0 +1,125 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.examples.imdb.domain.Actor;
+import org.neo4j.examples.imdb.domain.ImdbService;
+import org.neo4j.examples.imdb.domain.Movie;
+import org.neo4j.examples.imdb.web.SetupJob;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * The application context of the web application on a graph of its own in
+ * <code>target/benchmark-db</code>, imported from the bundled data the first
+ * time, plus a sample of actor names and movie titles to run queries with.
+ */
+@State( Scope.Benchmark )
+public class ImdbGraph
+{
+    // every tenth of the first actors and movies
+    private static final int SAMPLE_STEP = 10;
+    private static final int SAMPLE_SIZE = 100;
+
+    private ClassPathXmlApplicationContext context;
+    private final List<String> actorNames = new ArrayList<String>();
+    private final List<String> movieTitles = new ArrayList<String>();
+
+    @Setup( Level.Trial )
+    public void open() throws InterruptedException
+    {
+        context = new ClassPathXmlApplicationContext( "benchmark-context.xml" );
+        final ImdbService imdbService = getImdbService();
+        if ( !imdbService.getAllActors().iterator().hasNext() )
+        {
+            final SetupJob setupJob = (SetupJob) getBean( "setupJob" );
+            setupJob.start( false );
+            setupJob.await();
+            if ( setupJob.getState() != SetupJob.State.DONE )
+            {
+                throw new IllegalStateException( setupJob.getMessage() );
+            }
+        }
+        int count = 0;
+        for ( Actor actor : imdbService.getAllActors() )
+        {
+            if ( count++ % SAMPLE_STEP == 0 )
+            {
+                actorNames.add( actor.getName() );
+            }
+            if ( actorNames.size() == SAMPLE_SIZE )
+            {
+                break;
+            }
+        }
+        count = 0;
+        for ( Movie movie : imdbService.getAllMovies() )
+        {
+            if ( count++ % SAMPLE_STEP == 0 )
+            {
+                movieTitles.add( movie.getTitle() );
+            }
+            if ( movieTitles.size() == SAMPLE_SIZE )
+            {
+                break;
+            }
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void close()
+    {
+        context.close();
+    }
+
+    Object getBean( final String name )
+    {
+        return context.getBean( name );
+    }
+
+    ImdbService getImdbService()
+    {
+        return (ImdbService) getBean( "imdbService" );
+    }
+
+    /**
+     * Returns the sampled actor names, in the order of the graph.
+     * @return actor names
+     */
+    List<String> getActorNames()
+    {
+        return actorNames;
+    }
+
+    /**
+     * Returns the sampled movie titles, in the order of the graph.
+     * @return movie titles
+     */
+    List<String> getMovieTitles()
+    {
+        return movieTitles;
+    }
+}
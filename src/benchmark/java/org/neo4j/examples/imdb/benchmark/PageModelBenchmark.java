@@ -0,0 +1,79 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.neo4j.examples.imdb.web.ActorForm;
+import org.neo4j.examples.imdb.web.FindControllerDelegate;
+import org.neo4j.examples.imdb.web.MovieForm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * End to end cost of building the model of an actor or movie page, as the
+ * find controllers do, including the transaction and the caches in front of
+ * the graph.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class PageModelBenchmark
+{
+    private int next = 0;
+
+    @Benchmark
+    public Map<String,Object> actorPage( final ImdbGraph graph )
+        throws ServletException
+    {
+        final ActorForm form = new ActorForm();
+        form.setName( nextOf( graph.getActorNames() ) );
+        final Map<String,Object> model = new HashMap<String,Object>();
+        ((FindControllerDelegate) graph.getBean( "findActor" )).getModel(
+            form, model );
+        return model;
+    }
+
+    @Benchmark
+    public Map<String,Object> moviePage( final ImdbGraph graph )
+        throws ServletException
+    {
+        final MovieForm form = new MovieForm();
+        form.setTitle( nextOf( graph.getMovieTitles() ) );
+        final Map<String,Object> model = new HashMap<String,Object>();
+        ((FindControllerDelegate) graph.getBean( "findMovie" )).getModel(
+            form, model );
+        return model;
+    }
+
+    private String nextOf( final List<String> queries )
+    {
+        next = (next + 1) % queries.size();
+        return queries.get( next );
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.examples.imdb.parser.ActorData;
+import org.neo4j.examples.imdb.parser.ImdbParser;
+import org.neo4j.examples.imdb.parser.ImdbReader;
+import org.neo4j.examples.imdb.parser.ImportCheckpoint;
+import org.neo4j.examples.imdb.parser.MovieData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Throughput of parsing the bundled lists. The parsed data goes to a reader
+ * that only counts it, so the graph is not part of the measurement.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MINUTES )
+public class ParserBenchmark
+{
+    private static final String DATA_DIR = "target/classes/data/";
+
+    @Benchmark
+    public int parseMovies() throws IOException
+    {
+        final CountingReader reader = new CountingReader();
+        new ImdbParser( reader ).parseMovies( DATA_DIR + "movies.list.gz" );
+        return reader.count;
+    }
+
+    @Benchmark
+    public int parseActors() throws IOException
+    {
+        final CountingReader reader = new CountingReader();
+        new ImdbParser( reader ).parseActors( DATA_DIR + "actors.list.gz",
+            DATA_DIR + "actresses.list.gz" );
+        return reader.count;
+    }
+
+    private static final class CountingReader implements ImdbReader
+    {
+        private int count = 0;
+
+        @Override
+        public void newMovies( final List<MovieData> movieList,
+            final ImportCheckpoint checkpoint )
+        {
+            count += movieList.size();
+        }
+
+        @Override
+        public void newActors( final List<ActorData> actorList,
+            final ImportCheckpoint checkpoint )
+        {
+            for ( ActorData actorData : actorList )
+            {
+                count += actorData.getMovieRoles().length;
+            }
+        }
+
+        @Override
+        public ImportCheckpoint getCheckpoint()
+        {
+            return new ImportCheckpoint();
+        }
+    }
+}
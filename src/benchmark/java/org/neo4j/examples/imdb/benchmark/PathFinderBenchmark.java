@@ -0,0 +1,97 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.examples.imdb.domain.Actor;
+import org.neo4j.examples.imdb.domain.ImdbService;
+import org.neo4j.examples.imdb.domain.RelTypes;
+import org.neo4j.examples.imdb.util.PathFinder;
+import org.neo4j.examples.imdb.util.SimplePathFinder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Latency of {@link SimplePathFinder} from actors at a given Bacon number to
+ * Kevin Bacon, with the actors picked from the graph by the path the service
+ * finds for them.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class PathFinderBenchmark
+{
+    // actors to look at when picking the ones at the Bacon number
+    private static final int CANDIDATES = 1000;
+
+    @Param( { "1", "2", "3", "4" } )
+    private int baconNumber;
+
+    private final PathFinder pathFinder = new SimplePathFinder();
+    private final List<Node> actorNodes = new ArrayList<Node>();
+    private Node baconNode;
+    private int next = 0;
+
+    @Setup( Level.Trial )
+    public void pickActors( final ImdbGraph graph )
+    {
+        final ImdbService imdbService = graph.getImdbService();
+        final GraphDatabaseService graphDbService = (GraphDatabaseService) graph
+            .getBean( "graphDbService" );
+        baconNode = graphDbService.getNodeById( imdbService.getBaconActor()
+            .getId() );
+        int candidates = 0;
+        for ( Actor actor : imdbService.getAllActors() )
+        {
+            if ( candidates++ == CANDIDATES )
+            {
+                break;
+            }
+            if ( imdbService.getBaconPath( actor ).size() / 2 == baconNumber )
+            {
+                actorNodes.add( graphDbService.getNodeById( actor.getId() ) );
+            }
+        }
+        if ( actorNodes.isEmpty() )
+        {
+            throw new IllegalStateException( "No actor with Bacon number "
+                + baconNumber + " among the first " + CANDIDATES );
+        }
+    }
+
+    @Benchmark
+    public List<Node> shortestPath()
+    {
+        next = (next + 1) % actorNodes.size();
+        return pathFinder.shortestPath( actorNodes.get( next ), baconNode,
+            RelTypes.ACTS_IN );
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.examples.imdb.domain.ImdbSearchEngine;
+import org.neo4j.graphdb.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Latency of a single best match search, cycling through the sampled names
+ * and titles.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class SearchBenchmark
+{
+    private int next = 0;
+
+    @Benchmark
+    public Node searchActor( final ImdbGraph graph )
+    {
+        return getSearchEngine( graph ).searchActor(
+            nextOf( graph.getActorNames() ) );
+    }
+
+    @Benchmark
+    public Node searchMovie( final ImdbGraph graph )
+    {
+        return getSearchEngine( graph ).searchMovie(
+            nextOf( graph.getMovieTitles() ) );
+    }
+
+    private static ImdbSearchEngine getSearchEngine( final ImdbGraph graph )
+    {
+        return (ImdbSearchEngine) graph.getBean( "searchEngine" );
+    }
+
+    private String nextOf( final List<String> queries )
+    {
+        next = (next + 1) % queries.size();
+        return queries.get( next );
+    }
+}
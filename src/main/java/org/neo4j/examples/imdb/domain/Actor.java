@@ -20,6 +20,12 @@ package org.neo4j.examples.imdb.domain;
 
 public interface Actor
 {
+    /**
+     * Returns the id of the node backing this actor.
+     * @return node id of this actor
+     */
+    long getId();
+
     /**
      * Returns this actors imdb-encoded name.
      * @return actor name
@@ -34,11 +40,41 @@ public interface Actor
     void setName( String name );
 
     /**
-     * Returns all movies this actor acted in.
+     * Returns all movies this actor acted in. The movies are read from the
+     * relationships of the actor while they are iterated.
      * @return all movies
      */
     Iterable<Movie> getMovies();
 
+    /**
+     * Returns all roles of this actor, one for each time the actor is
+     * credited in a movie. The roles are read from the relationships of the
+     * actor while they are iterated.
+     * @return all roles
+     */
+    Iterable<Role> getRoles();
+
+    /**
+     * Returns a page of the roles of this actor, in the same order as
+     * {@link #getRoles()}. Skipped roles are stepped over without being
+     * wrapped or copied, but their relationships are still loaded, so the
+     * cost is linear in the number of relationships of this actor.
+     * @param offset
+     *            number of roles to skip
+     * @param count
+     *            maximum number of roles to return
+     * @return the roles on the page
+     */
+    Iterable<Role> getRoles( int offset, int count );
+
+    /**
+     * Returns the number of roles of this actor, counted without
+     * wrapping them; every relationship is still loaded, so the cost is
+     * linear in the number of relationships.
+     * @return number of roles
+     */
+    int getRoleCount();
+
     /**
      * Returns the specific role an actor had in a movie or null if actor didn't
      * have a role in the movie.
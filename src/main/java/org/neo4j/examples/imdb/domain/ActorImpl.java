@@ -18,22 +18,36 @@
  */
 package org.neo4j.examples.imdb.domain;
 
-import java.util.LinkedList;
-import java.util.List;
-
+import org.neo4j.examples.imdb.util.Iterables;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.IterableWrapper;
 
 class ActorImpl implements Actor
 {
-    private static final String NAME_PROPERTY = "name";
+    static final String NAME_PROPERTY = "name";
 
     private final Node underlyingNode;
+    private final boolean snapshot;
+    // read once in snapshot mode
+    private String name;
 
     ActorImpl( final Node node )
+    {
+        this( node, false );
+    }
+
+    /**
+     * @param snapshot
+     *            if <code>true</code> the name is read from the node once
+     *            and kept, for wrappers that live no longer than a read and
+     *            stay in one thread
+     */
+    ActorImpl( final Node node, final boolean snapshot )
     {
         this.underlyingNode = node;
+        this.snapshot = snapshot;
     }
 
     Node getUnderlyingNode()
@@ -41,40 +55,83 @@ class ActorImpl implements Actor
         return this.underlyingNode;
     }
 
+    @Override
+    public long getId()
+    {
+        return this.underlyingNode.getId();
+    }
+
     @Override
     public final String getName()
     {
-        return (String) underlyingNode.getProperty( NAME_PROPERTY );
+        if ( !snapshot )
+        {
+            return (String) underlyingNode.getProperty( NAME_PROPERTY );
+        }
+        if ( name == null )
+        {
+            name = (String) underlyingNode.getProperty( NAME_PROPERTY );
+        }
+        return name;
     }
 
     @Override
     public void setName( final String name )
     {
         underlyingNode.setProperty( NAME_PROPERTY, name );
+        if ( snapshot )
+        {
+            this.name = name;
+        }
     }
 
     @Override
     public Iterable<Movie> getMovies()
     {
-        final List<Movie> movies = new LinkedList<Movie>();
-        for ( Relationship rel : underlyingNode.getRelationships(
-            RelTypes.ACTS_IN, Direction.OUTGOING ) )
+        return new IterableWrapper<Movie,Relationship>( getRoleRelationships() )
         {
-            movies.add( new MovieImpl( rel.getEndNode() ) );
-        }
-        return movies;
+            @Override
+            protected Movie underlyingObjectToObject( final Relationship rel )
+            {
+                return new MovieImpl( rel.getEndNode(), snapshot );
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Role> getRoles()
+    {
+        return RoleImpl.wrap( getRoleRelationships(), snapshot );
+    }
+
+    @Override
+    public Iterable<Role> getRoles( final int offset, final int count )
+    {
+        return RoleImpl.wrap( Iterables.slice( getRoleRelationships(), offset,
+            count ), snapshot );
+    }
+
+    @Override
+    public int getRoleCount()
+    {
+        return Iterables.count( getRoleRelationships() );
+    }
+
+    private Iterable<Relationship> getRoleRelationships()
+    {
+        return underlyingNode.getRelationships( RelTypes.ACTS_IN,
+            Direction.OUTGOING );
     }
 
     @Override
     public Role getRole( final Movie inMovie )
     {
         final Node movieNode = ((MovieImpl) inMovie).getUnderlyingNode();
-        for ( Relationship rel : underlyingNode.getRelationships(
-            RelTypes.ACTS_IN, Direction.OUTGOING ) )
+        for ( Relationship rel : getRoleRelationships() )
         {
             if ( rel.getEndNode().equals( movieNode ) )
             {
-                return new RoleImpl( rel );
+                return new RoleImpl( rel, snapshot );
             }
         }
         return null;
@@ -0,0 +1,411 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.examples.imdb.util.LongList;
+import org.neo4j.examples.imdb.util.LongLongMap;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * The distance to Kevin Bacon of every actor and movie connected to him,
+ * together with the next node on a shortest path towards him. The index is
+ * built by one breadth first search from the Bacon node, in the background,
+ * and after that a Bacon path is read by following parents in time
+ * proportional to its length. Added roles are applied to the index in the
+ * background after their transactions commit, unless there are so many of
+ * them, like during an import, that building the index again once is
+ * cheaper. Deleted roles or nodes can make paths longer, which is not cheap
+ * to repair, so they drop the index until it is built again too.
+ */
+class BaconIndex
+{
+    // an entry packs the depth above the parent node id
+    private static final int DEPTH_SHIFT = 56;
+    private static final long PARENT_MASK = (1L << DEPTH_SHIFT) - 1;
+    private static final int MAXIMUM_DEPTH = 127;
+    // more added roles waiting to be applied drop the index instead
+    private static final int MAXIMUM_PENDING_ROLES = 1000;
+
+    private GraphDatabaseService graphDbService;
+    private final ExecutorService builder = Executors
+        .newSingleThreadExecutor( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( final Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, "bacon-index" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    private final TransactionEventHandler<Void> changeHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            graphChanged( data );
+        }
+    };
+
+    // guarded by this
+    private long root = LongLongMap.MISSING;
+    // written while holding this
+    private volatile boolean building = false;
+    // only replaced or changed on the builder thread, and changed while
+    // holding this, so that thread can read it without the lock
+    private volatile LongLongMap entries = null;
+    // added roles not applied yet, as actor and movie id
+    private final Queue<long[]> pendingRoles = new ConcurrentLinkedQueue<long[]>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean applyQueued = new AtomicBoolean();
+    private volatile boolean dropRequested = false;
+    // commits that deleted roles or nodes, which a running build may miss
+    private final AtomicLong deletions = new AtomicLong();
+
+    @Autowired
+    public void setGraphDbService( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( changeHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( changeHandler );
+        builder.shutdownNow();
+    }
+
+    /**
+     * Returns a shortest path from an actor to Kevin Bacon, starting with
+     * the actor and ending with Kevin Bacon.
+     * @param actorNode
+     *            the actor
+     * @param baconNode
+     *            the Kevin Bacon actor
+     * @return the path, empty if the actor is not connected to Kevin Bacon,
+     *         or <code>null</code> while the index is being built
+     */
+    synchronized List<Node> getPath( final Node actorNode, final Node baconNode )
+    {
+        if ( entries == null || root != baconNode.getId() )
+        {
+            startBuild( baconNode.getId() );
+            return null;
+        }
+        long id = actorNode.getId();
+        long entry = entries.get( id );
+        if ( entry == LongLongMap.MISSING )
+        {
+            return Collections.emptyList();
+        }
+        final List<Node> path = new ArrayList<Node>( depth( entry ) + 1 );
+        path.add( actorNode );
+        while ( id != root )
+        {
+            id = parent( entry );
+            entry = entries.get( id );
+            path.add( graphDbService.getNodeById( id ) );
+        }
+        return path;
+    }
+
+    private void startBuild( final long rootId )
+    {
+        if ( building )
+        {
+            return;
+        }
+        building = true;
+        final long deletionsBefore = deletions.get();
+        builder.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                LongLongMap built = null;
+                try
+                {
+                    built = build( rootId );
+                }
+                finally
+                {
+                    buildDone( rootId, built, deletionsBefore );
+                }
+            }
+        } );
+    }
+
+    private void buildDone( final long rootId, final LongLongMap built,
+        final long deletionsBefore )
+    {
+        synchronized ( this )
+        {
+            building = false;
+            // a build that missed deletions is thrown away, the next
+            // request starts a new one
+            if ( built != null && deletions.get() == deletionsBefore )
+            {
+                entries = built;
+                root = rootId;
+            }
+        }
+        // roles added during the build are applied again, which does no harm
+        scheduleApply();
+    }
+
+    private LongLongMap build( final long rootId )
+    {
+        final LongLongMap built = new LongLongMap();
+        built.put( rootId, entry( rootId, 0 ) );
+        LongList frontier = new LongList();
+        frontier.add( rootId );
+        int depth = 1;
+        while ( !frontier.isEmpty() && depth <= MAXIMUM_DEPTH )
+        {
+            final LongList next = new LongList();
+            for ( int i = 0; i < frontier.size(); i++ )
+            {
+                visitNeighbours( built, frontier.get( i ), depth, next );
+            }
+            frontier = next;
+            depth++;
+        }
+        return built;
+    }
+
+    /**
+     * Give the neighbours of a node that are unknown or farther away than
+     * <code>depth</code> that depth, with the node as parent.
+     */
+    private void visitNeighbours( final LongLongMap map, final long id,
+        final int depth, final LongList visited )
+    {
+        final Node node = graphDbService.getNodeById( id );
+        for ( Relationship rel : node.getRelationships( RelTypes.ACTS_IN,
+            Direction.BOTH ) )
+        {
+            final long neighbour = rel.getOtherNode( node ).getId();
+            final long entry = map.get( neighbour );
+            if ( entry == LongLongMap.MISSING || depth( entry ) > depth )
+            {
+                put( map, neighbour, entry( id, depth ) );
+                visited.add( neighbour );
+            }
+        }
+    }
+
+    /**
+     * Only changes the index in use while holding the lock, so a path is
+     * read while no relaxation writes, and the graph is read without it.
+     */
+    private void put( final LongLongMap map, final long id, final long entry )
+    {
+        if ( map == entries )
+        {
+            synchronized ( this )
+            {
+                map.put( id, entry );
+            }
+        }
+        else
+        {
+            map.put( id, entry );
+        }
+    }
+
+    /**
+     * Only queues the changes, without taking the lock, so committing
+     * threads never wait for the graph to be traversed.
+     */
+    private void graphChanged( final TransactionData data )
+    {
+        if ( entries == null && !building )
+        {
+            return;
+        }
+        if ( data.deletedRelationships().iterator().hasNext()
+            || data.deletedNodes().iterator().hasNext() )
+        {
+            deletions.incrementAndGet();
+            dropRequested = true;
+            scheduleApply();
+            return;
+        }
+        for ( Relationship rel : data.createdRelationships() )
+        {
+            if ( !rel.isType( RelTypes.ACTS_IN ) )
+            {
+                continue;
+            }
+            pendingRoles.add( new long[] { rel.getStartNode().getId(),
+                rel.getEndNode().getId() } );
+            if ( pendingCount.incrementAndGet() > MAXIMUM_PENDING_ROLES )
+            {
+                dropRequested = true;
+            }
+        }
+        scheduleApply();
+    }
+
+    private void scheduleApply()
+    {
+        if ( (dropRequested || !pendingRoles.isEmpty())
+            && applyQueued.compareAndSet( false, true ) )
+        {
+            builder.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    applyPendingRoles();
+                }
+            } );
+        }
+    }
+
+    /**
+     * Apply the added roles, or drop the index. Runs on the builder thread,
+     * the only one to change the index.
+     */
+    private void applyPendingRoles()
+    {
+        applyQueued.set( false );
+        if ( dropRequested )
+        {
+            dropRequested = false;
+            synchronized ( this )
+            {
+                entries = null;
+            }
+            clearPendingRoles();
+            return;
+        }
+        final LongLongMap map = entries;
+        if ( map == null )
+        {
+            // a running build applies them when it is done
+            if ( !building )
+            {
+                clearPendingRoles();
+            }
+            return;
+        }
+        long[] role;
+        while ( !dropRequested && (role = pendingRoles.poll()) != null )
+        {
+            pendingCount.decrementAndGet();
+            addRole( map, role[0], role[1] );
+        }
+        scheduleApply();
+    }
+
+    private void clearPendingRoles()
+    {
+        while ( pendingRoles.poll() != null )
+        {
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * A new role can only make paths shorter: the end that is farther away
+     * gets a new parent, and so may everything behind it.
+     */
+    private void addRole( final LongLongMap map, final long actorId,
+        final long movieId )
+    {
+        final long actorEntry = map.get( actorId );
+        final long movieEntry = map.get( movieId );
+        if ( isCloser( actorEntry, movieEntry ) )
+        {
+            relax( map, movieId, actorId, depth( actorEntry ) + 1 );
+        }
+        else if ( isCloser( movieEntry, actorEntry ) )
+        {
+            relax( map, actorId, movieId, depth( movieEntry ) + 1 );
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if a neighbour is at least two steps closer
+     * to Kevin Bacon than a node.
+     */
+    private static boolean isCloser( final long neighbourEntry,
+        final long entry )
+    {
+        return neighbourEntry != LongLongMap.MISSING
+            && (entry == LongLongMap.MISSING || depth( entry ) > depth( neighbourEntry ) + 1);
+    }
+
+    private void relax( final LongLongMap map, final long id,
+        final long parentId, final int depth )
+    {
+        if ( depth > MAXIMUM_DEPTH )
+        {
+            return;
+        }
+        put( map, id, entry( parentId, depth ) );
+        LongList frontier = new LongList();
+        frontier.add( id );
+        int next = depth + 1;
+        while ( !frontier.isEmpty() && next <= MAXIMUM_DEPTH )
+        {
+            final LongList improved = new LongList();
+            for ( int i = 0; i < frontier.size(); i++ )
+            {
+                visitNeighbours( map, frontier.get( i ), next, improved );
+            }
+            frontier = improved;
+            next++;
+        }
+    }
+
+    private static long entry( final long parentId, final int depth )
+    {
+        return ((long) depth << DEPTH_SHIFT) | parentId;
+    }
+
+    private static long parent( final long entry )
+    {
+        return entry & PARENT_MASK;
+    }
+
+    private static int depth( final long entry )
+    {
+        return (int) (entry >>> DEPTH_SHIFT);
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.examples.imdb.util.PrefixIndex;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Completions of actor names and movie titles, for type-ahead. Every name
+ * and title can be found by its start and by the start of each of its words,
+ * and the completions are ranked by the number of roles of the actor or
+ * movie. The index is built in the background from all nodes; after a
+ * commit that changes actors, movies or roles the old index is used until a
+ * new one has been built. Since a build reads the whole graph, it waits
+ * until the graph has not changed for a while, like at the end of an import,
+ * and builds are a minimum interval apart.
+ */
+class CompletionIndex
+{
+    private static final long QUIET_PERIOD = TimeUnit.SECONDS.toNanos( 10 );
+    private static final long MINIMUM_INTERVAL = TimeUnit.SECONDS
+        .toNanos( 60 );
+
+    private GraphDatabaseService graphDbService;
+    private final ExecutorService builder = Executors
+        .newSingleThreadExecutor( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( final Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, "completion-index" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    private final TransactionEventHandler<Void> changeHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            graphChanged( data );
+        }
+    };
+
+    // guarded by this
+    private Completions actors = null;
+    private Completions movies = null;
+    private boolean building = false;
+    private boolean stale = true;
+    private long lastChange = 0;
+    private long lastBuilt = 0;
+
+    @Autowired
+    public void setGraphDbService( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( changeHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( changeHandler );
+        builder.shutdownNow();
+    }
+
+    /**
+     * Returns the names of the actors with the most roles that have a name,
+     * or a word of the name, starting with <code>prefix</code>.
+     * @param prefix
+     *            start of the name or of a word of it, in any case
+     * @param count
+     *            maximum number of names
+     * @return the names, empty while the index is built the first time
+     */
+    synchronized List<String> completeActors( final String prefix,
+        final int count )
+    {
+        refresh();
+        return complete( actors, prefix, count );
+    }
+
+    /**
+     * Returns the titles of the movies with the most roles that have a
+     * title, or a word of the title, starting with <code>prefix</code>.
+     * @param prefix
+     *            start of the title or of a word of it, in any case
+     * @param count
+     *            maximum number of titles
+     * @return the titles, empty while the index is built the first time
+     */
+    synchronized List<String> completeMovies( final String prefix,
+        final int count )
+    {
+        refresh();
+        return complete( movies, prefix, count );
+    }
+
+    private static List<String> complete( final Completions completions,
+        final String prefix, final int count )
+    {
+        if ( completions == null )
+        {
+            return Collections.emptyList();
+        }
+        final int[] entries = completions.index.top( prefix.trim()
+            .toLowerCase( Locale.ENGLISH ), count );
+        final List<String> texts = new ArrayList<String>( entries.length );
+        for ( int entry : entries )
+        {
+            texts.add( completions.texts.get( entry ) );
+        }
+        return texts;
+    }
+
+    private void refresh()
+    {
+        if ( !stale || building )
+        {
+            return;
+        }
+        final long now = System.nanoTime();
+        // without an index any build is better than none
+        if ( actors != null
+            && (now - lastChange < QUIET_PERIOD || now - lastBuilt < MINIMUM_INTERVAL) )
+        {
+            return;
+        }
+        building = true;
+        stale = false;
+        builder.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Completions builtActors = new Completions();
+                final Completions builtMovies = new Completions();
+                boolean built = false;
+                try
+                {
+                    build( builtActors, builtMovies );
+                    built = true;
+                }
+                finally
+                {
+                    buildDone( built ? builtActors : null, builtMovies );
+                }
+            }
+        } );
+    }
+
+    private synchronized void buildDone( final Completions builtActors,
+        final Completions builtMovies )
+    {
+        building = false;
+        if ( builtActors != null )
+        {
+            actors = builtActors;
+            movies = builtMovies;
+            lastBuilt = System.nanoTime();
+        }
+        else
+        {
+            // try again on the next request
+            stale = true;
+        }
+    }
+
+    private void build( final Completions builtActors,
+        final Completions builtMovies )
+    {
+        final PrefixIndex.Builder actorKeys = new PrefixIndex.Builder();
+        final PrefixIndex.Builder movieKeys = new PrefixIndex.Builder();
+        final List<Integer> actorRoles = new ArrayList<Integer>();
+        final List<Integer> movieRoles = new ArrayList<Integer>();
+        for ( Node node : graphDbService.getAllNodes() )
+        {
+            if ( node.hasProperty( ActorImpl.NAME_PROPERTY ) )
+            {
+                add( builtActors, actorKeys, actorRoles, node,
+                    ActorImpl.NAME_PROPERTY );
+            }
+            else if ( node.hasProperty( MovieImpl.TITLE_PROPERTY ) )
+            {
+                add( builtMovies, movieKeys, movieRoles, node,
+                    MovieImpl.TITLE_PROPERTY );
+            }
+        }
+        builtActors.index = actorKeys.build( toArray( actorRoles ) );
+        builtMovies.index = movieKeys.build( toArray( movieRoles ) );
+    }
+
+    private static void add( final Completions completions,
+        final PrefixIndex.Builder keys, final List<Integer> roles,
+        final Node node, final String textProperty )
+    {
+        final String text = (String) node.getProperty( textProperty );
+        final int entry = completions.texts.size();
+        completions.texts.add( text );
+        int roleCount = 0;
+        for ( Relationship rel : node.getRelationships( RelTypes.ACTS_IN,
+            Direction.BOTH ) )
+        {
+            roleCount++;
+        }
+        roles.add( roleCount );
+        final String key = text.toLowerCase( Locale.ENGLISH );
+        for ( int i = 0; i < key.length(); i++ )
+        {
+            // every word, the first one giving the whole text
+            if ( Character.isLetterOrDigit( key.charAt( i ) )
+                && (i == 0 || !Character.isLetterOrDigit( key.charAt( i - 1 ) )) )
+            {
+                keys.add( key.substring( i ), entry );
+            }
+        }
+        if ( key.length() > 0 && !Character.isLetterOrDigit( key.charAt( 0 ) ) )
+        {
+            // such as "'Til Death"
+            keys.add( key, entry );
+        }
+    }
+
+    private static int[] toArray( final List<Integer> values )
+    {
+        final int[] array = new int[values.size()];
+        for ( int i = 0; i < array.length; i++ )
+        {
+            array[i] = values.get( i );
+        }
+        return array;
+    }
+
+    private synchronized void graphChanged( final TransactionData data )
+    {
+        if ( isChange( data ) )
+        {
+            stale = true;
+            // also when stale already, to wait for the changes to stop
+            lastChange = System.nanoTime();
+        }
+    }
+
+    private static boolean isChange( final TransactionData data )
+    {
+        if ( data.createdNodes().iterator().hasNext()
+            || data.deletedNodes().iterator().hasNext()
+            || data.deletedRelationships().iterator().hasNext() )
+        {
+            return true;
+        }
+        for ( Relationship rel : data.createdRelationships() )
+        {
+            if ( rel.isType( RelTypes.ACTS_IN ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Completions
+    {
+        private final List<String> texts = new ArrayList<String>();
+        private PrefixIndex index;
+    }
+}
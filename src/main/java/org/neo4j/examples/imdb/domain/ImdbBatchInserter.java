@@ -0,0 +1,236 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.examples.imdb.util.LongLongMap;
+import org.neo4j.examples.imdb.util.StringIdMap;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.index.BatchInserterIndex;
+import org.neo4j.graphdb.index.BatchInserterIndexProvider;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.index.impl.lucene.LuceneBatchInserterIndexProvider;
+import org.neo4j.kernel.impl.batchinsert.BatchInserter;
+import org.neo4j.kernel.impl.batchinsert.BatchInserterImpl;
+
+/**
+ * Writes the imdb graph straight into a store using the Neo4j batch
+ * inserter. It produces the same layout as {@link ImdbServiceImpl} and
+ * {@link ImdbSearchEngineImpl}: actor and movie nodes in the "exact" index,
+ * word nodes in the "search" index and the reference relationship to Kevin
+ * Bacon. The store must not be in use by any other database instance while
+ * the inserter is open.
+ */
+public class ImdbBatchInserter
+{
+    private final BatchInserter inserter;
+    private final BatchInserterIndexProvider indexProvider;
+    private final BatchInserterIndex exactIndex;
+    private final BatchInserterIndex searchIndex;
+
+    private final StringIdMap movieIds = new StringIdMap();
+    private final Map<String,WordEntry> nameWords = new HashMap<String,WordEntry>();
+    private final Map<String,WordEntry> titleWords = new HashMap<String,WordEntry>();
+    private long baconId = -1;
+    private long nodeCount = 0;
+    private long relationshipCount = 0;
+
+    /**
+     * Open a batch inserter on a store directory.
+     * @param storeDir
+     *            directory of the store to write to
+     */
+    public ImdbBatchInserter( final String storeDir )
+    {
+        this.inserter = new BatchInserterImpl( storeDir );
+        this.indexProvider = new LuceneBatchInserterIndexProvider( inserter );
+        this.exactIndex = indexProvider.nodeIndex(
+            ImdbServiceImpl.EXACT_INDEX_NAME, MapUtil.stringMap( "type",
+                "exact" ) );
+        this.searchIndex = indexProvider.nodeIndex(
+            ImdbSearchEngineImpl.SEARCH_INDEX_NAME, MapUtil.stringMap(
+                "type", "exact" ) );
+    }
+
+    /**
+     * Create and index a movie node.
+     * @param title
+     *            title of the movie
+     * @param year
+     *            year of release
+     * @return id of the new movie node
+     */
+    public long createMovie( final String title, final int year )
+    {
+        final long movieId = createNode( MapUtil.map(
+            MovieImpl.TITLE_PROPERTY, title, MovieImpl.YEAR_PROPERTY, year ) );
+        exactIndex.add( movieId, MapUtil.map( ImdbServiceImpl.TITLE_INDEX,
+            title ) );
+        index( title, movieId, ImdbSearchEngineImpl.TITLE_PART_INDEX,
+            titleWords, ImdbSearchRelTypes.PART_OF_TITLE );
+        movieIds.add( title, movieId );
+        return movieId;
+    }
+
+    /**
+     * Create and index an actor node.
+     * @param name
+     *            name of the actor
+     * @return id of the new actor node
+     */
+    public long createActor( final String name )
+    {
+        final long actorId = createNode( MapUtil.map(
+            ActorImpl.NAME_PROPERTY, name ) );
+        exactIndex.add( actorId, MapUtil.map( ImdbServiceImpl.NAME_INDEX,
+            name ) );
+        index( name, actorId, ImdbSearchEngineImpl.NAME_PART_INDEX,
+            nameWords, ImdbSearchRelTypes.PART_OF_NAME );
+        if ( ImdbServiceImpl.BACON_NAME.equals( name ) )
+        {
+            baconId = actorId;
+        }
+        return actorId;
+    }
+
+    /**
+     * Returns the node id of a movie created by this inserter, or
+     * {@link LongLongMap#MISSING} if no movie has the exact title.
+     * @param title
+     *            exact movie title
+     * @return movie node id or {@link LongLongMap#MISSING}
+     */
+    public long getMovieId( final String title )
+    {
+        return movieIds.get( title );
+    }
+
+    /**
+     * Connect an actor to a movie.
+     * @param actorId
+     *            node id of the actor
+     * @param movieId
+     *            node id of the movie
+     * @param roleName
+     *            name of the role, may be <code>null</code>
+     */
+    public void createRole( final long actorId, final long movieId,
+        final String roleName )
+    {
+        final Map<String,Object> properties;
+        if ( roleName == null )
+        {
+            properties = null;
+        }
+        else
+        {
+            properties = MapUtil.map( RoleImpl.ROLE_PROPERTY, roleName );
+        }
+        createRelationship( actorId, movieId, RelTypes.ACTS_IN, properties );
+    }
+
+    public long getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public long getRelationshipCount()
+    {
+        return relationshipCount;
+    }
+
+    /**
+     * Write the word counts and the reference relationship, then flush the
+     * indexes and close the store.
+     */
+    public void shutdown()
+    {
+        try
+        {
+            writeWordCounts( nameWords );
+            writeWordCounts( titleWords );
+            if ( baconId != -1 )
+            {
+                createRelationship( inserter.getReferenceNode(), baconId,
+                    RelTypes.IMDB, null );
+            }
+        }
+        finally
+        {
+            indexProvider.shutdown();
+            inserter.shutdown();
+        }
+    }
+
+    private void index( final String value, final long nodeId,
+        final String partIndexName, final Map<String,WordEntry> words,
+        final ImdbSearchRelTypes relType )
+    {
+        for ( String part : ImdbSearchEngineImpl.splitSearchString( value ) )
+        {
+            WordEntry word = words.get( part );
+            if ( word == null )
+            {
+                word = new WordEntry( createNode( MapUtil.map(
+                    ImdbSearchEngineImpl.WORD_PROPERTY, part ) ) );
+                searchIndex.add( word.nodeId, MapUtil.map( partIndexName,
+                    part ) );
+                words.put( part, word );
+            }
+            createRelationship( word.nodeId, nodeId, relType, null );
+            word.count++;
+        }
+    }
+
+    private void writeWordCounts( final Map<String,WordEntry> words )
+    {
+        for ( Map.Entry<String,WordEntry> word : words.entrySet() )
+        {
+            inserter.setNodeProperties( word.getValue().nodeId, MapUtil.map(
+                ImdbSearchEngineImpl.WORD_PROPERTY, word.getKey(),
+                ImdbSearchEngineImpl.COUNT_PROPERTY, word.getValue().count ) );
+        }
+    }
+
+    private long createNode( final Map<String,Object> properties )
+    {
+        nodeCount++;
+        return inserter.createNode( properties );
+    }
+
+    private void createRelationship( final long startId, final long endId,
+        final RelationshipType type, final Map<String,Object> properties )
+    {
+        relationshipCount++;
+        inserter.createRelationship( startId, endId, type, properties );
+    }
+
+    private static final class WordEntry
+    {
+        private final long nodeId;
+        private int count;
+
+        WordEntry( final long nodeId )
+        {
+            this.nodeId = nodeId;
+        }
+    }
+}
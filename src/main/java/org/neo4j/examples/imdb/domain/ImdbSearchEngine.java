@@ -18,6 +18,8 @@
  */
 package org.neo4j.examples.imdb.domain;
 
+import java.util.List;
+
 import org.neo4j.graphdb.Node;
 
 public interface ImdbSearchEngine
@@ -26,7 +28,69 @@ public interface ImdbSearchEngine
 
     void indexMovie( Movie movie );
 
+    /**
+     * Remove an actor from the search index, before it is deleted.
+     * @param actor
+     *            the actor to remove
+     */
+    void unindexActor( Actor actor );
+
+    /**
+     * Remove a movie from the search index, before it is deleted.
+     * @param movie
+     *            the movie to remove
+     */
+    void unindexMovie( Movie movie );
+
+    /**
+     * Write the word use counts collected by {@link #indexActor(Actor)},
+     * {@link #indexMovie(Movie)} and the unindex methods to the word nodes,
+     * deleting words that are no longer used. Only writes the counts of the
+     * transaction of the calling thread, and is done before it commits
+     * anyway.
+     */
+    void flushIndexCounts();
+
+    /**
+     * Forget the word counts of the transaction of the calling thread, when
+     * it fails before it commits.
+     */
+    void discardIndexCounts();
+
+    /**
+     * Forget the word nodes cached while indexing, for example at the end of
+     * an import.
+     */
+    void clearIndexCache();
+
     Node searchActor( String name );
 
     Node searchMovie( String title );
+
+    /**
+     * Returns the actors whose names best match a search, best first. Hits
+     * are ranked by BM25 over the words of the names, so rare words and
+     * short names that match count the most.
+     * @param name
+     *            the search
+     * @param offset
+     *            number of hits to skip
+     * @param count
+     *            maximum number of hits to return
+     * @return the actor nodes with their scores
+     */
+    List<SearchHit<Node>> searchActors( String name, int offset, int count );
+
+    /**
+     * Returns the movies whose titles best match a search, best first,
+     * ranked like {@link #searchActors(String, int, int)}.
+     * @param title
+     *            the search
+     * @param offset
+     *            number of hits to skip
+     * @param count
+     *            maximum number of hits to return
+     * @return the movie nodes with their scores
+     */
+    List<SearchHit<Node>> searchMovies( String title, int offset, int count );
 }
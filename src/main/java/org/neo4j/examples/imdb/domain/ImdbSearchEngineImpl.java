@@ -21,65 +21,358 @@ package org.neo4j.examples.imdb.domain;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import org.neo4j.examples.imdb.util.LongList;
+import org.neo4j.examples.imdb.util.Metrics;
+import org.neo4j.examples.imdb.util.PostingList;
+import org.neo4j.examples.imdb.util.TrigramIndex;
+
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class ImdbSearchEngineImpl implements ImdbSearchEngine
 {
-    private static final String NAME_PART_INDEX = "name.part";
-    private static final String WORD_PROPERTY = "word";
-    private static final String COUNT_PROPERTY = "count_uses";
-    private static final String TITLE_PART_INDEX = "title.part";
-    private static final String SEARCH_INDEX_NAME = "search";
+    static final String NAME_PART_INDEX = "name.part";
+    static final String WORD_PROPERTY = "word";
+    static final String COUNT_PROPERTY = "count_uses";
+    static final String TITLE_PART_INDEX = "title.part";
+    static final String SEARCH_INDEX_NAME = "search";
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // fuzzy expansion of search words that are not in the vocabulary
+    private static final int MAXIMUM_EDITS = 2;
+    private static final int MAXIMUM_EXPANSIONS = 4;
+
+    /**
+     * Orders hits from the worst to the best; of hits with the same score,
+     * the one with the lowest node id is the better one.
+     */
+    private static final Comparator<SearchHit<Node>> WORST_FIRST = new Comparator<SearchHit<Node>>()
+    {
+        @Override
+        public int compare( final SearchHit<Node> left,
+            final SearchHit<Node> right )
+        {
+            final int byScore = Double.compare( left.getScore(), right
+                .getScore() );
+            if ( byScore != 0 )
+            {
+                return byScore;
+            }
+            final long leftId = left.getItem().getId();
+            final long rightId = right.getItem().getId();
+            return leftId > rightId ? -1 : (leftId == rightId ? 0 : 1);
+        }
+    };
+
+    /**
+     * What the ranked searches search in.
+     */
+    private enum Field
+    {
+        NAME( NAME_PART_INDEX, ImdbSearchRelTypes.PART_OF_NAME,
+            ActorImpl.NAME_PROPERTY, ImdbServiceImpl.NAME_INDEX ),
+        TITLE( TITLE_PART_INDEX, ImdbSearchRelTypes.PART_OF_TITLE,
+            MovieImpl.TITLE_PROPERTY, ImdbServiceImpl.TITLE_INDEX );
+
+        private final String partIndexName;
+        private final ImdbSearchRelTypes relType;
+        private final String textProperty;
+        private final String exactKey;
+
+        private Field( final String partIndexName,
+            final ImdbSearchRelTypes relType, final String textProperty,
+            final String exactKey )
+        {
+            this.partIndexName = partIndexName;
+            this.relType = relType;
+            this.textProperty = textProperty;
+            this.exactKey = exactKey;
+        }
+
+        static Field forPartIndex( final String partIndexName )
+        {
+            return NAME_PART_INDEX.equals( partIndexName ) ? NAME : TITLE;
+        }
+    }
 
     private GraphDatabaseService graphDbService;
+    @Autowired
+    private Metrics metrics;
 
     private Index<Node> nodeIndex;
+    private Index<Node> exactIndex;
+    private WordPostings postings;
+    private final ExecutorService vocabularyBuilder = Executors
+        .newSingleThreadExecutor( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( final Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, "word-vocabulary" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    private WordVocabulary nameVocabulary;
+    private WordVocabulary titleVocabulary;
+
+    // number of actors and movies and of the words in their names and
+    // titles, counted once and then kept up to date by the commits;
+    // guarded by this
+    private final Map<Field,Totals> totals = new EnumMap<Field,Totals>(
+        Field.class );
+
+    // committed word nodes used while indexing, by word; guarded by this
+    private final Map<String,Long> nameWords = new HashMap<String,Long>();
+    private final Map<String,Long> titleWords = new HashMap<String,Long>();
+    // the indexing done by the transaction of a thread, until it completes
+    private final ThreadLocal<PendingCounts> pendingCounts = new ThreadLocal<PendingCounts>();
+    private final TransactionEventHandler<Void> countHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public Void beforeCommit( final TransactionData data )
+        {
+            flushIndexCounts();
+            return null;
+        }
+
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            publishCreatedWords();
+        }
+
+        @Override
+        public void afterRollback( final TransactionData data,
+            final Void state )
+        {
+            discardIndexCounts();
+        }
+    };
 
     @Autowired
     public void setGraphDbService(GraphDatabaseService graphDbService) {
         this.graphDbService = graphDbService;
         this.nodeIndex = graphDbService.index().forNodes(SEARCH_INDEX_NAME);
+        this.exactIndex = graphDbService.index().forNodes(
+            ImdbServiceImpl.EXACT_INDEX_NAME );
+        this.postings = new WordPostings( graphDbService );
+        this.nameVocabulary = new WordVocabulary( nodeIndex, NAME_PART_INDEX,
+            vocabularyBuilder );
+        this.titleVocabulary = new WordVocabulary( nodeIndex,
+            TITLE_PART_INDEX, vocabularyBuilder );
+        graphDbService.registerTransactionEventHandler( countHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( countHandler );
+        postings.shutdown();
+        vocabularyBuilder.shutdownNow();
     }
 
     @Override
     public void indexActor( Actor actor )
     {
         index( actor.getName(), ((ActorImpl) actor).getUnderlyingNode(),
-            NAME_PART_INDEX, ImdbSearchRelTypes.PART_OF_NAME );
+            NAME_PART_INDEX, nameWords, ImdbSearchRelTypes.PART_OF_NAME );
     }
 
     @Override
     public void indexMovie( Movie movie )
     {
         index( movie.getTitle(), ((MovieImpl) movie).getUnderlyingNode(),
-            TITLE_PART_INDEX, ImdbSearchRelTypes.PART_OF_TITLE );
+            TITLE_PART_INDEX, titleWords, ImdbSearchRelTypes.PART_OF_TITLE );
+    }
+
+    @Override
+    public void unindexActor( Actor actor )
+    {
+        unindex( ((ActorImpl) actor).getUnderlyingNode(), NAME_PART_INDEX,
+            ImdbSearchRelTypes.PART_OF_NAME );
+    }
+
+    @Override
+    public void unindexMovie( Movie movie )
+    {
+        unindex( ((MovieImpl) movie).getUnderlyingNode(), TITLE_PART_INDEX,
+            ImdbSearchRelTypes.PART_OF_TITLE );
+    }
+
+    /**
+     * Also called before every commit, so counts are never left for
+     * another transaction to write.
+     */
+    @Override
+    public void flushIndexCounts()
+    {
+        final PendingCounts pending = pendingCounts.get();
+        if ( pending == null )
+        {
+            return;
+        }
+        for ( WordUse use : pending.uses.values() )
+        {
+            final Node wordNode = graphDbService.getNodeById( use.nodeId );
+            final int count = ((Integer) wordNode.getProperty( COUNT_PROPERTY,
+                0 )) + use.delta;
+            if ( count <= 0 && !wordNode.hasRelationship() )
+            {
+                nodeIndex.remove( wordNode, use.partIndexName, use.word );
+                wordNode.delete();
+                forgetWord( pending, use );
+                getVocabulary( use.partIndexName ).wordsChanged();
+            }
+            else
+            {
+                wordNode.setProperty( COUNT_PROPERTY, count );
+            }
+        }
+        pending.uses.clear();
+    }
+
+    @Override
+    public void discardIndexCounts()
+    {
+        pendingCounts.remove();
+    }
+
+    @Override
+    public synchronized void clearIndexCache()
+    {
+        nameWords.clear();
+        titleWords.clear();
     }
 
     @Override
     public Node searchActor( String name )
     {
-        return searchSingle( name, NAME_PART_INDEX, ImdbSearchRelTypes.PART_OF_NAME );
+        final long start = System.nanoTime();
+        final Node actorNode = searchSingle( name, NAME_PART_INDEX,
+            ImdbSearchRelTypes.PART_OF_NAME );
+        metrics.recordSince( "search.actor.micros", start );
+        return actorNode;
     }
 
     @Override
     public Node searchMovie( String title )
     {
-        return searchSingle( title, TITLE_PART_INDEX, ImdbSearchRelTypes.PART_OF_TITLE );
+        final long start = System.nanoTime();
+        final Node movieNode = searchSingle( title, TITLE_PART_INDEX,
+            ImdbSearchRelTypes.PART_OF_TITLE );
+        metrics.recordSince( "search.movie.micros", start );
+        return movieNode;
+    }
+
+    @Override
+    public List<SearchHit<Node>> searchActors( final String name,
+        final int offset, final int count )
+    {
+        final long start = System.nanoTime();
+        final List<SearchHit<Node>> hits = searchRanked( name, Field.NAME,
+            offset, count );
+        metrics.recordSince( "search.actors.micros", start );
+        return hits;
+    }
+
+    @Override
+    public List<SearchHit<Node>> searchMovies( final String title,
+        final int offset, final int count )
+    {
+        final long start = System.nanoTime();
+        final List<SearchHit<Node>> hits = searchRanked( title, Field.TITLE,
+            offset, count );
+        metrics.recordSince( "search.movies.micros", start );
+        return hits;
     }
 
-    private String[] splitSearchString( final String value )
+    static String[] splitSearchString( final String value )
     {
         return value.toLowerCase( Locale.ENGLISH ).split( "[^\\w]+" );
     }
 
+    private Map<String,Long> getWords( final String partIndexName )
+    {
+        return NAME_PART_INDEX.equals( partIndexName ) ? nameWords
+            : titleWords;
+    }
+
+    private PendingCounts getPendingCounts()
+    {
+        PendingCounts pending = pendingCounts.get();
+        if ( pending == null )
+        {
+            pending = new PendingCounts();
+            pendingCounts.set( pending );
+        }
+        return pending;
+    }
+
+    private synchronized void forgetWord( final PendingCounts pending,
+        final WordUse use )
+    {
+        getWords( use.partIndexName ).remove( use.word );
+        pending.getCreatedWords( use.partIndexName ).remove( use.word );
+    }
+
+    /**
+     * The words created by a committed transaction can be used by other
+     * transactions now, and the documents it indexed count.
+     */
+    private void publishCreatedWords()
+    {
+        final PendingCounts pending = pendingCounts.get();
+        pendingCounts.remove();
+        if ( pending == null )
+        {
+            return;
+        }
+        synchronized ( this )
+        {
+            nameWords.putAll( pending.createdNameWords );
+            titleWords.putAll( pending.createdTitleWords );
+            for ( Map.Entry<Field,Totals> entry : pending.totals.entrySet() )
+            {
+                // not counted yet, the count will include the commit
+                final Totals fieldTotals = totals.get( entry.getKey() );
+                if ( fieldTotals != null )
+                {
+                    fieldTotals.add( entry.getValue().documents, entry
+                        .getValue().words );
+                }
+            }
+        }
+    }
+
+    private WordVocabulary getVocabulary( final String partIndexName )
+    {
+        return NAME_PART_INDEX.equals( partIndexName ) ? nameVocabulary
+            : titleVocabulary;
+    }
+
     private Node getSingleNode(String key, String value)
     {
         IndexHits<Node> hits = nodeIndex.get( key, value );
@@ -90,101 +383,483 @@ public class ImdbSearchEngineImpl implements ImdbSearchEngine
         return null;
     }
 
-    private void index( final String value, final Node node,
-        final String partIndexName, final ImdbSearchRelTypes relType )
+    private synchronized void index( final String value, final Node node,
+        final String partIndexName, final Map<String,Long> words,
+        final ImdbSearchRelTypes relType )
     {
-        for ( String part : splitSearchString( value ) )
+        final PendingCounts pending = getPendingCounts();
+        final Map<String,Long> createdWords = pending
+            .getCreatedWords( partIndexName );
+        final String[] parts = splitSearchString( value );
+        pending.addDocument( partIndexName, 1, parts.length );
+        for ( String part : parts )
         {
-            Node wordNode = getSingleNode(partIndexName, part);
-            if ( wordNode == null )
+            Long wordId = words.get( part );
+            if ( wordId == null )
+            {
+                wordId = createdWords.get( part );
+            }
+            final Node wordNode;
+            if ( wordId == null )
             {
-                wordNode = graphDbService.createNode();
-                // not needed for the functionality
-                nodeIndex.add(wordNode, partIndexName, part);
+                Node foundNode = getSingleNode(partIndexName, part);
+                if ( foundNode == null )
+                {
+                    foundNode = graphDbService.createNode();
+                    // not needed for the functionality
+                    nodeIndex.add(foundNode, partIndexName, part);
 
-                wordNode.setProperty( WORD_PROPERTY, part );
+                    foundNode.setProperty( WORD_PROPERTY, part );
+                    getVocabulary( partIndexName ).wordsChanged();
+                    // other transactions only see it once it is committed
+                    createdWords.put( part, foundNode.getId() );
+                }
+                else
+                {
+                    words.put( part, foundNode.getId() );
+                }
+                wordNode = foundNode;
+            }
+            else
+            {
+                wordNode = graphDbService.getNodeById( wordId );
             }
             wordNode.createRelationshipTo( node, relType );
-            wordNode.setProperty( COUNT_PROPERTY, ((Integer) wordNode
-                .getProperty( COUNT_PROPERTY, 0 )) + 1 );
+            // the count is written by flushIndexCounts
+            pending.use( wordNode.getId(), part, partIndexName, 1 );
+        }
+    }
+
+    private void unindex( final Node node, final String partIndexName,
+        final ImdbSearchRelTypes relType )
+    {
+        final PendingCounts pending = getPendingCounts();
+        int words = 0;
+        for ( Relationship rel : node.getRelationships( relType,
+            Direction.INCOMING ) )
+        {
+            final Node wordNode = rel.getStartNode();
+            final String part = (String) wordNode.getProperty( WORD_PROPERTY );
+            rel.delete();
+            pending.use( wordNode.getId(), part, partIndexName, -1 );
+            words++;
         }
+        pending.addDocument( partIndexName, -1, -words );
     }
 
     private Node searchSingle( final String value, final String indexName,
         final ImdbSearchRelTypes wordRelType )
     {
         // get the words in the search
-        final List<Node> wordList = findSearchWords( value, indexName );
+        final List<SearchWord> wordList = findSearchWords( value, indexName,
+            wordRelType );
         if ( wordList.isEmpty() )
         {
             return null;
         }
-        final Node startNode = wordList.remove( 0 );
-        // set up a match to use if everything else fails
-        Node match = startNode.getRelationships( wordRelType ).iterator()
-            .next().getEndNode();
-        // check if there is only one node in the list
-        if ( wordList.isEmpty() )
+        return graphDbService.getNodeById( bestMatch( wordList ) );
+    }
+
+    /**
+     * Scores every node that any of the words is part of, merging the
+     * posting lists of the words in id order, and keeps only the best
+     * <code>offset + count</code> hits in a heap. A node is only loaded if
+     * the words it matches could score high enough to get into the heap.
+     */
+    private List<SearchHit<Node>> searchRanked( final String value,
+        final Field field, final int offset, final int count )
+    {
+        if ( offset < 0 || count < 0 )
         {
-            return match;
+            throw new IllegalArgumentException( "Negative offset or count" );
         }
-        int bestCount = 0;
-        final int listSize = wordList.size();
-        for ( Relationship targetRel : startNode.getRelationships( wordRelType ) )
+        final List<SearchWord> wordList = findSearchWords( value,
+            field.partIndexName, field.relType );
+        if ( wordList.isEmpty() || count == 0 )
         {
-            Node targetNode = targetRel.getEndNode();
-            int hitCount = 0;
-            for ( Relationship wordRel : targetNode
-                .getRelationships( wordRelType ) )
+            return Collections.emptyList();
+        }
+        final Totals fieldTotals = getTotals( field );
+        final int documents = (int) Math.min( fieldTotals.documents,
+            Integer.MAX_VALUE );
+        final double averageWords = fieldTotals.getAverageWords();
+        final PostingList.Cursor[] cursors = new PostingList.Cursor[wordList
+            .size()];
+        final double[] weights = new double[cursors.length];
+        for ( int i = 0; i < cursors.length; i++ )
+        {
+            final SearchWord word = wordList.get( i );
+            cursors[i] = word.postings.cursor();
+            cursors[i].next();
+            weights[i] = idf( documents, word.uses ) * word.boost;
+        }
+        final int heapSize = offset + count;
+        final PriorityQueue<SearchHit<Node>> heap = new PriorityQueue<SearchHit<Node>>(
+            heapSize, WORST_FIRST );
+        while ( true )
+        {
+            long candidate = Long.MAX_VALUE;
+            for ( PostingList.Cursor cursor : cursors )
+            {
+                if ( cursor != null && cursor.get() < candidate )
+                {
+                    candidate = cursor.get();
+                }
+            }
+            if ( candidate == Long.MAX_VALUE )
+            {
+                break;
+            }
+            double weight = 0;
+            int matched = 0;
+            for ( int i = 0; i < cursors.length; i++ )
             {
-                if ( wordList.contains( wordRel.getStartNode() ) )
+                if ( cursors[i] != null && cursors[i].get() == candidate )
                 {
-                    if ( ++hitCount == listSize )
+                    weight += weights[i];
+                    matched++;
+                    if ( !cursors[i].next() )
                     {
-                        return targetNode;
+                        cursors[i] = null;
                     }
                 }
             }
+            // the candidate can not score higher than if it had no other
+            // words than the matched ones
+            if ( heap.size() == heapSize
+                && bm25( weight, matched, averageWords ) <= heap.peek()
+                    .getScore() )
+            {
+                continue;
+            }
+            final Node node = graphDbService.getNodeById( candidate );
+            final int length = Math.max( matched, countWords( (String) node
+                .getProperty( field.textProperty, "" ) ) );
+            final double score = bm25( weight, length, averageWords );
+            if ( heap.size() < heapSize )
+            {
+                heap.add( new SearchHit<Node>( node, score ) );
+            }
+            else if ( score > heap.peek().getScore() )
+            {
+                heap.poll();
+                heap.add( new SearchHit<Node>( node, score ) );
+            }
+        }
+        final List<SearchHit<Node>> hits = new ArrayList<SearchHit<Node>>( heap );
+        if ( offset >= hits.size() )
+        {
+            return Collections.emptyList();
+        }
+        Collections.sort( hits, Collections.reverseOrder( WORST_FIRST ) );
+        return new ArrayList<SearchHit<Node>>( hits.subList( offset, hits
+            .size() ) );
+    }
+
+    private static double idf( final int documents, final int uses )
+    {
+        final double n = Math.min( uses, documents );
+        return Math.log( 1 + (documents - n + 0.5) / (n + 0.5) );
+    }
+
+    /**
+     * BM25 score of a name or title of <code>length</code> words that
+     * contains search words with a summed idf of <code>weight</code> once
+     * each.
+     */
+    private static double bm25( final double weight, final int length,
+        final double averageWords )
+    {
+        return weight * (K1 + 1)
+            / (1 + K1 * (1 - B + B * length / averageWords));
+    }
+
+    private static int countWords( final String value )
+    {
+        int count = 0;
+        for ( String part : splitSearchString( value ) )
+        {
+            if ( part.length() > 0 )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the totals of a field. They are counted the first
+     * time, by a query of all documents and by summing the uses of every
+     * word; after that commits keep them up to date.
+     */
+    private synchronized Totals getTotals( final Field field )
+    {
+        Totals fieldTotals = totals.get( field );
+        if ( fieldTotals == null )
+        {
+            fieldTotals = new Totals();
+            final IndexHits<Node> documents = exactIndex.query(
+                field.exactKey, "*" );
+            try
+            {
+                fieldTotals.add( documents.size(), 0 );
+            }
+            finally
+            {
+                documents.close();
+            }
+            final IndexHits<Node> words = nodeIndex.query(
+                field.partIndexName, "*" );
+            try
+            {
+                for ( Node wordNode : words )
+                {
+                    fieldTotals.add( 0, (Integer) wordNode.getProperty(
+                        COUNT_PROPERTY, 0 ) );
+                }
+            }
+            finally
+            {
+                words.close();
+            }
+            totals.put( field, fieldTotals );
+        }
+        final Totals copy = new Totals();
+        copy.add( fieldTotals.documents, fieldTotals.words );
+        return copy;
+    }
+
+    /**
+     * Returns the first node of the rarest word that all the other words are
+     * part of too, or else the one most of them are part of. The lists of
+     * the other words are only advanced, so they are skipped through rather
+     * than read.
+     */
+    private static long bestMatch( final List<SearchWord> wordList )
+    {
+        final PostingList.Cursor candidates = wordList.get( 0 ).postings
+            .cursor();
+        final PostingList.Cursor[] others = new PostingList.Cursor[wordList
+            .size() - 1];
+        for ( int i = 0; i < others.length; i++ )
+        {
+            others[i] = wordList.get( i + 1 ).postings.cursor();
+        }
+        long match = -1;
+        int bestCount = -1;
+        while ( candidates.next() )
+        {
+            final long candidate = candidates.get();
+            int hitCount = 0;
+            for ( PostingList.Cursor other : others )
+            {
+                if ( other.advanceTo( candidate ) && other.get() == candidate )
+                {
+                    hitCount++;
+                }
+            }
+            if ( hitCount == others.length )
+            {
+                return candidate;
+            }
             if ( hitCount > bestCount )
             {
-                match = targetNode;
+                match = candidate;
                 bestCount = hitCount;
             }
         }
         return match;
     }
 
-    private List<Node> findSearchWords( final String userInput,
-        final String partIndexName )
+    private List<SearchWord> findSearchWords( final String userInput,
+        final String partIndexName, final ImdbSearchRelTypes wordRelType )
     {
-        final List<Node> wordList = new ArrayList<Node>();
+        final List<SearchWord> wordList = new ArrayList<SearchWord>();
+        final Set<Node> wordNodes = new HashSet<Node>();
         // prepare search terms
         for ( String part : splitSearchString( userInput ) )
         {
             Node wordNode = getSingleNode(partIndexName, part);
-            if ( wordNode == null || !wordNode.hasRelationship()
-                || wordList.contains( wordNode ) )
+            if ( wordNode == null )
+            {
+                // probably misspelled
+                final SearchWord expanded = expandSearchWord( part,
+                    partIndexName, wordRelType, wordNodes );
+                if ( expanded != null )
+                {
+                    wordList.add( expanded );
+                }
+                continue;
+            }
+            if ( !wordNodes.add( wordNode ) )
             {
                 continue;
             }
-            wordList.add( wordNode );
+            final PostingList list = postings.get( wordNode, wordRelType );
+            if ( !list.isEmpty() )
+            {
+                wordList.add( new SearchWord( list, (Integer) wordNode
+                    .getProperty( COUNT_PROPERTY, list.size() ), 1 ) );
+            }
         }
         if ( wordList.isEmpty() )
         {
             return Collections.emptyList();
         }
-        // sort words according to the number of relationships (ascending)
-        Collections.sort( wordList, new Comparator<Node>()
+        // sort words according to the number of uses (ascending)
+        Collections.sort( wordList, new Comparator<SearchWord>()
         {
             @Override
-            public int compare( final Node left, final Node right )
+            public int compare( final SearchWord left, final SearchWord right )
             {
-                int leftCount = (Integer) left.getProperty( COUNT_PROPERTY, 0 );
-                int rightCount = (Integer) right
-                    .getProperty( COUNT_PROPERTY, 0 );
-                return leftCount - rightCount;
+                return left.postings.size() - right.postings.size();
             }
         } );
         return wordList;
     }
+
+    /**
+     * Returns the closest real words of a word that is not in the
+     * vocabulary as one search word, that matches the nodes any of them is
+     * part of. Such a match counts less the more edits the words are from
+     * the searched word.
+     */
+    private SearchWord expandSearchWord( final String part,
+        final String partIndexName, final ImdbSearchRelTypes wordRelType,
+        final Set<Node> wordNodes )
+    {
+        final List<String> closest = getVocabulary( partIndexName ).closest(
+            part, MAXIMUM_EDITS, MAXIMUM_EXPANSIONS );
+        if ( closest.isEmpty() )
+        {
+            return null;
+        }
+        final LongList ids = new LongList();
+        int uses = 0;
+        for ( String word : closest )
+        {
+            final Node wordNode = getSingleNode( partIndexName, word );
+            if ( wordNode == null || !wordNodes.add( wordNode ) )
+            {
+                continue;
+            }
+            final PostingList list = postings.get( wordNode, wordRelType );
+            final PostingList.Cursor cursor = list.cursor();
+            while ( cursor.next() )
+            {
+                ids.add( cursor.get() );
+            }
+            uses += (Integer) wordNode.getProperty( COUNT_PROPERTY, list
+                .size() );
+        }
+        if ( ids.isEmpty() )
+        {
+            return null;
+        }
+        final int edits = TrigramIndex.editDistance( part, closest.get( 0 ),
+            MAXIMUM_EDITS );
+        return new SearchWord( PostingList.of( ids.toArray() ), uses,
+            1.0 / (1 + edits) );
+    }
+
+    private static final class SearchWord
+    {
+        private final PostingList postings;
+        private final int uses;
+        // how much a match of the word counts
+        private final double boost;
+
+        SearchWord( final PostingList postings, final int uses,
+            final double boost )
+        {
+            this.postings = postings;
+            this.uses = uses;
+            this.boost = boost;
+        }
+    }
+
+    /**
+     * A number of documents and of the words in them.
+     */
+    private static final class Totals
+    {
+        private long documents = 0;
+        private long words = 0;
+
+        void add( final long documentDelta, final long wordDelta )
+        {
+            documents += documentDelta;
+            words += wordDelta;
+        }
+
+        /**
+         * Returns the average number of words of a document, 1 if there are
+         * none.
+         */
+        double getAverageWords()
+        {
+            return documents <= 0 || words <= 0 ? 1 : (double) words
+                / documents;
+        }
+    }
+
+    /**
+     * The word nodes created, the uses changed and the documents indexed by
+     * the transaction of one thread.
+     */
+    private static final class PendingCounts
+    {
+        private final Map<String,Long> createdNameWords = new HashMap<String,Long>();
+        private final Map<String,Long> createdTitleWords = new HashMap<String,Long>();
+        private final Map<Long,WordUse> uses = new LinkedHashMap<Long,WordUse>();
+        private final Map<Field,Totals> totals = new EnumMap<Field,Totals>(
+            Field.class );
+
+        void addDocument( final String partIndexName,
+            final int documentDelta, final int wordDelta )
+        {
+            final Field field = Field.forPartIndex( partIndexName );
+            Totals fieldTotals = totals.get( field );
+            if ( fieldTotals == null )
+            {
+                fieldTotals = new Totals();
+                totals.put( field, fieldTotals );
+            }
+            fieldTotals.add( documentDelta, wordDelta );
+        }
+
+        Map<String,Long> getCreatedWords( final String partIndexName )
+        {
+            return NAME_PART_INDEX.equals( partIndexName ) ? createdNameWords
+                : createdTitleWords;
+        }
+
+        void use( final long nodeId, final String word,
+            final String partIndexName, final int delta )
+        {
+            WordUse use = uses.get( nodeId );
+            if ( use == null )
+            {
+                use = new WordUse( nodeId, word, partIndexName );
+                uses.put( nodeId, use );
+            }
+            use.delta += delta;
+        }
+    }
+
+    private static final class WordUse
+    {
+        private final long nodeId;
+        private final String word;
+        private final String partIndexName;
+        private int delta = 0;
+
+        WordUse( final long nodeId, final String word,
+            final String partIndexName )
+        {
+            this.nodeId = nodeId;
+            this.word = word;
+            this.partIndexName = partIndexName;
+        }
+    }
 }
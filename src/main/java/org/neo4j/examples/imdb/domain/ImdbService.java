@@ -19,6 +19,9 @@
 package org.neo4j.examples.imdb.domain;
 
 import java.util.List;
+import java.util.Map;
+
+import org.neo4j.examples.imdb.util.LruCache;
 
 public interface ImdbService
 {
@@ -71,6 +74,143 @@ public interface ImdbService
     
     Movie getExactMovie( String title );
 
+    /**
+     * Returns the hit and eviction counters of the caches in front of
+     * {@link #getActor(String)}, {@link #getMovie(String)},
+     * {@link #getExactMovie(String)}, and of the role orders behind
+     * {@link #getFilmography(Actor)} and {@link #getCast(Movie)}.
+     * @return statistics of each cache
+     */
+    List<LruCache.Statistics> getLookupCacheStatistics();
+
+    /**
+     * Returns the actors whose names best match a search, best first, for
+     * showing a page of alternatives.
+     * @param name
+     *            name, or part of the name, of actor
+     * @param offset
+     *            number of hits to skip
+     * @param count
+     *            maximum number of hits to return
+     * @return the matching actors with their scores
+     */
+    List<SearchHit<Actor>> findActors( String name, int offset, int count );
+
+    /**
+     * Returns the movies whose titles best match a search, best first.
+     * @param title
+     *            title, or part of the title, of movie
+     * @param offset
+     *            number of hits to skip
+     * @param count
+     *            maximum number of hits to return
+     * @return the matching movies with their scores
+     */
+    List<SearchHit<Movie>> findMovies( String title, int offset, int count );
+
+    /**
+     * Returns names of actors that start with <code>prefix</code>, or have
+     * a word that does, the actors with the most roles first.
+     * @param prefix
+     *            what has been typed so far, in any case
+     * @param count
+     *            maximum number of names
+     * @return the names, empty if the completions are not ready yet
+     */
+    List<String> completeActorNames( String prefix, int count );
+
+    /**
+     * Returns titles of movies that start with <code>prefix</code>, or have
+     * a word that does, the movies with the most roles first.
+     * @param prefix
+     *            what has been typed so far, in any case
+     * @param count
+     *            maximum number of titles
+     * @return the titles, empty if the completions are not ready yet
+     */
+    List<String> completeMovieTitles( String prefix, int count );
+
+    /**
+     * Returns all actors with exactly the given <code>name</code>. The same
+     * name can occur in both the actor and the actress list.
+     * @param name
+     *            name of actor
+     * @return the actors, empty if none was found
+     */
+    List<Actor> getExactActors( String name );
+
+    /**
+     * Returns the actor backed by the node with the given id.
+     * @param id
+     *            node id of the actor
+     * @return the actor
+     */
+    Actor getActorById( long id );
+
+    /**
+     * Returns the movie backed by the node with the given id.
+     * @param id
+     *            node id of the movie
+     * @return the movie
+     */
+    Movie getMovieById( long id );
+
+    /**
+     * Returns the roles of an actor sorted by movie title, one for each
+     * title. The order is kept between calls, and the roles are read as they
+     * are fetched, so a page of a long filmography costs only the page.
+     * @param actor
+     *            the actor
+     * @return the roles of the actor
+     */
+    List<Role> getFilmography( Actor actor );
+
+    /**
+     * Returns the roles in a movie sorted by actor name, one for each name.
+     * The order is kept between calls, and the roles are read as they are
+     * fetched, so a page of a large cast costs only the page.
+     * @param movie
+     *            the movie
+     * @return the roles in the movie
+     */
+    List<Role> getCast( Movie movie );
+
+    /**
+     * Returns all actors in the graph. The actors are read as the iteration
+     * proceeds.
+     * @return all actors
+     */
+    Iterable<Actor> getAllActors();
+
+    /**
+     * Returns all movies in the graph. The movies are read as the iteration
+     * proceeds.
+     * @return all movies
+     */
+    Iterable<Movie> getAllMovies();
+
+    /**
+     * Delete an actor and its roles, and remove it from the indexes.
+     * @param actor
+     *            the actor to delete
+     */
+    void deleteActor( Actor actor );
+
+    /**
+     * Delete a movie and the roles played in it, and remove it from the
+     * indexes.
+     * @param movie
+     *            the movie to delete
+     */
+    void deleteMovie( Movie movie );
+
+    /**
+     * Delete a role.
+     * @param role
+     *            the role to delete
+     */
+    void deleteRole( Role role );
+
     /**
      * Returns a list with first element {@link Actor} followed by {@link Movie}
      * ending with an {@link Actor}. The list is one of the shortest paths
@@ -80,10 +220,36 @@ public interface ImdbService
      * @return one of the shortest paths to Kevin Bacon
      */
     List<?> getBaconPath( Actor actor );
+
+    /**
+     * Returns the actor Kevin Bacon, found through the reference
+     * relationship made by {@link #setupReferenceRelationship()}. The node is
+     * looked up once and then remembered.
+     * @return the Kevin Bacon actor
+     * @throws java.util.NoSuchElementException
+     *             if the reference relationship has not been set up
+     */
+    Actor getBaconActor();
     
     /**
      * Add a relationship from some node to the reference node.
      * Will make it easy and fast to retrieve this node.
+     * Does nothing if the relationship already exists.
      */
     void setupReferenceRelationship();
+
+    /**
+     * Returns the import progress stored by
+     * {@link #saveImportProgress(Map)}, or an empty map.
+     * @return progress values by key
+     */
+    Map<String,Long> getImportProgress();
+
+    /**
+     * Store the import progress in the current transaction, so it is
+     * committed together with the data it describes.
+     * @param progress
+     *            progress values by key
+     */
+    void saveImportProgress( Map<String,Long> progress );
 }
@@ -18,17 +18,29 @@
  */
 package org.neo4j.examples.imdb.domain;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.examples.imdb.util.Metrics;
 import org.neo4j.examples.imdb.util.PathFinder;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.helpers.Predicate;
+import org.neo4j.helpers.collection.FilteringIterable;
+import org.neo4j.helpers.collection.IterableWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,21 +48,175 @@ class ImdbServiceImpl implements ImdbService
 {
     private GraphDatabaseService graphDbService;
     private Index<Node> nodeIndex;
+    private NodeAnchor referenceAnchor;
+    private NodeAnchor baconAnchor;
 
     @Autowired
     private PathFinder pathFinder;
     @Autowired
     private ImdbSearchEngine searchEngine;
+    @Autowired
+    private BaconIndex baconIndex;
+    @Autowired
+    private CompletionIndex completionIndex;
+    @Autowired
+    private RoleOrder roleOrder;
+    @Autowired
+    private Metrics metrics;
 
-    private static final String EXACT_INDEX_NAME = "exact";
-    private static final String TITLE_INDEX = "title";
-    private static final String NAME_INDEX = "name";
+    static final String EXACT_INDEX_NAME = "exact";
+    static final String TITLE_INDEX = "title";
+    static final String NAME_INDEX = "name";
+    static final String BACON_NAME = "Bacon, Kevin";
+    private static final String IMPORT_INDEX = "import";
+    private static final String IMPORT_PROGRESS = "progress";
+    private static final int LOOKUP_CACHE_SIZE = 10000;
+    // the keys are whatever users search for, so the caches are bounded by
+    // an estimate of their memory too
+    private static final long LOOKUP_CACHE_BYTES = 2 * 1024 * 1024;
+    // an entry besides the characters of its key
+    private static final long LOOKUP_ENTRY_BYTES = 128;
+    private static final LruCache.Weigher<String,Lookup> LOOKUP_WEIGHER = new LruCache.Weigher<String,Lookup>()
+    {
+        @Override
+        public long weigh( final String key, final Lookup value )
+        {
+            return LOOKUP_ENTRY_BYTES + 2L * key.length();
+        }
+    };
+
+    // search results by trimmed name or title
+    private final LruCache<String,Lookup> actorCache = new LruCache<String,Lookup>(
+        "actors", LOOKUP_CACHE_SIZE, LOOKUP_CACHE_BYTES, LOOKUP_WEIGHER );
+    private final LruCache<String,Lookup> movieCache = new LruCache<String,Lookup>(
+        "movies", LOOKUP_CACHE_SIZE, LOOKUP_CACHE_BYTES, LOOKUP_WEIGHER );
+    private final LruCache<String,Lookup> exactMovieCache = new LruCache<String,Lookup>(
+        "exact movies", LOOKUP_CACHE_SIZE, LOOKUP_CACHE_BYTES,
+        LOOKUP_WEIGHER );
+    private final LruCache.Loader<String,Lookup> actorLoader = new LruCache.Loader<String,Lookup>()
+    {
+        @Override
+        public Lookup load( final String name )
+        {
+            final Node actorNode = getSingleNode( NAME_INDEX, name );
+            if ( actorNode != null )
+            {
+                return Lookup.exact( actorNode );
+            }
+            return Lookup.search( searchEngine.searchActor( name ) );
+        }
+    };
+    private final LruCache.Loader<String,Lookup> movieLoader = new LruCache.Loader<String,Lookup>()
+    {
+        @Override
+        public Lookup load( final String title )
+        {
+            final Node movieNode = getExactMovieNode( title );
+            if ( movieNode != null )
+            {
+                return Lookup.exact( movieNode );
+            }
+            return Lookup.search( searchEngine.searchMovie( title ) );
+        }
+    };
+    private final LruCache.Loader<String,Lookup> exactMovieLoader = new LruCache.Loader<String,Lookup>()
+    {
+        @Override
+        public Lookup load( final String title )
+        {
+            final Node movieNode = getExactMovieNode( title );
+            return movieNode == null ? Lookup.MISSING : Lookup.exact( movieNode );
+        }
+    };
+    private final TransactionEventHandler<Void> cacheInvalidator = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            // lookups by other threads may have missed the new nodes
+            if ( data.deletedNodes().iterator().hasNext() )
+            {
+                invalidateLookups();
+                return;
+            }
+            boolean actorsCreated = false;
+            boolean moviesCreated = false;
+            for ( Node node : data.createdNodes() )
+            {
+                actorsCreated |= node.hasProperty( ActorImpl.NAME_PROPERTY );
+                moviesCreated |= node.hasProperty( MovieImpl.TITLE_PROPERTY );
+            }
+            if ( actorsCreated )
+            {
+                actorCache.invalidateAll();
+            }
+            if ( moviesCreated )
+            {
+                movieCache.invalidateAll();
+                exactMovieCache.invalidateAll();
+            }
+        }
+
+        @Override
+        public void afterRollback( final TransactionData data,
+            final Void state )
+        {
+            // the ids of rolled back nodes can be used again
+            invalidateLookups();
+        }
+    };
 
 
     @Autowired
-    public void setGraphDbService(GraphDatabaseService graphDbService) {
+    public void setGraphDbService(final GraphDatabaseService graphDbService) {
         this.graphDbService = graphDbService;
         this.nodeIndex = graphDbService.index().forNodes(EXACT_INDEX_NAME);
+        graphDbService.registerTransactionEventHandler( cacheInvalidator );
+        this.referenceAnchor = new NodeAnchor( graphDbService )
+        {
+            @Override
+            protected Node resolve()
+            {
+                //return graphDbService.getReferenceNode();
+                final Iterator<Node> nodes = graphDbService.getAllNodes()
+                    .iterator();
+                return nodes.hasNext() ? nodes.next() : null;
+            }
+
+            @Override
+            protected boolean isValid( final Node node )
+            {
+                // the reference node is never deleted
+                return true;
+            }
+        };
+        this.baconAnchor = new NodeAnchor( graphDbService )
+        {
+            @Override
+            protected Node resolve()
+            {
+                final Node referenceNode = referenceAnchor.get();
+                if ( referenceNode == null )
+                {
+                    return null;
+                }
+                final Relationship rel = referenceNode.getSingleRelationship(
+                    RelTypes.IMDB, Direction.OUTGOING );
+                return rel == null ? null : rel.getEndNode();
+            }
+
+            @Override
+            protected boolean isValid( final Node node )
+            {
+                return BACON_NAME.equals( node.getProperty(
+                    ActorImpl.NAME_PROPERTY, null ) );
+            }
+        };
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( cacheInvalidator );
     }
 
     @Override
@@ -61,6 +227,7 @@ class ImdbServiceImpl implements ImdbService
         actor.setName( name );
         searchEngine.indexActor( actor );
         nodeIndex.add(actorNode, NAME_INDEX, name);
+        actorCache.invalidateAll();
         return actor;
     }
 
@@ -73,6 +240,8 @@ class ImdbServiceImpl implements ImdbService
         movie.setYear( year );
         searchEngine.indexMovie( movie );
         nodeIndex.add(movieNode, TITLE_INDEX, title);
+        movieCache.invalidateAll();
+        exactMovieCache.invalidateAll();
         return movie;
     }
 
@@ -103,16 +272,15 @@ class ImdbServiceImpl implements ImdbService
     @Override
     public Actor getActor( final String name )
     {
-        Node actorNode = getSingleNode(NAME_INDEX, name);
-        if ( actorNode == null )
-        {
-            actorNode = searchEngine.searchActor( name );
-        }
+        final long start = System.nanoTime();
+        final Node actorNode = getCachedNode( actorCache, name.trim(),
+            actorLoader, "lookup.actor." );
         Actor actor = null;
         if ( actorNode != null )
         {
             actor = new ActorImpl( actorNode );
         }
+        metrics.recordSince( "lookup.actor.micros", start );
         return actor;
     }
 
@@ -127,23 +295,23 @@ class ImdbServiceImpl implements ImdbService
     @Override
     public Movie getMovie( final String title )
     {
-        Node movieNode = getExactMovieNode( title );
-        if ( movieNode == null )
-        {
-            movieNode = searchEngine.searchMovie( title );
-        }
+        final long start = System.nanoTime();
+        final Node movieNode = getCachedNode( movieCache, title.trim(),
+            movieLoader, "lookup.movie." );
         Movie movie = null;
         if ( movieNode != null )
         {
             movie = new MovieImpl( movieNode );
         }
+        metrics.recordSince( "lookup.movie.micros", start );
         return movie;
     }
 
     @Override
     public Movie getExactMovie( final String title )
     {
-        Node movieNode = getExactMovieNode( title );
+        final Node movieNode = getCachedNode( exactMovieCache, title,
+            exactMovieLoader, null );
         Movie movie = null;
         if ( movieNode != null )
         {
@@ -152,48 +320,314 @@ class ImdbServiceImpl implements ImdbService
         return movie;
     }
 
+    @Override
+    public List<SearchHit<Actor>> findActors( final String name,
+        final int offset, final int count )
+    {
+        final List<SearchHit<Actor>> actors = new ArrayList<SearchHit<Actor>>();
+        for ( SearchHit<Node> hit : searchEngine.searchActors( name, offset,
+            count ) )
+        {
+            actors.add( new SearchHit<Actor>( new ActorImpl( hit.getItem(),
+                true ), hit.getScore() ) );
+        }
+        return actors;
+    }
+
+    @Override
+    public List<SearchHit<Movie>> findMovies( final String title,
+        final int offset, final int count )
+    {
+        final List<SearchHit<Movie>> movies = new ArrayList<SearchHit<Movie>>();
+        for ( SearchHit<Node> hit : searchEngine.searchMovies( title, offset,
+            count ) )
+        {
+            movies.add( new SearchHit<Movie>( new MovieImpl( hit.getItem(),
+                true ), hit.getScore() ) );
+        }
+        return movies;
+    }
+
+    @Override
+    public List<String> completeActorNames( final String prefix,
+        final int count )
+    {
+        return completionIndex.completeActors( prefix, count );
+    }
+
+    @Override
+    public List<String> completeMovieTitles( final String prefix,
+        final int count )
+    {
+        return completionIndex.completeMovies( prefix, count );
+    }
+
+    @Override
+    public Movie getMovieById( final long id )
+    {
+        return new MovieImpl( graphDbService.getNodeById( id ) );
+    }
+
+    /**
+     * Returns the node a key resolves to, counting how it was resolved,
+     * whether it came from the cache or not.
+     * @param counter
+     *            prefix of the outcome counters, <code>null</code> to not
+     *            count
+     */
+    private Node getCachedNode( final LruCache<String,Lookup> cache,
+        final String key, final LruCache.Loader<String,Lookup> loader,
+        final String counter )
+    {
+        Lookup lookup = cache.get( key, loader );
+        Node node;
+        try
+        {
+            node = getNode( lookup );
+        }
+        catch ( NotFoundException e )
+        {
+            // deleted since it was cached
+            cache.remove( key );
+            lookup = cache.get( key, loader );
+            node = getNode( lookup );
+        }
+        if ( counter != null )
+        {
+            metrics.increment( counter + lookup.outcome );
+        }
+        return node;
+    }
+
+    private Node getNode( final Lookup lookup )
+    {
+        return lookup == Lookup.MISSING ? null : graphDbService
+            .getNodeById( lookup.id );
+    }
+
+    private void invalidateLookups()
+    {
+        actorCache.invalidateAll();
+        movieCache.invalidateAll();
+        exactMovieCache.invalidateAll();
+    }
+
+    @Override
+    public List<LruCache.Statistics> getLookupCacheStatistics()
+    {
+        final List<LruCache.Statistics> statistics = new ArrayList<LruCache.Statistics>();
+        statistics.add( actorCache.getStatistics() );
+        statistics.add( movieCache.getStatistics() );
+        statistics.add( exactMovieCache.getStatistics() );
+        statistics.add( roleOrder.getStatistics() );
+        return statistics;
+    }
+
     private Node getExactMovieNode( final String title )
     {
         return getSingleNode( TITLE_INDEX, title );
     }
 
+    @Override
+    public List<Actor> getExactActors( final String name )
+    {
+        final List<Actor> actors = new ArrayList<Actor>();
+        for ( Node actorNode : nodeIndex.get( NAME_INDEX, name ) )
+        {
+            actors.add( new ActorImpl( actorNode ) );
+        }
+        return actors;
+    }
+
+    @Override
+    public Actor getActorById( final long id )
+    {
+        return new ActorImpl( graphDbService.getNodeById( id ) );
+    }
+
+    @Override
+    public List<Role> getFilmography( final Actor actor )
+    {
+        return roleOrder.getActorRoles( ((ActorImpl) actor)
+            .getUnderlyingNode() );
+    }
+
+    @Override
+    public List<Role> getCast( final Movie movie )
+    {
+        return roleOrder.getMovieRoles( ((MovieImpl) movie)
+            .getUnderlyingNode() );
+    }
+
+    @Override
+    public Iterable<Actor> getAllActors()
+    {
+        return new IterableWrapper<Actor,Node>( getAllNodesWith(
+            ActorImpl.NAME_PROPERTY ) )
+        {
+            @Override
+            protected Actor underlyingObjectToObject( final Node node )
+            {
+                return new ActorImpl( node );
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Movie> getAllMovies()
+    {
+        return new IterableWrapper<Movie,Node>( getAllNodesWith(
+            MovieImpl.TITLE_PROPERTY ) )
+        {
+            @Override
+            protected Movie underlyingObjectToObject( final Node node )
+            {
+                return new MovieImpl( node );
+            }
+        };
+    }
+
+    private Iterable<Node> getAllNodesWith( final String property )
+    {
+        return new FilteringIterable<Node>( graphDbService.getAllNodes(),
+            new Predicate<Node>()
+            {
+                @Override
+                public boolean accept( final Node node )
+                {
+                    return node.hasProperty( property );
+                }
+            } );
+    }
+
+    @Override
+    public void deleteActor( final Actor actor )
+    {
+        final Node actorNode = ((ActorImpl) actor).getUnderlyingNode();
+        searchEngine.unindexActor( actor );
+        nodeIndex.remove( actorNode, NAME_INDEX, actor.getName() );
+        deleteNode( actorNode );
+        actorCache.invalidateAll();
+    }
+
+    @Override
+    public void deleteMovie( final Movie movie )
+    {
+        final Node movieNode = ((MovieImpl) movie).getUnderlyingNode();
+        searchEngine.unindexMovie( movie );
+        nodeIndex.remove( movieNode, TITLE_INDEX, movie.getTitle() );
+        deleteNode( movieNode );
+        movieCache.invalidateAll();
+        exactMovieCache.invalidateAll();
+    }
+
+    private void deleteNode( final Node node )
+    {
+        // roles, and the reference relationship if this was Kevin Bacon
+        for ( Relationship rel : node.getRelationships() )
+        {
+            rel.delete();
+        }
+        node.delete();
+    }
+
+    @Override
+    public void deleteRole( final Role role )
+    {
+        ((RoleImpl) role).getUnderlyingRelationship().delete();
+    }
+
     @Override
     @Transactional
     public void setupReferenceRelationship()
     {
-        Node baconNode = getSingleNode( "name", "Bacon, Kevin" );
+        Node baconNode = getSingleNode( NAME_INDEX, BACON_NAME );
         if ( baconNode == null )
         {
             throw new NoSuchElementException(
                 "Unable to find Kevin Bacon actor" );
         }
-        //Node referenceNode = graphDbService.getReferenceNode();
-        Node referenceNode = graphDbService.getAllNodes().iterator().next();
+        Node referenceNode = referenceAnchor.get();
+        if ( referenceNode.hasRelationship( RelTypes.IMDB, Direction.OUTGOING ) )
+        {
+            // left by an earlier, resumed setup
+            return;
+        }
         referenceNode.createRelationshipTo( baconNode, RelTypes.IMDB );
     }
 
+    @Override
+    public Map<String,Long> getImportProgress()
+    {
+        final Map<String,Long> progress = new HashMap<String,Long>();
+        final Node progressNode = getSingleNode( IMPORT_INDEX, IMPORT_PROGRESS );
+        if ( progressNode != null )
+        {
+            for ( String key : progressNode.getPropertyKeys() )
+            {
+                progress.put( key, (Long) progressNode.getProperty( key ) );
+            }
+        }
+        return progress;
+    }
+
+    @Override
+    @Transactional
+    public void saveImportProgress( final Map<String,Long> progress )
+    {
+        Node progressNode = getSingleNode( IMPORT_INDEX, IMPORT_PROGRESS );
+        if ( progressNode == null )
+        {
+            progressNode = graphDbService.createNode();
+            nodeIndex.add( progressNode, IMPORT_INDEX, IMPORT_PROGRESS );
+        }
+        for ( Map.Entry<String,Long> entry : progress.entrySet() )
+        {
+            progressNode.setProperty( entry.getKey(), entry.getValue() );
+        }
+    }
+
     @Override
     public List<?> getBaconPath( final Actor actor )
     {
-        final Node baconNode;
         if ( actor == null )
         {
             throw new IllegalArgumentException( "Null actor" );
         }
-        try
+        final long start = System.nanoTime();
+        final Node baconNode = getBaconNode();
+        final Node actorNode = ((ActorImpl) actor).getUnderlyingNode();
+        List<Node> list = baconIndex.getPath( actorNode, baconNode );
+        if ( list == null )
+        {
+            // the index is not built yet
+            list = pathFinder.shortestPath( actorNode, baconNode,
+                RelTypes.ACTS_IN );
+            metrics.increment( "bacon.pathFinder" );
+        }
+        else
         {
-            //baconNode = graphDbService.getReferenceNode().getSingleRelationship( RelTypes.IMDB, Direction.OUTGOING ).getEndNode();
-            baconNode = graphDbService.getAllNodes().iterator().next().getSingleRelationship( RelTypes.IMDB, Direction.OUTGOING ).getEndNode();
+            metrics.increment( "bacon.index" );
         }
-        catch ( NoSuchElementException e )
+        metrics.recordSince( "bacon.micros", start );
+        return convertNodesToActorsAndMovies( list );
+    }
+
+    @Override
+    public Actor getBaconActor()
+    {
+        return new ActorImpl( getBaconNode() );
+    }
+
+    private Node getBaconNode()
+    {
+        final Node baconNode = baconAnchor.get();
+        if ( baconNode == null )
         {
             throw new NoSuchElementException(
                 "Unable to find Kevin Bacon actor" );
         }
-        final Node actorNode = ((ActorImpl) actor).getUnderlyingNode();
-        final List<Node> list = pathFinder.shortestPath( actorNode, baconNode,
-            RelTypes.ACTS_IN );
-        return convertNodesToActorsAndMovies( list );
+        return baconNode;
     }
 
     private List<?> convertNodesToActorsAndMovies( final List<Node> list )
@@ -204,13 +638,41 @@ class ImdbServiceImpl implements ImdbService
         {
             if ( mod++ % 2 == 0 )
             {
-                actorAndMovieList.add( new ActorImpl( node ) );
+                actorAndMovieList.add( new ActorImpl( node, true ) );
             }
             else
             {
-                actorAndMovieList.add( new MovieImpl( node ) );
+                actorAndMovieList.add( new MovieImpl( node, true ) );
             }
         }
         return actorAndMovieList;
     }
+
+    /**
+     * A cached lookup: the node id a name or title resolved to and how it
+     * was resolved.
+     */
+    private static final class Lookup
+    {
+        static final Lookup MISSING = new Lookup( -1, "missing" );
+
+        private final long id;
+        private final String outcome;
+
+        private Lookup( final long id, final String outcome )
+        {
+            this.id = id;
+            this.outcome = outcome;
+        }
+
+        static Lookup exact( final Node node )
+        {
+            return new Lookup( node.getId(), "exact" );
+        }
+
+        static Lookup search( final Node node )
+        {
+            return node == null ? MISSING : new Lookup( node.getId(), "search" );
+        }
+    }
 }
\ No newline at end of file
@@ -20,6 +20,12 @@ package org.neo4j.examples.imdb.domain;
 
 public interface Movie
 {
+    /**
+     * Returns the id of the node backing this movie.
+     * @return node id of this movie
+     */
+    long getId();
+
     /**
      * Returns the title of this movie.
      * @return title of this movie.
@@ -47,8 +53,38 @@ public interface Movie
     void setYear( int year );
 
     /**
-     * Returns all actors that acted in this movie.
+     * Returns all actors that acted in this movie. The actors are read from
+     * the relationships of the movie while they are iterated.
      * @return actors that acted in this movie
      */
     Iterable<Actor> getActors();
+
+    /**
+     * Returns all roles played in this movie, one for each credited actor,
+     * read in a single pass over the relationships of the movie while they
+     * are iterated.
+     * @return all roles
+     */
+    Iterable<Role> getRoles();
+
+    /**
+     * Returns a page of the roles played in this movie, in the same order as
+     * {@link #getRoles()}. Skipped roles are stepped over without being
+     * wrapped or copied, but their relationships are still loaded, so the
+     * cost is linear in the number of relationships of this movie.
+     * @param offset
+     *            number of roles to skip
+     * @param count
+     *            maximum number of roles to return
+     * @return the roles on the page
+     */
+    Iterable<Role> getRoles( int offset, int count );
+
+    /**
+     * Returns the number of roles played in this movie, counted without
+     * wrapping them; every relationship is still loaded, so the cost is
+     * linear in the number of relationships.
+     * @return number of roles
+     */
+    int getRoleCount();
 }
@@ -18,23 +18,40 @@
  */
 package org.neo4j.examples.imdb.domain;
 
-import java.util.LinkedList;
-import java.util.List;
-
+import org.neo4j.examples.imdb.util.Iterables;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.IterableWrapper;
 
 class MovieImpl implements Movie
 {
-    private static final String TITLE_PROPERTY = "title";
-    private static final String YEAR_PROPERTY = "year";
+    static final String TITLE_PROPERTY = "title";
+    static final String YEAR_PROPERTY = "year";
+
+    private static final int UNREAD = Integer.MIN_VALUE;
 
     private final Node underlyingNode;
+    private final boolean snapshot;
+    // read once in snapshot mode
+    private String title;
+    private int year = UNREAD;
 
     MovieImpl( final Node node )
+    {
+        this( node, false );
+    }
+
+    /**
+     * @param snapshot
+     *            if <code>true</code> the title and year are read from the
+     *            node once and kept, for wrappers that live no longer than a
+     *            read and stay in one thread
+     */
+    MovieImpl( final Node node, final boolean snapshot )
     {
         this.underlyingNode = node;
+        this.snapshot = snapshot;
     }
 
     Node getUnderlyingNode()
@@ -42,40 +59,96 @@ class MovieImpl implements Movie
         return this.underlyingNode;
     }
 
+    @Override
+    public long getId()
+    {
+        return this.underlyingNode.getId();
+    }
+
     @Override
     public String getTitle()
     {
-        return (String) underlyingNode.getProperty( TITLE_PROPERTY );
+        if ( !snapshot )
+        {
+            return (String) underlyingNode.getProperty( TITLE_PROPERTY );
+        }
+        if ( title == null )
+        {
+            title = (String) underlyingNode.getProperty( TITLE_PROPERTY );
+        }
+        return title;
     }
 
     @Override
     public void setTitle( final String title )
     {
         underlyingNode.setProperty( TITLE_PROPERTY, title );
+        if ( snapshot )
+        {
+            this.title = title;
+        }
     }
 
     @Override
     public int getYear()
     {
-        return (Integer) underlyingNode.getProperty( YEAR_PROPERTY );
+        if ( !snapshot )
+        {
+            return (Integer) underlyingNode.getProperty( YEAR_PROPERTY );
+        }
+        if ( year == UNREAD )
+        {
+            year = (Integer) underlyingNode.getProperty( YEAR_PROPERTY );
+        }
+        return year;
     }
 
     @Override
     public void setYear( final int year )
     {
         underlyingNode.setProperty( YEAR_PROPERTY, year );
+        if ( snapshot )
+        {
+            this.year = year;
+        }
     }
 
     @Override
     public Iterable<Actor> getActors()
     {
-        final List<Actor> actors = new LinkedList<Actor>();
-        for ( Relationship rel : underlyingNode.getRelationships(
-            RelTypes.ACTS_IN, Direction.INCOMING ) )
+        return new IterableWrapper<Actor,Relationship>( getRoleRelationships() )
         {
-            actors.add( new ActorImpl( rel.getStartNode() ) );
-        }
-        return actors;
+            @Override
+            protected Actor underlyingObjectToObject( final Relationship rel )
+            {
+                return new ActorImpl( rel.getStartNode(), snapshot );
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Role> getRoles()
+    {
+        return RoleImpl.wrap( getRoleRelationships(), snapshot );
+    }
+
+    @Override
+    public Iterable<Role> getRoles( final int offset, final int count )
+    {
+        return RoleImpl.wrap( Iterables.slice( getRoleRelationships(), offset,
+            count ), snapshot );
+    }
+
+    @Override
+    public int getRoleCount()
+    {
+        return Iterables.count( getRoleRelationships() );
+    }
+
+    private Iterable<Relationship> getRoleRelationships()
+    {
+        return underlyingNode.getRelationships( RelTypes.ACTS_IN,
+            Direction.INCOMING );
     }
 
     @Override
@@ -98,6 +171,6 @@ class MovieImpl implements Movie
     @Override
     public String toString()
     {
-        return (String) underlyingNode.getProperty( TITLE_PROPERTY );
+        return getTitle();
     }
 }
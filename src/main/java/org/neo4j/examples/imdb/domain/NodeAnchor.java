@@ -0,0 +1,86 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+
+/**
+ * A node that is looked up often, such as Kevin Bacon. The node is resolved
+ * once and then remembered by id; later lookups only load the node by id and
+ * check that it is still the one that was resolved, which matters because
+ * the id of a deleted node can be reused.
+ */
+abstract class NodeAnchor
+{
+    private static final long UNRESOLVED = -1;
+
+    private final GraphDatabaseService graphDbService;
+    private volatile long nodeId = UNRESOLVED;
+
+    NodeAnchor( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+    }
+
+    /**
+     * Returns the anchored node, resolving it if it was not resolved yet or
+     * is no longer valid.
+     * @return the node or <code>null</code> if it can not be resolved
+     */
+    Node get()
+    {
+        final long id = nodeId;
+        if ( id != UNRESOLVED )
+        {
+            try
+            {
+                final Node node = graphDbService.getNodeById( id );
+                if ( isValid( node ) )
+                {
+                    return node;
+                }
+            }
+            catch ( NotFoundException e )
+            {
+                // deleted, resolve it again
+            }
+        }
+        final Node node = resolve();
+        nodeId = node == null ? UNRESOLVED : node.getId();
+        return node;
+    }
+
+    /**
+     * Find the node the slow way.
+     * @return the node or <code>null</code> if there is none
+     */
+    protected abstract Node resolve();
+
+    /**
+     * Returns <code>true</code> if a node loaded by the remembered id is
+     * still the anchored node. This is called on every lookup, so it should
+     * only look at the node itself.
+     * @param node
+     *            the node with the remembered id
+     * @return <code>true</code> if the node can be used
+     */
+    protected abstract boolean isValid( Node node );
+}
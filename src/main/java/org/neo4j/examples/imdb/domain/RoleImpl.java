@@ -19,16 +19,29 @@
 package org.neo4j.examples.imdb.domain;
 
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.IterableWrapper;
 
 class RoleImpl implements Role
 {
-    private static final String ROLE_PROPERTY = "role";
+    static final String ROLE_PROPERTY = "role";
 
     private final Relationship underlyingRel;
+    private final boolean snapshot;
 
     RoleImpl( final Relationship rel )
+    {
+        this( rel, false );
+    }
+
+    /**
+     * @param snapshot
+     *            if <code>true</code> the actor and movie of the role are
+     *            snapshot wrappers
+     */
+    RoleImpl( final Relationship rel, final boolean snapshot )
     {
         this.underlyingRel = rel;
+        this.snapshot = snapshot;
     }
 
     Relationship getUnderlyingRelationship()
@@ -36,16 +49,32 @@ class RoleImpl implements Role
         return this.underlyingRel;
     }
 
+    /**
+     * Returns a lazy view of relationships as roles.
+     */
+    static Iterable<Role> wrap( final Iterable<Relationship> rels,
+        final boolean snapshot )
+    {
+        return new IterableWrapper<Role,Relationship>( rels )
+        {
+            @Override
+            protected Role underlyingObjectToObject( final Relationship rel )
+            {
+                return new RoleImpl( rel, snapshot );
+            }
+        };
+    }
+
     @Override
     public Actor getActor()
     {
-        return new ActorImpl( underlyingRel.getStartNode() );
+        return new ActorImpl( underlyingRel.getStartNode(), snapshot );
     }
 
     @Override
     public Movie getMovie()
     {
-        return new MovieImpl( underlyingRel.getEndNode() );
+        return new MovieImpl( underlyingRel.getEndNode(), snapshot );
     }
 
     @Override
@@ -0,0 +1,279 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.neo4j.examples.imdb.util.LongList;
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * The roles of an actor sorted by movie title, and the roles in a movie
+ * sorted by actor name, so a page of a filmography or cast can be read
+ * without sorting all of it. The order of a node is kept as an array of
+ * relationship ids, ties broken by the order of the relationships, and only
+ * the first role of each title or name is kept, as a sorted set would.
+ * Reading the order of a node the first time loads and sorts all its
+ * relationships, which takes time and memory linear in their number; after
+ * that a page only reads its own roles. An added role is inserted into the
+ * cached orders of its actor and movie by a binary search, without sorting
+ * again. Renamed nodes, removed roles and deleted nodes drop every order.
+ */
+class RoleOrder
+{
+    private static final int CAPACITY = 1000;
+
+    private final LruCache<Long,long[]> orders = new LruCache<Long,long[]>(
+        "role orders", CAPACITY );
+    private final LruCache.Loader<Long,long[]> actorLoader = new LruCache.Loader<Long,long[]>()
+    {
+        @Override
+        public long[] load( final Long actorId )
+        {
+            return sortRoles( graphDbService.getNodeById( actorId ),
+                Direction.OUTGOING, MovieImpl.TITLE_PROPERTY );
+        }
+    };
+    private final LruCache.Loader<Long,long[]> movieLoader = new LruCache.Loader<Long,long[]>()
+    {
+        @Override
+        public long[] load( final Long movieId )
+        {
+            return sortRoles( graphDbService.getNodeById( movieId ),
+                Direction.INCOMING, ActorImpl.NAME_PROPERTY );
+        }
+    };
+
+    private GraphDatabaseService graphDbService;
+    private final TransactionEventHandler<Void> changeHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            graphChanged( data );
+        }
+    };
+
+    @Autowired
+    public void setGraphDbService( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( changeHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( changeHandler );
+    }
+
+    /**
+     * Returns the roles of an actor, one for each movie title, sorted by
+     * title.
+     * @param actorNode
+     *            the actor
+     * @return the roles, read from the graph as they are fetched
+     */
+    List<Role> getActorRoles( final Node actorNode )
+    {
+        return new RoleList( orders.get( actorNode.getId(), actorLoader ) );
+    }
+
+    /**
+     * Returns the roles in a movie, one for each actor name, sorted by name.
+     * @param movieNode
+     *            the movie
+     * @return the roles, read from the graph as they are fetched
+     */
+    List<Role> getMovieRoles( final Node movieNode )
+    {
+        return new RoleList( orders.get( movieNode.getId(), movieLoader ) );
+    }
+
+    LruCache.Statistics getStatistics()
+    {
+        return orders.getStatistics();
+    }
+
+    private long[] sortRoles( final Node node, final Direction direction,
+        final String keyProperty )
+    {
+        final List<SortEntry> entries = new ArrayList<SortEntry>();
+        for ( Relationship rel : node.getRelationships( RelTypes.ACTS_IN,
+            direction ) )
+        {
+            entries.add( new SortEntry( (String) rel.getOtherNode( node )
+                .getProperty( keyProperty ), rel.getId() ) );
+        }
+        // a stable sort, so ties keep the order of the relationships
+        Collections.sort( entries );
+        final LongList sorted = new LongList();
+        String previousKey = null;
+        for ( SortEntry entry : entries )
+        {
+            if ( !entry.key.equals( previousKey ) )
+            {
+                sorted.add( entry.relId );
+                previousKey = entry.key;
+            }
+        }
+        return sorted.toArray();
+    }
+
+    private void graphChanged( final TransactionData data )
+    {
+        if ( data.deletedRelationships().iterator().hasNext()
+            || data.deletedNodes().iterator().hasNext() )
+        {
+            orders.invalidateAll();
+            return;
+        }
+        final Set<Node> createdNodes = new HashSet<Node>();
+        for ( Node node : data.createdNodes() )
+        {
+            createdNodes.add( node );
+        }
+        for ( PropertyEntry<Node> entry : data.assignedNodeProperties() )
+        {
+            // a new node is in no order yet, a renamed one can be in many
+            if ( !createdNodes.contains( entry.entity() ) )
+            {
+                orders.invalidateAll();
+                return;
+            }
+        }
+        for ( Relationship rel : data.createdRelationships() )
+        {
+            if ( rel.isType( RelTypes.ACTS_IN ) )
+            {
+                addRole( rel, rel.getStartNode(), MovieImpl.TITLE_PROPERTY );
+                addRole( rel, rel.getEndNode(), ActorImpl.NAME_PROPERTY );
+            }
+        }
+    }
+
+    /**
+     * Insert a new role into the cached order of one of its nodes, if there
+     * is one. Synchronized, so roles committed at the same time are not
+     * lost.
+     */
+    private synchronized void addRole( final Relationship rel,
+        final Node node, final String keyProperty )
+    {
+        final long[] order = orders.peek( node.getId() );
+        if ( order == null )
+        {
+            // also drops an order being loaded without the role
+            orders.remove( node.getId() );
+            return;
+        }
+        final String key = getKey( rel, node, keyProperty );
+        int low = 0;
+        int high = order.length;
+        while ( low < high )
+        {
+            final int middle = (low + high) >>> 1;
+            final int compared = getKey(
+                graphDbService.getRelationshipById( order[middle] ), node,
+                keyProperty ).compareTo( key );
+            if ( compared == 0 )
+            {
+                // the title or name has a role in the order already
+                orders.replace( node.getId(), order );
+                return;
+            }
+            if ( compared < 0 )
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        final long[] inserted = new long[order.length + 1];
+        System.arraycopy( order, 0, inserted, 0, low );
+        inserted[low] = rel.getId();
+        System.arraycopy( order, low, inserted, low + 1, order.length - low );
+        orders.replace( node.getId(), inserted );
+    }
+
+    private static String getKey( final Relationship rel, final Node node,
+        final String keyProperty )
+    {
+        return (String) rel.getOtherNode( node ).getProperty( keyProperty );
+    }
+
+    private static final class SortEntry implements Comparable<SortEntry>
+    {
+        private final String key;
+        private final long relId;
+
+        SortEntry( final String key, final long relId )
+        {
+            this.key = key;
+            this.relId = relId;
+        }
+
+        @Override
+        public int compareTo( final SortEntry other )
+        {
+            return key.compareTo( other.key );
+        }
+    }
+
+    /**
+     * A view of sorted relationship ids as roles, so only the roles that are
+     * fetched are read.
+     */
+    private final class RoleList extends AbstractList<Role>
+    {
+        private final long[] relIds;
+
+        RoleList( final long[] relIds )
+        {
+            this.relIds = relIds;
+        }
+
+        @Override
+        public Role get( final int index )
+        {
+            return new RoleImpl( graphDbService
+                .getRelationshipById( relIds[index] ), true );
+        }
+
+        @Override
+        public int size()
+        {
+            return relIds.length;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+/**
+ * One result of a ranked search: an actor, movie or node together with how
+ * well it matched the search.
+ * @param <T>
+ *            the type of the result
+ */
+public final class SearchHit<T>
+{
+    private final T item;
+    private final double score;
+
+    SearchHit( final T item, final double score )
+    {
+        this.item = item;
+        this.score = score;
+    }
+
+    public T getItem()
+    {
+        return item;
+    }
+
+    /**
+     * Returns the score of the hit; a higher score is a better match. Scores
+     * can only be compared between hits of the same search.
+     * @return the score
+     */
+    public double getScore()
+    {
+        return score;
+    }
+}
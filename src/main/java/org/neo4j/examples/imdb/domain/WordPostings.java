@@ -0,0 +1,143 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.examples.imdb.util.LongList;
+import org.neo4j.examples.imdb.util.PostingList;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+
+/**
+ * The ids of the actors or movies each search word is part of, as posting
+ * lists by word node id. The list of a word is read from its relationships
+ * the first time the word is searched for, and kept until a transaction that
+ * adds uses of the word commits. Removed uses, which only delete
+ * relationships, drop all lists, since a deleted relationship can not be
+ * followed back to its word.
+ */
+class WordPostings
+{
+    private final GraphDatabaseService graphDbService;
+    private final TransactionEventHandler<Void> changeHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            graphChanged( data );
+        }
+
+        @Override
+        public void afterRollback( final TransactionData data,
+            final Void state )
+        {
+            // a list may have been read inside the transaction
+            clear();
+        }
+    };
+
+    // guarded by this
+    private final Map<Long,PostingList> postings = new HashMap<Long,PostingList>();
+    private long generation = 0;
+
+    WordPostings( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( changeHandler );
+    }
+
+    void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( changeHandler );
+    }
+
+    /**
+     * Returns the ids of the nodes a word is part of.
+     * @param wordNode
+     *            the word
+     * @param relType
+     *            the relationships from the word to the nodes
+     * @return the posting list of the word
+     */
+    PostingList get( final Node wordNode, final RelationshipType relType )
+    {
+        final Long wordId = wordNode.getId();
+        final long readGeneration;
+        synchronized ( this )
+        {
+            final PostingList list = postings.get( wordId );
+            if ( list != null )
+            {
+                return list;
+            }
+            readGeneration = generation;
+        }
+        final LongList ids = new LongList();
+        for ( Relationship rel : wordNode.getRelationships( relType,
+            Direction.OUTGOING ) )
+        {
+            ids.add( rel.getEndNode().getId() );
+        }
+        final PostingList list = PostingList.of( ids.toArray() );
+        synchronized ( this )
+        {
+            // a commit while reading may have made the list stale
+            if ( generation == readGeneration )
+            {
+                postings.put( wordId, list );
+            }
+        }
+        return list;
+    }
+
+    private synchronized void clear()
+    {
+        generation++;
+        postings.clear();
+    }
+
+    private synchronized void graphChanged( final TransactionData data )
+    {
+        generation++;
+        if ( postings.isEmpty() )
+        {
+            return;
+        }
+        if ( data.deletedRelationships().iterator().hasNext() )
+        {
+            postings.clear();
+            return;
+        }
+        for ( Relationship rel : data.createdRelationships() )
+        {
+            if ( rel.isType( ImdbSearchRelTypes.PART_OF_NAME )
+                || rel.isType( ImdbSearchRelTypes.PART_OF_TITLE ) )
+            {
+                postings.remove( rel.getStartNode().getId() );
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.domain;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.neo4j.examples.imdb.util.TrigramIndex;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+
+/**
+ * The words of one part index of the search engine, for finding the real
+ * words closest to a misspelled one. The words are read from the word nodes
+ * in the background, the first time they are needed and again after the
+ * search engine has created or deleted words; until then the words read
+ * before are used.
+ */
+class WordVocabulary
+{
+    private final Index<Node> nodeIndex;
+    private final String partIndexName;
+    private final Executor builder;
+
+    // guarded by this
+    private TrigramIndex words = null;
+    private long version = 0;
+    private long builtVersion = -1;
+    private boolean building = false;
+
+    WordVocabulary( final Index<Node> nodeIndex, final String partIndexName,
+        final Executor builder )
+    {
+        this.nodeIndex = nodeIndex;
+        this.partIndexName = partIndexName;
+        this.builder = builder;
+    }
+
+    /**
+     * Note that a word node was created or deleted.
+     */
+    synchronized void wordsChanged()
+    {
+        version++;
+    }
+
+    /**
+     * Returns the words closest to a word that is not in the vocabulary.
+     * @param word
+     *            the misspelled word
+     * @param maximumDistance
+     *            largest edit distance to accept
+     * @param maximumCount
+     *            maximum number of words to return
+     * @return the closest words, empty if there are none or the words have
+     *         not been read yet
+     * @see TrigramIndex#closest(String, int, int)
+     */
+    List<String> closest( final String word, final int maximumDistance,
+        final int maximumCount )
+    {
+        final TrigramIndex current;
+        synchronized ( this )
+        {
+            if ( builtVersion != version && !building )
+            {
+                startBuild();
+            }
+            current = words;
+        }
+        if ( current == null )
+        {
+            return Collections.emptyList();
+        }
+        return current.closest( word, maximumDistance, maximumCount );
+    }
+
+    private void startBuild()
+    {
+        building = true;
+        final long buildVersion = version;
+        builder.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                TrigramIndex built = null;
+                try
+                {
+                    built = TrigramIndex.of( readWords() );
+                }
+                finally
+                {
+                    buildDone( built, buildVersion );
+                }
+            }
+        } );
+    }
+
+    private synchronized void buildDone( final TrigramIndex built,
+        final long buildVersion )
+    {
+        building = false;
+        if ( built != null )
+        {
+            words = built;
+            builtVersion = buildVersion;
+        }
+    }
+
+    private Set<String> readWords()
+    {
+        final Set<String> vocabulary = new HashSet<String>();
+        final IndexHits<Node> hits = nodeIndex.query( partIndexName, "*" );
+        try
+        {
+            for ( Node wordNode : hits )
+            {
+                vocabulary.add( (String) wordNode.getProperty(
+                    ImdbSearchEngineImpl.WORD_PROPERTY ) );
+            }
+        }
+        finally
+        {
+            hits.close();
+        }
+        return vocabulary;
+    }
+}
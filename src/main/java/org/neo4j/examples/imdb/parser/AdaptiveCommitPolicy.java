@@ -0,0 +1,89 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+/**
+ * Tunes the number of items per commit so that a commit takes about a target
+ * time. After each commit the time per item is measured and the batch size
+ * moves half way towards the size that would have hit the target, bounded
+ * by a minimum and a maximum.
+ */
+public class AdaptiveCommitPolicy implements CommitPolicy
+{
+    private final long targetNanos;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private int batchSize;
+
+    /**
+     * Create an adaptive policy.
+     * @param targetMillis
+     *            wanted duration of a commit in milliseconds
+     * @param minBatchSize
+     *            smallest number of items per commit
+     * @param maxBatchSize
+     *            largest number of items per commit
+     */
+    public AdaptiveCommitPolicy( final long targetMillis,
+        final int minBatchSize, final int maxBatchSize )
+    {
+        if ( targetMillis < 1 )
+        {
+            throw new IllegalArgumentException( "Target time must be positive" );
+        }
+        if ( minBatchSize < 1 || maxBatchSize < minBatchSize )
+        {
+            throw new IllegalArgumentException( "Invalid batch size bounds "
+                + minBatchSize + ".." + maxBatchSize );
+        }
+        this.targetNanos = targetMillis * 1000000L;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = minBatchSize;
+    }
+
+    @Override
+    public boolean isBatchFull( final int items, final long bytes )
+    {
+        return items >= batchSize;
+    }
+
+    @Override
+    public void batchCommitted( final int items, final long bytes,
+        final long nanos )
+    {
+        if ( items == 0 || nanos <= 0 )
+        {
+            return;
+        }
+        final long ideal = targetNanos * items / nanos;
+        final long next = (batchSize + ideal) / 2;
+        batchSize = (int) Math.max( minBatchSize, Math.min( maxBatchSize,
+            next ) );
+    }
+
+    /**
+     * Returns the current number of items per commit.
+     * @return current batch size
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.util.List;
+
+import org.neo4j.examples.imdb.domain.ImdbBatchInserter;
+import org.neo4j.examples.imdb.util.LongLongMap;
+
+/**
+ * An {@link ImdbReader} that writes directly to the store through an
+ * {@link ImdbBatchInserter}, bypassing transactions. Without transactions
+ * there is nothing a checkpoint could be committed with, so a batch import
+ * always starts from the beginning.
+ */
+public class BatchImdbReader implements ImdbReader
+{
+    private final ImdbBatchInserter inserter;
+
+    public BatchImdbReader( final ImdbBatchInserter inserter )
+    {
+        if ( inserter == null )
+        {
+            throw new IllegalArgumentException( "Null ImdbBatchInserter" );
+        }
+        this.inserter = inserter;
+    }
+
+    @Override
+    public void newMovies( final List<MovieData> movieList,
+        final ImportCheckpoint checkpoint )
+    {
+        for ( MovieData movieData : movieList )
+        {
+            inserter.createMovie( movieData.getTitle(), movieData.getYear() );
+        }
+    }
+
+    @Override
+    public void newActors( final List<ActorData> actorList,
+        final ImportCheckpoint checkpoint )
+    {
+        for ( ActorData actorData : actorList )
+        {
+            final long actorId = inserter.createActor( actorData.getName() );
+            for ( RoleData movieRole : actorData.getMovieRoles() )
+            {
+                final long movieId = inserter.getMovieId( movieRole
+                    .getTitle() );
+                if ( movieId != LongLongMap.MISSING )
+                {
+                    inserter.createRole( actorId, movieId, movieRole
+                        .getRole() );
+                }
+            }
+        }
+    }
+
+    @Override
+    public ImportCheckpoint getCheckpoint()
+    {
+        return new ImportCheckpoint();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.IOException;
+
+import org.neo4j.examples.imdb.domain.ImdbBatchInserter;
+
+/**
+ * Offline bulk import of the imdb data. Writes the store directly with the
+ * batch inserter, so the web application must not be running on the same
+ * store. Usage:
+ *
+ * <pre>
+ * BatchImport [store directory] [data directory]
+ * </pre>
+ */
+public class BatchImport
+{
+    private static final String DEFAULT_STOREDIR = "target/neo4j-db";
+    private static final String DEFAULT_DATADIR = "target/classes/data/";
+
+    public static void main( final String[] args ) throws IOException
+    {
+        final String storeDir = args.length > 0 ? args[0] : DEFAULT_STOREDIR;
+        String dataDir = args.length > 1 ? args[1] : DEFAULT_DATADIR;
+        if ( !dataDir.endsWith( "/" ) )
+        {
+            dataDir += "/";
+        }
+        System.out.println( importData( storeDir, dataDir ) );
+    }
+
+    /**
+     * Import the movie, actor and actress lists from <code>dataDir</code>
+     * into the store at <code>storeDir</code>.
+     * @param storeDir
+     *            the store directory
+     * @param dataDir
+     *            directory holding the imdb list files, ending with a slash
+     * @return a report of the import
+     * @throws IOException
+     *             if unable to read the list files
+     */
+    public static String importData( final String storeDir,
+        final String dataDir ) throws IOException
+    {
+        final long start = System.currentTimeMillis();
+        final ImdbBatchInserter inserter = new ImdbBatchInserter( storeDir );
+        final StringBuffer message = new StringBuffer( 200 );
+        try
+        {
+            final ImdbParser parser = new ParallelImdbParser(
+                new BatchImdbReader( inserter ), Runtime.getRuntime()
+                    .availableProcessors() );
+            message.append( parser.parseMovies( dataDir + "movies.list.gz" ) )
+                .append( '\n' );
+            message.append(
+                parser.parseActors( dataDir + "actors.list.gz", dataDir
+                    + "actresses.list.gz" ) ).append( '\n' );
+        }
+        finally
+        {
+            inserter.shutdown();
+        }
+        final long time = Math.max( 1, System.currentTimeMillis() - start );
+        message.append( inserter.getNodeCount() ).append( " nodes, " )
+            .append( inserter.getRelationshipCount() ).append(
+                " relationships in " ).append( time ).append( " ms (" )
+            .append( inserter.getNodeCount() * 1000 / time ).append(
+                " nodes/s, " ).append(
+                inserter.getRelationshipCount() * 1000 / time ).append(
+                " relationships/s)" );
+        return message.toString();
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+/**
+ * Commits when the estimated change state of a batch reaches a size, which
+ * keeps the memory held by a transaction bounded no matter how long the
+ * titles and role names are.
+ */
+public class ByteSizeCommitPolicy implements CommitPolicy
+{
+    private final long batchBytes;
+
+    /**
+     * Create a policy committing every <code>batchBytes</code> bytes of
+     * change state.
+     * @param batchBytes
+     *            estimated bytes of change state per commit
+     */
+    public ByteSizeCommitPolicy( final long batchBytes )
+    {
+        if ( batchBytes < 1 )
+        {
+            throw new IllegalArgumentException( "Batch size must be positive" );
+        }
+        this.batchBytes = batchBytes;
+    }
+
+    @Override
+    public boolean isBatchFull( final int items, final long bytes )
+    {
+        return bytes >= batchBytes;
+    }
+
+    @Override
+    public void batchCommitted( final int items, final long bytes,
+        final long nanos )
+    {
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+/**
+ * Decides how much parsed data the {@link ImdbParser} hands to the
+ * {@link ImdbReader} at a time. Every call to the reader is one transaction,
+ * so the policy sets the commit size. A policy is used by one parser at a
+ * time.
+ */
+public interface CommitPolicy
+{
+    /**
+     * Returns <code>true</code> if the pending batch should be committed.
+     * @param items
+     *            number of items in the batch; a movie or a role counts as
+     *            one item
+     * @param bytes
+     *            estimated size of the change state of the batch in bytes
+     * @return <code>true</code> to commit the batch now
+     */
+    boolean isBatchFull( int items, long bytes );
+
+    /**
+     * Reports a batch that has been committed.
+     * @param items
+     *            number of items in the batch
+     * @param bytes
+     *            estimated size of the change state of the batch in bytes
+     * @param nanos
+     *            time the commit took, in nanoseconds
+     */
+    void batchCommitted( int items, long bytes, long nanos );
+}
@@ -0,0 +1,339 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.examples.imdb.util.LongLongMap;
+
+/**
+ * Brings a graph loaded by {@link ImdbParser} up to date with a new release
+ * of the imdb lists. The new lists are compared with the
+ * {@link ImportManifest} of the graph, and only the movies, actors and roles
+ * that were added, changed or removed are written. The time spent in the
+ * graph grows with the size of the change rather than with the size of the
+ * lists. The lists themselves are still read in full, the actor lists twice:
+ * an actor can only be compared once its roles in both lists are known.
+ */
+public class DeltaImdbParser extends ImdbParser
+{
+    private final DeltaImdbReader deltaReader;
+
+    /**
+     * Create a new delta parser, committing every
+     * {@value #DEFAULT_BATCH_SIZE} items.
+     * @param reader
+     *            reader this parser will use to forward the changes to
+     */
+    public DeltaImdbParser( final DeltaImdbReader reader )
+    {
+        this( reader, new ItemCountCommitPolicy( DEFAULT_BATCH_SIZE ) );
+    }
+
+    /**
+     * Create a new delta parser.
+     * @param reader
+     *            reader this parser will use to forward the changes to
+     * @param commitPolicy
+     *            decides how many items are forwarded per call to the reader
+     */
+    public DeltaImdbParser( final DeltaImdbReader reader,
+        final CommitPolicy commitPolicy )
+    {
+        super( reader, commitPolicy );
+        this.deltaReader = reader;
+    }
+
+    /**
+     * Apply the differences between the graph and new movie, actor and
+     * actress lists to the graph. Movies are matched by title and actors by
+     * name, so a renamed movie or actor is removed and added again. An
+     * interrupted delta import can simply be run again.
+     * @param movieFile
+     *            name of the new movie list file
+     * @param actorFile
+     *            name of the new actor list file
+     * @param actressFile
+     *            name of the new actress list file
+     * @return a report of the changes
+     * @throws IOException
+     *             if unable to read the lists or store the manifest
+     */
+    public String parseDelta( final String movieFile, final String actorFile,
+        final String actressFile ) throws IOException
+    {
+        if ( movieFile == null )
+        {
+            throw new IllegalArgumentException( "Null movie file" );
+        }
+        if ( actorFile == null )
+        {
+            throw new IllegalArgumentException( "Null actor file" );
+        }
+        if ( actressFile == null )
+        {
+            throw new IllegalArgumentException( "Null actress file" );
+        }
+        // the actor lists are read once for their digests and once more for
+        // the changed roles
+        progress.getList( ACTOR_MARKER, actorFile ).setPasses( 2 );
+        progress.getList( ACTRESSES_MARKER, actressFile ).setPasses( 2 );
+        final ImportManifest manifest = deltaReader.getManifest();
+        final ImportManifest current = new ImportManifest();
+        final String movies = diffMovies( movieFile, manifest, current );
+        final String actors = diffActors( actorFile, actressFile, manifest,
+            current );
+        deltaReader.saveManifest( manifest );
+        return "Movies: " + movies + "\nActors and actresses: " + actors;
+    }
+
+    private String diffMovies( final String file,
+        final ImportManifest manifest, final ImportManifest current )
+        throws IOException
+    {
+        final MovieBatch batch = new MovieBatch( null )
+        {
+            @Override
+            void write( final List<MovieData> movies,
+                final ImportCheckpoint checkpoint )
+            {
+                deltaReader.updateMovies( movies, manifest );
+            }
+        };
+        int added = 0;
+        int updated = 0;
+        final ListReader fileReader = getFileReader( file, MOVIES_MARKER,
+            MOVIES_SKIPS, progress );
+        while ( fileReader.next() )
+        {
+            final MovieData movie = parseMovieLine( fileReader.getBytes(),
+                fileReader.getStart(), fileReader.getEnd() );
+            if ( movie != null
+                && current.addMovie( movie.getTitle(), movie.getYear(),
+                    LongLongMap.MISSING ) )
+            {
+                final long key = ImportManifest.key( movie.getTitle() );
+                final long digest = manifest.getMovieDigest( key );
+                if ( digest == LongLongMap.MISSING )
+                {
+                    added++;
+                    batch.add( movie );
+                }
+                else if ( digest != current.getMovieDigest( key ) )
+                {
+                    updated++;
+                    batch.add( movie );
+                }
+            }
+        }
+        fileReader.close();
+        batch.commit();
+        final RemovalBatch removals = new RemovalBatch()
+        {
+            @Override
+            void write( final List<Long> keys,
+                final ImportCheckpoint checkpoint )
+            {
+                deltaReader.removeMovies( keys, manifest );
+            }
+        };
+        int removed = 0;
+        for ( long key : manifest.getMovieKeys() )
+        {
+            if ( current.getMovieDigest( key ) == LongLongMap.MISSING )
+            {
+                removals.add( key );
+                removed++;
+            }
+        }
+        removals.commit();
+        return added + " added, " + updated + " updated, " + removed
+            + " removed.";
+    }
+
+    private String diffActors( final String actorFile,
+        final String actressFile, final ImportManifest manifest,
+        final ImportManifest current ) throws IOException
+    {
+        // first pass: the digests of the new lists
+        final ActorListReader digester = new ActorListReader()
+        {
+            @Override
+            void actor( final ActorData actor )
+            {
+                current.addActor( actor.getName(), digestRoles( actor,
+                    current ), LongLongMap.MISSING );
+            }
+        };
+        digester.read( actorFile, ACTOR_MARKER, ACTOR_SKIPS );
+        digester.read( actressFile, ACTRESSES_MARKER, ACTRESS_SKIPS );
+        // second pass: the roles of the changed actors, from both lists
+        final Map<String,List<RoleData>> changed = new LinkedHashMap<String,List<RoleData>>();
+        final ActorListReader collector = new ActorListReader()
+        {
+            @Override
+            void actor( final ActorData actor )
+            {
+                final long key = ImportManifest.key( actor.getName() );
+                if ( current.getActorDigest( key ) == manifest
+                    .getActorDigest( key ) )
+                {
+                    return;
+                }
+                List<RoleData> roles = changed.get( actor.getName() );
+                if ( roles == null )
+                {
+                    roles = new ArrayList<RoleData>();
+                    changed.put( actor.getName(), roles );
+                }
+                roles.addAll( Arrays.asList( actor.getMovieRoles() ) );
+            }
+        };
+        collector.read( actorFile, ACTOR_MARKER, ACTOR_SKIPS );
+        collector.read( actressFile, ACTRESSES_MARKER, ACTRESS_SKIPS );
+        final ActorBatch batch = new ActorBatch( null )
+        {
+            @Override
+            void write( final List<ActorData> actors,
+                final ImportCheckpoint checkpoint )
+            {
+                deltaReader.updateActors( actors, manifest );
+            }
+        };
+        int added = 0;
+        int updated = 0;
+        for ( Map.Entry<String,List<RoleData>> entry : changed.entrySet() )
+        {
+            final long key = ImportManifest.key( entry.getKey() );
+            if ( manifest.getActorDigest( key ) == LongLongMap.MISSING )
+            {
+                added++;
+            }
+            else
+            {
+                updated++;
+            }
+            final List<RoleData> roles = entry.getValue();
+            batch.add( new ActorData( entry.getKey(), roles
+                .toArray( new RoleData[roles.size()] ) ) );
+        }
+        batch.commit();
+        final RemovalBatch removals = new RemovalBatch()
+        {
+            @Override
+            void write( final List<Long> keys,
+                final ImportCheckpoint checkpoint )
+            {
+                deltaReader.removeActors( keys, manifest );
+            }
+        };
+        int removed = 0;
+        for ( long key : manifest.getActorKeys() )
+        {
+            if ( current.getActorDigest( key ) == LongLongMap.MISSING )
+            {
+                removals.add( key );
+                removed++;
+            }
+        }
+        removals.commit();
+        return added + " added, " + updated + " updated, " + removed
+            + " removed.";
+    }
+
+    /**
+     * Returns the combined digest of the roles of an actor, counting only
+     * roles in movies of the new movie list, since only those become
+     * relationships.
+     */
+    private static long digestRoles( final ActorData actor,
+        final ImportManifest current )
+    {
+        long roles = 0;
+        for ( RoleData role : actor.getMovieRoles() )
+        {
+            final long key = ImportManifest.key( role.getTitle() );
+            if ( current.getMovieDigest( key ) != LongLongMap.MISSING )
+            {
+                roles = ImportManifest.combine( roles, ImportManifest
+                    .roleDigest( role.getTitle(), role.getRole() ) );
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Batches manifest keys of movies or actors to delete.
+     */
+    private abstract class RemovalBatch extends Batch<Long>
+    {
+        RemovalBatch()
+        {
+            super( null );
+        }
+
+        @Override
+        int countItems( final Long key )
+        {
+            return 1;
+        }
+
+        @Override
+        long estimateBytes( final Long key )
+        {
+            return ENTITY_BYTES;
+        }
+    }
+
+    /**
+     * Reads an actor list, one actor at a time.
+     */
+    private abstract class ActorListReader
+    {
+        abstract void actor( ActorData actor );
+
+        void read( final String file, final String list, final int skips )
+            throws IOException
+        {
+            final ListReader fileReader = getFileReader( file, list, skips,
+                progress );
+            final ActorCollector collector = new ActorCollector();
+            while ( fileReader.next() )
+            {
+                final ActorData actor = collector.addLine( fileReader
+                    .getBytes(), fileReader.getStart(), fileReader.getEnd() );
+                if ( actor != null )
+                {
+                    actor( actor );
+                }
+            }
+            fileReader.close();
+            final ActorData lastActor = collector.finish();
+            if ( lastActor != null )
+            {
+                actor( lastActor );
+            }
+        }
+    }
+}
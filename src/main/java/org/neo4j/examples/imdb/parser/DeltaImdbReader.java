@@ -0,0 +1,75 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An {@link ImdbReader} that can also bring the graph up to date with a new
+ * release of the imdb lists, see {@link DeltaImdbParser}. Every method that
+ * changes the graph also updates the {@link ImportManifest} it is given.
+ */
+public interface DeltaImdbReader extends ImdbReader
+{
+    /**
+     * Returns the manifest of what is in the graph. From now on until
+     * {@link #saveManifest(ImportManifest)} the stored manifest is considered
+     * out of date, so an interrupted delta import is diffed against the graph
+     * itself the next time.
+     * @return the current manifest
+     */
+    ImportManifest getManifest();
+
+    /**
+     * Creates new movies, or updates the year of existing ones.
+     * @param movieList movies to create or update
+     * @param manifest the manifest to update
+     */
+    void updateMovies( List<MovieData> movieList, ImportManifest manifest );
+
+    /**
+     * Deletes movies, with the roles played in them.
+     * @param keys manifest keys of the movies to delete
+     * @param manifest the manifest to update
+     */
+    void removeMovies( List<Long> keys, ImportManifest manifest );
+
+    /**
+     * Creates new actors, or makes the roles of existing ones match the
+     * given roles.
+     * @param actorList actors to create or update
+     * @param manifest the manifest to update
+     */
+    void updateActors( List<ActorData> actorList, ImportManifest manifest );
+
+    /**
+     * Deletes actors, with their roles.
+     * @param keys manifest keys of the actors to delete
+     * @param manifest the manifest to update
+     */
+    void removeActors( List<Long> keys, ImportManifest manifest );
+
+    /**
+     * Store the manifest, once all changes are committed.
+     * @param manifest the manifest to store
+     * @throws IOException if unable to write the manifest
+     */
+    void saveManifest( ImportManifest manifest ) throws IOException;
+}
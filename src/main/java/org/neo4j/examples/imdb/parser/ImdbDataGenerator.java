@@ -0,0 +1,392 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes synthetic movie, actor and actress lists in the format of the imdb
+ * text data, for testing import, search and Bacon paths at sizes the
+ * bundled sample can not give. A scale of 1 gives about as many movies as
+ * the bundled sample; the number of movies, actors and actresses grows
+ * linearly with the scale. The number of roles of an actor follows a power
+ * law, and movies are picked by preferential attachment, so the casts follow
+ * a power law too. Kevin Bacon is always the first actor, with
+ * {@value #BACON_ROLES} roles. The same scale and seed give the same files. Usage:
+ *
+ * <pre>
+ * ImdbDataGenerator [scale] [data directory] [seed]
+ * </pre>
+ *
+ * The files can then be imported with {@link BatchImport}.
+ */
+public class ImdbDataGenerator
+{
+    private static final String DEFAULT_DATADIR = "target/generated-data/";
+    private static final long DEFAULT_SEED = 1958;
+
+    private static final int MOVIES_PER_SCALE = 1000;
+    private static final int ACTORS_PER_SCALE = 3000;
+    private static final int ACTRESSES_PER_SCALE = 2000;
+    // exponent of the distribution of roles per actor
+    private static final double ROLES_EXPONENT = 2.5;
+    private static final int MAXIMUM_ROLES = 400;
+    private static final int BACON_ROLES = 60;
+    // share of roles in a movie picked uniformly, the rest go to a movie in
+    // proportion to its cast so far
+    private static final double UNIFORM_PICK = 0.3;
+    private static final double CHARACTER_SHARE = 0.8;
+    private static final double UNCREDITED_SHARE = 0.1;
+    private static final int FIRST_YEAR = 1910;
+    private static final int YEARS = 100;
+
+    private static final String[] TITLE_WORDS = { "Night", "Day", "City",
+        "Love", "Dead", "Last", "First", "Return", "Blood", "Girl", "Man",
+        "House", "Dark", "Story", "Life", "World", "Time", "Home", "Road",
+        "King", "Queen", "War", "Heart", "Summer", "Winter", "Moon", "Sun",
+        "Star", "Fire", "Water", "River", "Sea", "Island", "Mountain",
+        "Dream", "Ghost", "Secret", "Street", "Game", "Money", "Family",
+        "Angel", "Devil", "Wild", "Lost", "Black", "White", "Red", "Blue",
+        "Golden", "Silent", "Little", "Big", "Young", "Old", "New", "Long",
+        "Final", "Great", "Hidden", "Broken", "Crazy", "Happy", "Lonely",
+        "Brother", "Sister", "Father", "Mother", "Son", "Daughter", "Stranger",
+        "Hunter", "Killer", "Lady", "Doctor", "Captain", "Soldier", "Thief",
+        "Dance", "Song", "Music", "Journey", "Escape", "Revenge", "Promise",
+        "Paradise", "Hell", "Heaven", "Shadow", "Light", "Storm", "Rain",
+        "Snow", "Wind", "Train", "Ship", "Garden", "Forest", "Desert",
+        "Empire", "Kingdom", "Legend", "Mystery", "Adventure", "Affair",
+        "Wedding", "Funeral", "Party", "Holiday", "Weekend", "Tomorrow",
+        "Yesterday", "Forever", "Midnight", "Morning", "Evening", "Paris",
+        "London", "Berlin", "Rome", "Tokyo", "Texas", "Chicago", "Hollywood",
+        "Boys", "Women", "Friends", "Lovers", "Enemies" };
+    private static final String[] GIVEN_NAMES = { "John", "Mary", "James",
+        "Anna", "Robert", "Linda", "Michael", "Susan", "William", "Karen",
+        "David", "Nancy", "Richard", "Lisa", "Joseph", "Betty", "Thomas",
+        "Helen", "Charles", "Sandra", "Peter", "Maria", "Paul", "Laura",
+        "Mark", "Sarah", "George", "Emma", "Frank", "Julia", "Jack", "Grace" };
+    private static final String[] SURNAMES = { "Smith", "Johnson", "Brown",
+        "Taylor", "Miller", "Wilson", "Moore", "Anderson", "Thomas",
+        "Jackson", "White", "Harris", "Martin", "Thompson", "Garcia",
+        "Martinez", "Robinson", "Clark", "Lewis", "Lee", "Walker", "Hall",
+        "Allen", "Young", "King", "Wright", "Scott", "Green", "Baker",
+        "Adams", "Nelson", "Hill", "Campbell", "Mitchell", "Roberts",
+        "Carter", "Phillips", "Evans", "Turner", "Torres", "Parker",
+        "Collins", "Edwards", "Stewart", "Morris", "Murphy", "Cook", "Rogers",
+        "Morgan", "Cooper", "Peterson", "Reed", "Bailey", "Bell", "Kelly",
+        "Howard", "Ward", "Cox", "Richardson", "Wood", "Watson", "Brooks",
+        "Bennett", "Gray" };
+    private static final String[] CHARACTERS = { "Himself", "Herself",
+        "Narrator", "Detective", "Nurse", "Bartender", "Waitress", "Driver",
+        "Cop", "Reporter", "Doctor", "Mother", "Father", "Sheriff", "Priest",
+        "Soldier", "Guard", "Dancer", "Singer", "Student", "Teacher",
+        "Lawyer", "Judge", "Stranger", "Party Guest", "Old Man", "Young Woman",
+        "Boy", "Girl", "Thug" };
+
+    private final Random random;
+    private final String[] movieTitles;
+    // the movie of every role so far, for preferential attachment
+    private int[] roleMovies = new int[1024];
+    private int roleCount = 0;
+
+    ImdbDataGenerator( final int movieCount, final long seed )
+    {
+        this.random = new Random( seed );
+        this.movieTitles = new String[movieCount];
+        for ( int i = 0; i < movieCount; i++ )
+        {
+            movieTitles[i] = movieTitle( i ) + " ("
+                + (FIRST_YEAR + random.nextInt( YEARS )) + ")";
+        }
+    }
+
+    public static void main( final String[] args ) throws IOException
+    {
+        final int scale = args.length > 0 ? Integer.parseInt( args[0] ) : 1;
+        String dataDir = args.length > 1 ? args[1] : DEFAULT_DATADIR;
+        if ( !dataDir.endsWith( "/" ) )
+        {
+            dataDir += "/";
+        }
+        final long seed = args.length > 2 ? Long.parseLong( args[2] )
+            : DEFAULT_SEED;
+        System.out.println( generate( dataDir, scale, seed ) );
+    }
+
+    /**
+     * Write <code>movies.list.gz</code>, <code>actors.list.gz</code> and
+     * <code>actresses.list.gz</code> to <code>dataDir</code>.
+     * @param dataDir
+     *            directory to write the list files to, ending with a slash
+     * @param scale
+     *            size of the data, 1 or more
+     * @param seed
+     *            seed of the random choices
+     * @return a report of the generated data
+     * @throws IOException
+     *             if unable to write the list files
+     */
+    public static String generate( final String dataDir, final int scale,
+        final long seed ) throws IOException
+    {
+        if ( scale < 1 )
+        {
+            throw new IllegalArgumentException( "Scale must be 1 or more: "
+                + scale );
+        }
+        new File( dataDir ).mkdirs();
+        final ImdbDataGenerator generator = new ImdbDataGenerator(
+            MOVIES_PER_SCALE * scale, seed );
+        generator.writeMovies( dataDir + "movies.list.gz" );
+        final int actors = ACTORS_PER_SCALE * scale;
+        final int actresses = ACTRESSES_PER_SCALE * scale;
+        // actresses are numbered after the actors, so the names differ
+        generator.writeActors( dataDir + "actors.list.gz",
+            ImdbParser.ACTOR_MARKER, 0, actors );
+        generator.writeActors( dataDir + "actresses.list.gz",
+            ImdbParser.ACTRESSES_MARKER, actors, actresses );
+        return generator.movieTitles.length + " movies, " + actors
+            + " actors, " + actresses + " actresses and "
+            + generator.roleCount + " roles written to " + dataDir;
+    }
+
+    private void writeMovies( final String file ) throws IOException
+    {
+        final Writer writer = openList( file, ImdbParser.MOVIES_MARKER );
+        try
+        {
+            for ( String title : movieTitles )
+            {
+                writer.write( title );
+                writer.write( tabsTo( title.length(), 7 ) );
+                // the year is in the title, between the last parentheses
+                writer.write( title.substring( title.length() - 5, title
+                    .length() - 1 ) );
+                writer.write( '\n' );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private void writeActors( final String file, final String marker,
+        final int firstActor, final int actorCount ) throws IOException
+    {
+        final Writer writer = openList( file, marker );
+        try
+        {
+            writer.write( "Name\t\t\tTitles \n" );
+            writer.write( "----\t\t\t------\n" );
+            for ( int i = firstActor; i < firstActor + actorCount; i++ )
+            {
+                final String name = i == 0 ? "Bacon, Kevin" : actorName( i );
+                writer.write( name );
+                writer.write( tabsTo( name.length(), 3 ) );
+                final int roles = i == 0 ? BACON_ROLES : drawRoleCount();
+                final Set<Integer> movies = new HashSet<Integer>();
+                for ( int role = 0; role < roles; role++ )
+                {
+                    final int movie = pickMovie( movies );
+                    if ( movie < 0 )
+                    {
+                        break;
+                    }
+                    if ( role > 0 )
+                    {
+                        writer.write( "\t\t\t" );
+                    }
+                    writeRole( writer, movieTitles[movie], role + 1 );
+                }
+                writer.write( '\n' );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Write a role like <code>Title (1999)  (uncredited)  [Nurse]  &lt;4&gt;</code>,
+     * ending the line.
+     */
+    private void writeRole( final Writer writer, final String title,
+        final int credit ) throws IOException
+    {
+        writer.write( title );
+        final boolean uncredited = random.nextDouble() < UNCREDITED_SHARE;
+        if ( uncredited )
+        {
+            writer.write( "  (uncredited)" );
+        }
+        if ( random.nextDouble() < CHARACTER_SHARE )
+        {
+            writer.write( "  [" );
+            writer.write( CHARACTERS[random.nextInt( CHARACTERS.length )] );
+            writer.write( ']' );
+        }
+        if ( !uncredited )
+        {
+            writer.write( "  <" + credit + ">" );
+        }
+        writer.write( '\n' );
+    }
+
+    /**
+     * Draw from a discrete power law starting at 1 by inverting its
+     * continuous distribution.
+     */
+    private int drawRoleCount()
+    {
+        final double roles = Math.pow( 1 - random.nextDouble(),
+            -1 / (ROLES_EXPONENT - 1) );
+        return (int) Math.min( roles, MAXIMUM_ROLES );
+    }
+
+    /**
+     * Pick a movie not among <code>taken</code> and add it there.
+     * @return the movie, or -1 if no free movie was found
+     */
+    private int pickMovie( final Set<Integer> taken )
+    {
+        for ( int attempt = 0; attempt < 10; attempt++ )
+        {
+            final int movie;
+            // a retry is uniform, as the busy movies may all be taken
+            if ( roleCount == 0 || attempt > 0
+                || random.nextDouble() < UNIFORM_PICK )
+            {
+                movie = random.nextInt( movieTitles.length );
+            }
+            else
+            {
+                movie = roleMovies[random.nextInt( roleCount )];
+            }
+            if ( taken.add( movie ) )
+            {
+                if ( roleCount == roleMovies.length )
+                {
+                    roleMovies = Arrays.copyOf( roleMovies, roleCount * 2 );
+                }
+                roleMovies[roleCount++] = movie;
+                return movie;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A title of at least two words that differs from all others, as the
+     * words are the digits of the movie number.
+     */
+    private static String movieTitle( final int movie )
+    {
+        final StringBuilder title = new StringBuilder();
+        int rest = movie;
+        do
+        {
+            if ( title.length() > 0 )
+            {
+                title.append( ' ' );
+            }
+            title.append( TITLE_WORDS[rest % TITLE_WORDS.length] );
+            rest /= TITLE_WORDS.length;
+        }
+        while ( rest > 0 || title.indexOf( " " ) < 0 );
+        return title.toString();
+    }
+
+    /**
+     * A name that differs from all others, numbered like imdb does when the
+     * given name and surname are taken.
+     */
+    private static String actorName( final int actor )
+    {
+        final int given = actor % GIVEN_NAMES.length;
+        final int surname = (actor / GIVEN_NAMES.length) % SURNAMES.length;
+        final int number = actor / (GIVEN_NAMES.length * SURNAMES.length);
+        final String name = SURNAMES[surname] + ", " + GIVEN_NAMES[given];
+        return number == 0 ? name : name + " (" + romanNumeral( number + 1 )
+            + ")";
+    }
+
+    private static String romanNumeral( final int number )
+    {
+        final int[] values = { 1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5,
+            4, 1 };
+        final String[] numerals = { "M", "CM", "D", "CD", "C", "XC", "L", "XL",
+            "X", "IX", "V", "IV", "I" };
+        final StringBuilder roman = new StringBuilder();
+        int rest = number;
+        for ( int i = 0; i < values.length; i++ )
+        {
+            while ( rest >= values[i] )
+            {
+                roman.append( numerals[i] );
+                rest -= values[i];
+            }
+        }
+        return roman.toString();
+    }
+
+    /**
+     * Returns the tabs that move a column of <code>length</code> characters
+     * to the tab stop <code>stops</code> times eight, at least one tab.
+     */
+    private static String tabsTo( final int length, final int stops )
+    {
+        final StringBuilder tabs = new StringBuilder( "\t" );
+        for ( int column = (length / 8 + 1) * 8; column < stops * 8; column += 8 )
+        {
+            tabs.append( '\t' );
+        }
+        return tabs.toString();
+    }
+
+    /**
+     * Open a list file and write the header the parser skips: the list
+     * marker and its underline, then a blank line.
+     */
+    private static Writer openList( final String file, final String marker )
+        throws IOException
+    {
+        final Writer writer = new BufferedWriter( new OutputStreamWriter(
+            new GZIPOutputStream( new FileOutputStream( file ) ),
+            "ISO-8859-1" ) );
+        writer.write( "Synthetic " + marker.toLowerCase() + "\n\n" );
+        writer.write( marker );
+        writer.write( '\n' );
+        final char[] underline = new char[marker.length()];
+        Arrays.fill( underline, '=' );
+        writer.write( underline );
+        writer.write( "\n\n" );
+        return writer;
+    }
+}
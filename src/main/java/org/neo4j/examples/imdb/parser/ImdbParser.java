@@ -18,14 +18,11 @@
  */
 package org.neo4j.examples.imdb.parser;
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
@@ -37,33 +34,75 @@ import java.util.zip.ZipInputStream;
  */
 public class ImdbParser
 {
-    private static final String MOVIES_MARKER = "MOVIES LIST";
-    private static final int MOVIES_SKIPS = 2;
-    private static final String ACTRESSES_MARKER = "THE ACTRESSES LIST";
-    private static final int ACTRESS_SKIPS = 4;
-    private static final String ACTOR_MARKER = "THE ACTORS LIST";
-    private static final int ACTOR_SKIPS = 4;
-    private static final int BUFFER_SIZE = 200;
-    private final ImdbReader reader;
+    static final String MOVIES_MARKER = "MOVIES LIST";
+    static final int MOVIES_SKIPS = 2;
+    static final String ACTRESSES_MARKER = "THE ACTRESSES LIST";
+    static final int ACTRESS_SKIPS = 4;
+    static final String ACTOR_MARKER = "THE ACTORS LIST";
+    static final int ACTOR_SKIPS = 4;
+    static final int DEFAULT_BATCH_SIZE = 200;
+    // rough cost of a node or relationship with its index entries in the
+    // transaction state, plus two bytes per character of its strings
+    static final int ENTITY_BYTES = 400;
+    private static final int ROLE_BYTES = 150;
+    private static final boolean[] ROLE_DELIMITERS = ListTokenizer
+        .byteSet( "{?[]< " );
+    final ImdbReader reader;
+    final CommitPolicy commitPolicy;
+    ImportProgress progress = new ImportProgress();
 
     /**
-     * Create a new Imdb parser.
+     * Create a new Imdb parser, committing every
+     * {@value #DEFAULT_BATCH_SIZE} items.
      * @param reader
      *            reader this parser will use to forward events to
      */
     public ImdbParser( final ImdbReader reader )
+    {
+        this( reader, new ItemCountCommitPolicy( DEFAULT_BATCH_SIZE ) );
+    }
+
+    /**
+     * Create a new Imdb parser.
+     * @param reader
+     *            reader this parser will use to forward events to
+     * @param commitPolicy
+     *            decides how many items are forwarded per call to the reader
+     */
+    public ImdbParser( final ImdbReader reader, final CommitPolicy commitPolicy )
     {
         if ( reader == null )
         {
             throw new IllegalArgumentException( "Null ImdbReader" );
         }
+        if ( commitPolicy == null )
+        {
+            throw new IllegalArgumentException( "Null CommitPolicy" );
+        }
         this.reader = reader;
+        this.commitPolicy = commitPolicy;
+    }
+
+    /**
+     * Report the progress of the following parses to <code>progress</code>.
+     * @param progress
+     *            the progress to update
+     */
+    public void setProgress( final ImportProgress progress )
+    {
+        if ( progress == null )
+        {
+            throw new IllegalArgumentException( "Null ImportProgress" );
+        }
+        this.progress = progress;
     }
 
     /**
      * Parsers a tab-separated movie list file, each line containing a movie
      * title and the year the movie was released. The file can be .gz or .zip
-     * compressed, and must then have the corresponding file extension.
+     * compressed, and must then have the corresponding file extension. An
+     * interrupted import continues after the last line committed by the
+     * reader, see {@link ImdbReader#getCheckpoint()}.
      * @param file
      *            name of movie list file
      * @throws IOException
@@ -71,51 +110,39 @@ public class ImdbParser
      */
     public String parseMovies( final String file ) throws IOException
     {
-        final List<MovieData> buffer = new LinkedList<MovieData>();
         if ( file == null )
         {
             throw new IllegalArgumentException( "Null movie file" );
         }
-        BufferedReader fileReader = getFileReader( file, MOVIES_MARKER,
-            MOVIES_SKIPS );
-        String line = fileReader.readLine();
+        final ImportCheckpoint checkpoint = reader.getCheckpoint();
+        if ( checkpoint.isDone( MOVIES_MARKER ) )
+        {
+            progress.skipped( MOVIES_MARKER );
+            return "Movies already imported.";
+        }
+        final long start = checkpoint.getPosition( MOVIES_MARKER );
+        final MovieBatch batch = new MovieBatch( checkpoint );
+        final ListReader fileReader = getFileReader( file, MOVIES_MARKER,
+            MOVIES_SKIPS, progress );
+        skipLines( fileReader, start );
+        long position = start;
         int movieCount = 0;
-        while ( line != null )
+        while ( fileReader.next() )
         {
-            // get rid of blank lines and TV shows
-            if ( "".equals( line ) || line.indexOf( "(TV)" ) != -1 )
-            {
-                line = fileReader.readLine();
-                continue;
-            }
-            final int yearSep = line.indexOf( '\t' );
-            if ( yearSep > 0 )
+            position++;
+            final MovieData movie = parseMovieLine( fileReader.getBytes(),
+                fileReader.getStart(), fileReader.getEnd() );
+            if ( movie != null )
             {
-                final String title = line.substring( 0, yearSep ).trim();
-                String yearString = line.substring( yearSep ).trim();
-                if ( yearString.length() > 4 )
-                {
-                    yearString = yearString.substring( 0, 4 );
-                }
-                if ( yearString.length() == 0 || yearString.charAt( 0 ) == '?'
-                    || title.contains( "{" ) || title.startsWith( "\"" ) )
-                {
-                    line = fileReader.readLine();
-                    continue;
-                }
-                final int year = Integer.parseInt( yearString );
-                buffer.add( new MovieData( title, year ) );
+                checkpoint.setPosition( MOVIES_MARKER, position );
+                batch.add( movie );
                 movieCount++;
-                if ( movieCount % BUFFER_SIZE == 0 )
-                {
-                    reader.newMovies( buffer );
-                    buffer.clear();
-                }
             }
-            line = fileReader.readLine();
         }
-        reader.newMovies( buffer );
-        return (movieCount + " movies parsed and injected.");
+        fileReader.close();
+        checkpoint.setDone( MOVIES_MARKER );
+        batch.close();
+        return (movieCount + " movies parsed and injected" + resumedAt( start ));
     }
 
     /**
@@ -126,9 +153,10 @@ public class ImdbParser
      * @param actorFile
      *            name of actor list file
      * @param actressFile
-     *            TODO
+     *            name of actress list file
      * @throws IOException
      *             if unable to open actor list file
+     * @see #parseMovies(String)
      */
     public String parseActors( final String actorFile, final String actressFile )
         throws IOException
@@ -141,100 +169,436 @@ public class ImdbParser
         {
             throw new IllegalArgumentException( "Null actress file" );
         }
+        final ImportCheckpoint checkpoint = reader.getCheckpoint();
         String result = "";
-        BufferedReader fileReader = getFileReader( actorFile, ACTOR_MARKER,
-            ACTOR_SKIPS );
-        result += "Actors: " + parseActorItems( fileReader ) + "\n";
-        fileReader.close();
-        fileReader = getFileReader( actressFile, ACTRESSES_MARKER,
-            ACTRESS_SKIPS );
-        result += "Actresses: " + parseActorItems( fileReader );
+        result += "Actors: "
+            + parseActorItems( actorFile, ACTOR_MARKER, ACTOR_SKIPS,
+                checkpoint ) + "\n";
+        result += "Actresses: "
+            + parseActorItems( actressFile, ACTRESSES_MARKER, ACTRESS_SKIPS,
+                checkpoint );
         return result;
     }
 
-    private String parseActorItems( BufferedReader fileReader )
+    private String parseActorItems( final String file, final String list,
+        final int skips, final ImportCheckpoint checkpoint )
         throws IOException
     {
-        String line = fileReader.readLine();
-        String currentActor = null;
-        final List<ActorData> buffer = new LinkedList<ActorData>();
-        final List<RoleData> movies = new ArrayList<RoleData>();
-        int movieCount = 0;
-        int actorCount = 0;
-        while ( line != null )
+        if ( checkpoint.isDone( list ) )
         {
-            // get rid of blank lines
-            if ( "".equals( line ) )
+            progress.skipped( list );
+            return "already imported.";
+        }
+        final long start = checkpoint.getPosition( list );
+        final ListReader fileReader = getFileReader( file, list, skips,
+            progress );
+        skipLines( fileReader, start );
+        long position = start;
+        final ActorBatch batch = new ActorBatch( checkpoint );
+        final ActorCollector collector = new ActorCollector();
+        while ( fileReader.next() )
+        {
+            final ActorData actor = collector.addLine( fileReader.getBytes(),
+                fileReader.getStart(), fileReader.getEnd() );
+            if ( actor != null )
             {
-                line = fileReader.readLine();
+                // the completed actor ended with the previous line
+                checkpoint.setPosition( list, position );
+                batch.add( actor );
+            }
+            position++;
+        }
+        fileReader.close();
+        final ActorData lastActor = collector.finish();
+        if ( lastActor != null )
+        {
+            checkpoint.setPosition( list, position );
+            batch.add( lastActor );
+        }
+        checkpoint.setDone( list );
+        batch.close();
+        return collector.getSummary() + resumedAt( start );
+    }
+
+    /**
+     * Returns the end of a parse summary, telling where a resumed import
+     * started.
+     */
+    static String resumedAt( final long start )
+    {
+        return start == 0 ? "." : " (resumed after line " + start + ").";
+    }
+
+    /**
+     * Parse a single line of the movie list, only decoding the title.
+     * @param line
+     *            the buffer holding the line
+     * @param from
+     *            start of the line in the buffer
+     * @param to
+     *            end of the line in the buffer, exclusive
+     * @return the movie, or <code>null</code> if the line does not hold a
+     *         movie we want to import
+     */
+    static MovieData parseMovieLine( final byte[] line, final int from,
+        final int to )
+    {
+        // get rid of blank lines and TV shows
+        if ( from == to
+            || ListTokenizer.indexOf( line, from, to, "(TV)" ) != -1 )
+        {
+            return null;
+        }
+        final int yearSep = ListTokenizer.indexOf( line, from, to, '\t' );
+        if ( yearSep <= from )
+        {
+            return null;
+        }
+        final int titleStart = ListTokenizer.trimStart( line, from, yearSep );
+        final int titleEnd = ListTokenizer.trimEnd( line, titleStart, yearSep );
+        final int yearStart = ListTokenizer.trimStart( line, yearSep, to );
+        final int yearEnd = Math.min( ListTokenizer.trimEnd( line, yearStart,
+            to ), yearStart + 4 );
+        if ( yearStart == yearEnd || line[yearStart] == '?'
+            || ListTokenizer.indexOf( line, titleStart, titleEnd, '{' ) != -1
+            || (titleStart < titleEnd && line[titleStart] == '"') )
+        {
+            return null;
+        }
+        return new MovieData( ListTokenizer.decode( line, titleStart,
+            titleEnd ), ListTokenizer.parseInt( line, yearStart, yearEnd ) );
+    }
+
+    /**
+     * Returns <code>true</code> if a line of the actor list starts the
+     * filmography of a new actor.
+     * @param line
+     *            the buffer holding the line
+     * @param from
+     *            start of the line in the buffer
+     * @param to
+     *            end of the line in the buffer, exclusive
+     * @return <code>true</code> if the line starts with an actor name
+     */
+    static boolean isActorStart( final byte[] line, final int from,
+        final int to )
+    {
+        final int actorSep = ListTokenizer.indexOf( line, from, to, '\t' );
+        return actorSep > from
+            && ListTokenizer.trimStart( line, from, actorSep ) < actorSep;
+    }
+
+    /**
+     * Parse the movie part of an actor list line, only decoding the title
+     * and the character.
+     * @param line
+     *            the buffer holding the line
+     * @param actorSep
+     *            offset of the tab separating the actor name from the title
+     * @param to
+     *            end of the line in the buffer, exclusive
+     * @return the role, or <code>null</code> if the line does not hold a
+     *         movie we want to import
+     */
+    static RoleData parseRoleLine( final byte[] line, final int actorSep,
+        final int to )
+    {
+        final int titleStart = ListTokenizer.trimStart( line, actorSep, to );
+        int titleEnd = ListTokenizer.trimEnd( line, titleStart, to );
+        if ( titleStart == titleEnd || line[titleStart] == '"' )
+        {
+            return null;
+        }
+        // one pass finds the first of every delimiter
+        int characterStart = -1;
+        int characterEnd = -1;
+        int creditStart = -1;
+        int spaces = -1;
+        int questionMarks = 0;
+        for ( int i = titleStart; i < titleEnd; i++ )
+        {
+            final byte b = line[i];
+            if ( !ROLE_DELIMITERS[b & 0xff] )
+            {
+                questionMarks = 0;
                 continue;
             }
-            int actorSep = line.indexOf( '\t' );
-            if ( actorSep >= 0 )
+            switch ( b )
             {
-                String actor = line.substring( 0, actorSep ).trim();
-                if ( !"".equals( actor ) )
-                {
-                    if ( movies.size() > 0 )
+                case '{':
+                    return null;
+                case '?':
+                    if ( ++questionMarks == 4 )
                     {
-                        buffer.add( new ActorData( currentActor, movies
-                            .toArray( new RoleData[movies.size()] ) ) );
-                        actorCount++;
-                        movies.clear();
+                        return null;
                     }
-                    currentActor = actor;
-                }
-                String title = line.substring( actorSep ).trim();
-                if ( title.length() == 0 || title.contains( "{" )
-                    || title.startsWith( "\"" ) || title.contains( "????" ) )
-                {
-                    line = fileReader.readLine();
                     continue;
-                }
-                int characterStart = title.indexOf( '[' );
-                int characterEnd = title.indexOf( ']' );
-                String character = null;
-                if ( characterStart > 0 && characterEnd > characterStart )
-                {
-                    character = title.substring( characterStart + 1,
-                        characterEnd );
-                }
-                int creditStart = title.indexOf( '<' );
-                // int creditEnd = title.indexOf( '>' );
-                // String credit = null;
-                // if ( creditStart > 0 && creditEnd > creditStart )
-                // {
-                // credit = title.substring( creditStart + 1, creditEnd );
-                // }
-                if ( characterStart > 0 )
-                {
-                    title = title.substring( 0, characterStart ).trim();
-                }
-                else if ( creditStart > 0 )
-                {
-                    title = title.substring( 0, creditStart ).trim();
-                }
-                int spaces = title.indexOf( "  " );
-                if ( spaces > 0 )
-                {
-                    if ( title.charAt( spaces - 1 ) == ')'
-                        && title.charAt( spaces + 2 ) == '(' )
+                case '[':
+                    characterStart = characterStart == -1 ? i : characterStart;
+                    break;
+                case ']':
+                    characterEnd = characterEnd == -1 ? i : characterEnd;
+                    break;
+                case '<':
+                    creditStart = creditStart == -1 ? i : creditStart;
+                    break;
+                case ' ':
+                    // the title starts with something else than a space
+                    if ( spaces == -1 && line[i - 1] == ' ' )
                     {
-                        title = title.substring( 0, spaces ).trim();
+                        spaces = i - 1;
                     }
-                }
-                movies.add( new RoleData( title, character ) );
-                movieCount++;
-                if ( movieCount % BUFFER_SIZE == 0 )
+                    break;
+                default:
+                    break;
+            }
+            questionMarks = 0;
+        }
+        String character = null;
+        if ( characterStart > titleStart && characterEnd > characterStart )
+        {
+            character = ListTokenizer.decode( line, characterStart + 1,
+                characterEnd );
+        }
+        if ( characterStart > titleStart )
+        {
+            titleEnd = ListTokenizer
+                .trimEnd( line, titleStart, characterStart );
+        }
+        else if ( creditStart > titleStart )
+        {
+            titleEnd = ListTokenizer.trimEnd( line, titleStart, creditStart );
+        }
+        // a double space after the year starts notes like "(voice)"
+        if ( spaces > titleStart && spaces < titleEnd
+            && line[spaces - 1] == ')' && line[spaces + 2] == '(' )
+        {
+            titleEnd = ListTokenizer.trimEnd( line, titleStart, spaces );
+        }
+        return new RoleData( ListTokenizer.decode( line, titleStart, titleEnd ),
+            character );
+    }
+
+    /**
+     * Buffers parsed items until the {@link CommitPolicy} says the batch is
+     * full, then forwards them to the reader in one call, together with the
+     * checkpoint positions reached by the last item.
+     */
+    abstract class Batch<T>
+    {
+        private final List<T> items = new ArrayList<T>();
+        private final ImportCheckpoint checkpoint;
+        private int itemCount = 0;
+        private long bytes = 0;
+
+        /**
+         * @param checkpoint
+         *            positions passed on with every batch, <code>null</code>
+         *            if the batches can not be resumed
+         */
+        Batch( final ImportCheckpoint checkpoint )
+        {
+            this.checkpoint = checkpoint;
+        }
+
+        void add( final T item )
+        {
+            items.add( item );
+            itemCount += countItems( item );
+            bytes += estimateBytes( item );
+            if ( commitPolicy.isBatchFull( itemCount, bytes ) )
+            {
+                commit();
+            }
+        }
+
+        void commit()
+        {
+            if ( items.isEmpty() )
+            {
+                return;
+            }
+            flush();
+        }
+
+        /**
+         * Commit the remaining items. Unlike {@link #commit()} this also
+         * writes an empty batch, so a list marked as done in the checkpoint
+         * is stored.
+         */
+        void close()
+        {
+            flush();
+        }
+
+        private void flush()
+        {
+            final long start = System.nanoTime();
+            write( items, checkpoint );
+            if ( itemCount > 0 )
+            {
+                commitPolicy.batchCommitted( itemCount, bytes, System
+                    .nanoTime() - start );
+                progress.written( itemCount );
+            }
+            items.clear();
+            itemCount = 0;
+            bytes = 0;
+        }
+
+        abstract int countItems( T item );
+
+        abstract long estimateBytes( T item );
+
+        abstract void write( List<T> batch, ImportCheckpoint checkpoint );
+    }
+
+    class MovieBatch extends Batch<MovieData>
+    {
+        MovieBatch( final ImportCheckpoint checkpoint )
+        {
+            super( checkpoint );
+        }
+
+        @Override
+        int countItems( final MovieData movie )
+        {
+            return 1;
+        }
+
+        @Override
+        long estimateBytes( final MovieData movie )
+        {
+            return ENTITY_BYTES + 2 * movie.getTitle().length();
+        }
+
+        @Override
+        void write( final List<MovieData> batch,
+            final ImportCheckpoint checkpoint )
+        {
+            reader.newMovies( batch, checkpoint );
+        }
+    }
+
+    class ActorBatch extends Batch<ActorData>
+    {
+        ActorBatch( final ImportCheckpoint checkpoint )
+        {
+            super( checkpoint );
+        }
+
+        @Override
+        int countItems( final ActorData actor )
+        {
+            return actor.getMovieRoles().length;
+        }
+
+        @Override
+        long estimateBytes( final ActorData actor )
+        {
+            long bytes = ENTITY_BYTES + 2 * actor.getName().length();
+            for ( RoleData role : actor.getMovieRoles() )
+            {
+                bytes += ROLE_BYTES;
+                if ( role.getRole() != null )
                 {
-                    reader.newActors( buffer );
-                    buffer.clear();
+                    bytes += 2 * role.getRole().length();
                 }
             }
-            line = fileReader.readLine();
+            return bytes;
+        }
+
+        @Override
+        void write( final List<ActorData> batch,
+            final ImportCheckpoint checkpoint )
+        {
+            reader.newActors( batch, checkpoint );
+        }
+    }
+
+    /**
+     * Collects consecutive actor list lines into {@link ActorData}, one
+     * actor at a time.
+     */
+    static final class ActorCollector
+    {
+        private final List<RoleData> movies = new ArrayList<RoleData>();
+        private String currentActor = null;
+        private int movieCount = 0;
+        private int actorCount = 0;
+
+        /**
+         * Add a line of the actor list.
+         * @param line
+         *            the buffer holding the line
+         * @param from
+         *            start of the line in the buffer
+         * @param to
+         *            end of the line in the buffer, exclusive
+         * @return the previous actor if this line started a new one and the
+         *         previous actor had any roles, otherwise <code>null</code>
+         */
+        ActorData addLine( final byte[] line, final int from, final int to )
+        {
+            // get rid of blank lines
+            if ( from == to )
+            {
+                return null;
+            }
+            final int actorSep = ListTokenizer.indexOf( line, from, to, '\t' );
+            if ( actorSep < 0 )
+            {
+                return null;
+            }
+            ActorData completed = null;
+            final int nameStart = ListTokenizer.trimStart( line, from,
+                actorSep );
+            if ( nameStart < actorSep )
+            {
+                completed = finish();
+                currentActor = ListTokenizer.decode( line, nameStart,
+                    ListTokenizer.trimEnd( line, nameStart, actorSep ) );
+            }
+            final RoleData role = parseRoleLine( line, actorSep, to );
+            if ( role != null )
+            {
+                movies.add( role );
+                movieCount++;
+            }
+            return completed;
+        }
+
+        /**
+         * Complete the current actor.
+         * @return the current actor or <code>null</code> if it had no roles
+         */
+        ActorData finish()
+        {
+            if ( movies.isEmpty() )
+            {
+                return null;
+            }
+            final ActorData actor = new ActorData( currentActor, movies
+                .toArray( new RoleData[movies.size()] ) );
+            actorCount++;
+            movies.clear();
+            return actor;
+        }
+
+        int getActorCount()
+        {
+            return actorCount;
+        }
+
+        int getMovieCount()
+        {
+            return movieCount;
+        }
+
+        String getSummary()
+        {
+            return (actorCount + " added including " + movieCount + " characters parsed and injected");
         }
-        reader.newActors( buffer );
-        return (actorCount + " added including " + movieCount + " characters parsed and injected.");
     }
 
     /**
@@ -245,41 +609,69 @@ public class ImdbParser
      *            TODO
      * @param skipLines
      *            TODO
-     * @return a file reader that uncompresses data if needed
+     * @param progress
+     *            counts the bytes and lines read from the list
+     * @return a reader of the lines after the header, that uncompresses
+     *         data if needed
      * @throws IOException
      * @throws FileNotFoundException
      */
-    private BufferedReader getFileReader( final String file, String pattern,
-        int skipLines ) throws IOException, FileNotFoundException
+    static ListReader getFileReader( final String file, String pattern,
+        int skipLines, final ImportProgress progress ) throws IOException,
+        FileNotFoundException
     {
-        BufferedReader fileReader;
+        final ImportProgress.ListProgress listProgress = progress.getList(
+            pattern, file );
+        InputStream input = listProgress.countBytes( new FileInputStream(
+            file ) );
         // support compressed files
         if ( file.endsWith( ".gz" ) )
         {
-            fileReader = new BufferedReader( new InputStreamReader(
-                new GZIPInputStream( new FileInputStream( file ) ) ) );
+            input = new GZIPInputStream( input );
         }
         else if ( file.endsWith( ".zip" ) )
         {
-            fileReader = new BufferedReader( new InputStreamReader(
-                new ZipInputStream( new FileInputStream( file ) ) ) );
-        }
-        else
-        {
-            fileReader = new BufferedReader( new FileReader( file ) );
+            input = new ZipInputStream( input );
         }
+        final ListReader fileReader = new ListReader( input, listProgress );
 
-        String line = "";
-        while ( !pattern.equals( line ) )
+        do
         {
-            line = fileReader.readLine();
+            if ( !fileReader.next() )
+            {
+                fileReader.close();
+                throw new IOException( "No " + pattern + " in " + file );
+            }
         }
+        while ( !fileReader.isLine( pattern ) );
         for ( int i = 0; i < skipLines; i++ )
         {
-            line = fileReader.readLine();
+            fileReader.next();
         }
 
         return fileReader;
     }
 
+    /**
+     * Skip the lines an earlier import has committed. Compressed files can
+     * not seek, so the lines are read and dropped.
+     * @param fileReader
+     *            reader positioned after the list header
+     * @param lines
+     *            number of lines to skip
+     * @throws IOException
+     *             if the file ends before that many lines
+     */
+    static void skipLines( final ListReader fileReader, final long lines )
+        throws IOException
+    {
+        for ( long i = 0; i < lines; i++ )
+        {
+            if ( !fileReader.next() )
+            {
+                throw new IOException( "List ended before checkpoint at line "
+                    + lines );
+            }
+        }
+    }
 }
@@ -30,14 +30,23 @@ public interface ImdbReader
      * <code>year</code> from a {@link MovieData} list.
      * Every movie will be indexed.
      * @param movieList movies to create and index
+     * @param checkpoint positions to store together with the movies
      */
-    void newMovies( List<MovieData> movieList );
+    void newMovies( List<MovieData> movieList, ImportCheckpoint checkpoint );
 
     /**
      * Creates new actors specifying what movies the actors acted in
      * from a {@link ActorData} list.
      * Every actor will be indexed.
      * @param actorList actors to create and index
+     * @param checkpoint positions to store together with the actors
      */
-    void newActors( List<ActorData> actorList );
+    void newActors( List<ActorData> actorList, ImportCheckpoint checkpoint );
+
+    /**
+     * Returns the checkpoint stored with the last batch, or an empty one if
+     * nothing has been imported yet.
+     * @return where to resume the import
+     */
+    ImportCheckpoint getCheckpoint();
 }
@@ -18,42 +18,413 @@
  */
 package org.neo4j.examples.imdb.parser;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.neo4j.examples.imdb.domain.Actor;
+import org.neo4j.examples.imdb.domain.ImdbSearchEngine;
 import org.neo4j.examples.imdb.domain.ImdbService;
 import org.neo4j.examples.imdb.domain.Movie;
+import org.neo4j.examples.imdb.domain.Role;
+import org.neo4j.examples.imdb.util.LongLongMap;
+import org.neo4j.examples.imdb.util.StringIdMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
-class ImdbReaderImpl implements ImdbReader
+class ImdbReaderImpl implements DeltaImdbReader
 {
+    // generation of the stored manifest the graph matches, 0 if none
+    private static final String MANIFEST_GENERATION = "delta.manifest";
+
     @Autowired
     private ImdbService imdbService;
+    @Autowired
+    private ImdbSearchEngine searchEngine;
+
+    // movie title to node id of the movies created by this reader, so roles
+    // can be connected without an index lookup per role
+    private final StringIdMap movieIds = new StringIdMap();
+    // true if every movie in the graph is in movieIds; not the case when
+    // the movie import was resumed after a restart
+    private boolean movieIdsComplete = false;
+    // set when a commit of a batch failed, movieIds may then hold rolled
+    // back ids
+    private volatile boolean rolledBack = false;
+    // set on the thread running a batch until its transaction ends
+    private final ThreadLocal<Boolean> inBatch = new ThreadLocal<Boolean>();
+    private File manifestFile = null;
+    private GraphDatabaseService graphDbService;
+    private final TransactionEventHandler<Void> rollbackHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            inBatch.remove();
+        }
+
+        @Override
+        public void afterRollback( final TransactionData data,
+            final Void state )
+        {
+            // only the batches of this reader, not other transactions
+            if ( inBatch.get() != null )
+            {
+                inBatch.remove();
+                rolledBack = true;
+            }
+        }
+    };
+
+    @Autowired
+    public void setGraphDbService( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( rollbackHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( rollbackHandler );
+    }
+
+    /**
+     * Set the file the delta import keeps its manifest in. Without it, every
+     * delta import builds the manifest from the graph.
+     * @param manifestFile
+     *            name of the manifest file
+     */
+    public void setManifestFile( final String manifestFile )
+    {
+        this.manifestFile = new File( manifestFile );
+    }
 
     @Override
     @Transactional
-    public void newActors( final List<ActorData> actorList )
+    public void newActors( final List<ActorData> actorList,
+        final ImportCheckpoint checkpoint )
     {
+        startBatch();
         for ( ActorData actorData : actorList )
         {
             newActor( actorData.getName(), actorData.getMovieRoles() );
         }
+        searchEngine.flushIndexCounts();
+        saveProgress( checkpoint );
     }
 
     @Override
     @Transactional
-    public void newMovies( final List<MovieData> movieList )
+    public void newMovies( final List<MovieData> movieList,
+        final ImportCheckpoint checkpoint )
+    {
+        startBatch();
+        try
+        {
+            for ( MovieData movieData : movieList )
+            {
+                newMovie( movieData.getTitle(), movieData.getYear() );
+            }
+            searchEngine.flushIndexCounts();
+            saveProgress( checkpoint );
+        }
+        catch ( RuntimeException e )
+        {
+            // the map now holds ids that will be rolled back
+            inBatch.remove();
+            forgetMovieIds();
+            throw e;
+        }
+    }
+
+    /**
+     * Start the transaction of a batch. Word counts left on this thread by
+     * the indexing of an earlier batch are from one that failed before it
+     * could commit.
+     */
+    private void startBatch()
+    {
+        inBatch.set( Boolean.TRUE );
+        searchEngine.discardIndexCounts();
+        dropRolledBackIds();
+    }
+
+    /**
+     * Forget the movie ids if a commit failed since they were added; a
+     * failure inside the methods above is handled where it is thrown.
+     */
+    private void dropRolledBackIds()
+    {
+        if ( rolledBack )
+        {
+            rolledBack = false;
+            forgetMovieIds();
+        }
+    }
+
+    private void forgetMovieIds()
+    {
+        movieIds.clear();
+        movieIdsComplete = false;
+    }
+
+    private void saveProgress( final ImportCheckpoint checkpoint )
+    {
+        final Map<String,Long> progress = new HashMap<String,Long>(
+            checkpoint.getPositions() );
+        // the graph changes behind the back of the delta manifest
+        progress.put( MANIFEST_GENERATION, 0L );
+        imdbService.saveImportProgress( progress );
+    }
+
+    @Override
+    public ImportCheckpoint getCheckpoint()
+    {
+        dropRolledBackIds();
+        final ImportCheckpoint checkpoint = new ImportCheckpoint( imdbService
+            .getImportProgress() );
+        final long moviePosition = checkpoint
+            .getPosition( ImdbParser.MOVIES_MARKER );
+        if ( moviePosition == 0 )
+        {
+            movieIds.clear();
+            movieIdsComplete = true;
+        }
+        else if ( moviePosition != ImportCheckpoint.DONE )
+        {
+            // a resumed movie import; ids of an earlier run in this process
+            // may be from batches that were not committed
+            forgetMovieIds();
+        }
+        return checkpoint;
+    }
+
+    @Override
+    public ImportManifest getManifest()
+    {
+        // the delta import finds movies through the manifest
+        forgetMovieIds();
+        final Long generation = imdbService.getImportProgress().get(
+            MANIFEST_GENERATION );
+        ImportManifest manifest = null;
+        if ( manifestFile != null && generation != null && generation != 0 )
+        {
+            try
+            {
+                manifest = ImportManifest.read( manifestFile );
+            }
+            catch ( IOException e )
+            {
+                // missing or damaged, build it from the graph instead
+            }
+            if ( manifest != null && manifest.getGeneration() != generation )
+            {
+                manifest = null;
+            }
+        }
+        if ( manifest == null )
+        {
+            manifest = buildManifest();
+        }
+        imdbService.saveImportProgress( Collections.singletonMap(
+            MANIFEST_GENERATION, 0L ) );
+        return manifest;
+    }
+
+    private ImportManifest buildManifest()
     {
+        final ImportManifest manifest = new ImportManifest();
+        for ( Movie movie : imdbService.getAllMovies() )
+        {
+            manifest.addMovie( movie.getTitle(), movie.getYear(), movie
+                .getId() );
+        }
+        for ( Actor actor : imdbService.getAllActors() )
+        {
+            long roles = 0;
+            for ( Role role : actor.getRoles() )
+            {
+                roles = ImportManifest.combine( roles, ImportManifest
+                    .roleDigest( role.getMovie().getTitle(), role.getName() ) );
+            }
+            manifest.addActor( actor.getName(), roles, actor.getId() );
+        }
+        return manifest;
+    }
+
+    @Override
+    @Transactional
+    public void updateMovies( final List<MovieData> movieList,
+        final ImportManifest manifest )
+    {
+        startBatch();
         for ( MovieData movieData : movieList )
         {
-            newMovie( movieData.getTitle(), movieData.getYear() );
+            final long key = ImportManifest.key( movieData.getTitle() );
+            final long movieId = manifest.getMovieId( key );
+            final Movie movie;
+            if ( movieId == LongLongMap.MISSING )
+            {
+                movie = imdbService.createMovie( movieData.getTitle(),
+                    movieData.getYear() );
+            }
+            else
+            {
+                movie = imdbService.getMovieById( movieId );
+                movie.setYear( movieData.getYear() );
+            }
+            manifest.putMovie( key, ImportManifest.movieDigest( movieData
+                .getTitle(), movieData.getYear() ), movie.getId() );
+        }
+        searchEngine.flushIndexCounts();
+    }
+
+    @Override
+    @Transactional
+    public void removeMovies( final List<Long> keys,
+        final ImportManifest manifest )
+    {
+        startBatch();
+        for ( long key : keys )
+        {
+            imdbService.deleteMovie( imdbService.getMovieById( manifest
+                .getMovieId( key ) ) );
+            manifest.removeMovie( key );
+        }
+        searchEngine.flushIndexCounts();
+    }
+
+    @Override
+    @Transactional
+    public void updateActors( final List<ActorData> actorList,
+        final ImportManifest manifest )
+    {
+        startBatch();
+        for ( ActorData actorData : actorList )
+        {
+            final List<Actor> actors = imdbService.getExactActors( actorData
+                .getName() );
+            if ( actors.isEmpty() )
+            {
+                actors.add( imdbService.createActor( actorData.getName() ) );
+            }
+            final long roles = updateRoles( actors, actorData.getMovieRoles(),
+                manifest );
+            manifest.putActor( ImportManifest.key( actorData.getName() ),
+                ImportManifest.actorDigest( actorData.getName(), roles ),
+                actors.get( 0 ).getId() );
         }
+        searchEngine.flushIndexCounts();
+    }
+
+    /**
+     * Make the roles of all actors of a name match the given roles. Roles
+     * that are still wanted are kept, missing ones are added to the first
+     * actor.
+     * @return the combined digest of the roles
+     */
+    private long updateRoles( final List<Actor> actors,
+        final RoleData[] movieRoles, final ImportManifest manifest )
+    {
+        final Map<String,List<Role>> existing = new HashMap<String,List<Role>>();
+        for ( Actor actor : actors )
+        {
+            for ( Role role : actor.getRoles() )
+            {
+                final String roleKey = roleKey( role.getMovie().getId(), role
+                    .getName() );
+                List<Role> sameRoles = existing.get( roleKey );
+                if ( sameRoles == null )
+                {
+                    sameRoles = new LinkedList<Role>();
+                    existing.put( roleKey, sameRoles );
+                }
+                sameRoles.add( role );
+            }
+        }
+        long roles = 0;
+        for ( RoleData movieRole : movieRoles )
+        {
+            final long movieId = manifest.getMovieId( ImportManifest
+                .key( movieRole.getTitle() ) );
+            if ( movieId == LongLongMap.MISSING )
+            {
+                continue;
+            }
+            roles = ImportManifest.combine( roles, ImportManifest.roleDigest(
+                movieRole.getTitle(), movieRole.getRole() ) );
+            final List<Role> sameRoles = existing.get( roleKey( movieId,
+                movieRole.getRole() ) );
+            if ( sameRoles != null && !sameRoles.isEmpty() )
+            {
+                sameRoles.remove( 0 );
+            }
+            else
+            {
+                imdbService.createRole( actors.get( 0 ), imdbService
+                    .getMovieById( movieId ), movieRole.getRole() );
+            }
+        }
+        for ( List<Role> unwanted : existing.values() )
+        {
+            for ( Role role : unwanted )
+            {
+                imdbService.deleteRole( role );
+            }
+        }
+        return roles;
+    }
+
+    private static String roleKey( final long movieId, final String role )
+    {
+        return movieId + "\t" + (role == null ? "" : role);
+    }
+
+    @Override
+    @Transactional
+    public void removeActors( final List<Long> keys,
+        final ImportManifest manifest )
+    {
+        startBatch();
+        for ( long key : keys )
+        {
+            final String name = imdbService.getActorById(
+                manifest.getActorId( key ) ).getName();
+            for ( Actor actor : imdbService.getExactActors( name ) )
+            {
+                imdbService.deleteActor( actor );
+            }
+            manifest.removeActor( key );
+        }
+        searchEngine.flushIndexCounts();
+    }
+
+    @Override
+    public void saveManifest( final ImportManifest manifest )
+        throws IOException
+    {
+        // never 0, which marks a graph without a valid manifest
+        final long generation = System.currentTimeMillis();
+        manifest.setGeneration( generation );
+        if ( manifestFile != null )
+        {
+            manifest.write( manifestFile );
+        }
+        imdbService.saveImportProgress( Collections.singletonMap(
+            MANIFEST_GENERATION, generation ) );
     }
 
     private void newMovie( final String title, final int year )
     {
-        imdbService.createMovie( title, year );
+        final Movie movie = imdbService.createMovie( title, year );
+        movieIds.add( title, movie.getId() );
     }
 
     private void newActor( final String name, final RoleData[] movieRoles )
@@ -61,12 +432,26 @@ class ImdbReaderImpl implements ImdbReader
         final Actor actor = imdbService.createActor( name );
         for ( RoleData movieRole : movieRoles )
         {
-            final Movie movie = imdbService
-                .getExactMovie( movieRole.getTitle() );
+            final Movie movie = findMovie( movieRole.getTitle() );
             if ( movie != null )
             {
                 imdbService.createRole( actor, movie, movieRole.getRole() );
             }
         }
     }
+
+    private Movie findMovie( final String title )
+    {
+        final long movieId = movieIds.get( title );
+        if ( movieId != LongLongMap.MISSING )
+        {
+            return imdbService.getMovieById( movieId );
+        }
+        if ( movieIdsComplete )
+        {
+            return null;
+        }
+        // some movies were not loaded by this reader
+        return imdbService.getExactMovie( title );
+    }
 }
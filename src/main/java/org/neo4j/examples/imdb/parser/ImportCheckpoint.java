@@ -0,0 +1,94 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How far an import has come: for every list file, the number of lines after
+ * the list header whose data has been committed. A checkpoint is stored in
+ * the same transaction as the batch it describes, so after a crash the
+ * import can continue right after the last committed batch.
+ */
+public class ImportCheckpoint
+{
+    /**
+     * Position of a list that has been imported completely.
+     */
+    public static final long DONE = -1;
+
+    private final Map<String,Long> positions;
+
+    /**
+     * Create a checkpoint for an import that has not started.
+     */
+    public ImportCheckpoint()
+    {
+        this.positions = new HashMap<String,Long>();
+    }
+
+    /**
+     * Create a checkpoint from stored positions.
+     * @param positions
+     *            committed line count or {@link #DONE}, by list
+     */
+    public ImportCheckpoint( final Map<String,Long> positions )
+    {
+        this.positions = new HashMap<String,Long>( positions );
+    }
+
+    /**
+     * Returns the number of committed lines of a list.
+     * @param list
+     *            the list, identified by its header marker
+     * @return committed lines, or {@link #DONE}
+     */
+    public synchronized long getPosition( final String list )
+    {
+        final Long position = positions.get( list );
+        return position == null ? 0 : position;
+    }
+
+    public boolean isDone( final String list )
+    {
+        return getPosition( list ) == DONE;
+    }
+
+    synchronized void setPosition( final String list, final long position )
+    {
+        positions.put( list, position );
+    }
+
+    void setDone( final String list )
+    {
+        setPosition( list, DONE );
+    }
+
+    /**
+     * Returns a copy of the positions, to be stored with a batch.
+     * @return committed line count or {@link #DONE}, by list
+     */
+    public synchronized Map<String,Long> getPositions()
+    {
+        return Collections.unmodifiableMap( new HashMap<String,Long>(
+            positions ) );
+    }
+}
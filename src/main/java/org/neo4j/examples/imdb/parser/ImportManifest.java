@@ -0,0 +1,353 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.neo4j.examples.imdb.util.LongLongMap;
+import org.neo4j.examples.imdb.util.StringIdMap;
+
+/**
+ * A compact summary of the movies and actors in the graph, used by
+ * {@link DeltaImdbParser} to find what changed between two releases of the
+ * imdb lists without reading the graph. Every movie title and actor name is
+ * kept as a 64 bit hash, mapped to a digest of its content and to its node
+ * id. The digest of an actor covers the titles and role names of all its
+ * roles, in any order; actors of the same name in the actor and the actress
+ * list share one entry. Not thread safe.
+ */
+public class ImportManifest
+{
+    private static final int FORMAT = 1;
+    // digests are kept positive so they never collide with MISSING
+    private static final long DIGEST_MASK = Long.MAX_VALUE;
+
+    private final LongLongMap movieDigests;
+    private final LongLongMap movieIds;
+    private final LongLongMap actorDigests;
+    private final LongLongMap actorIds;
+    private long generation = 0;
+
+    public ImportManifest()
+    {
+        this( 0, 0 );
+    }
+
+    private ImportManifest( final int movies, final int actors )
+    {
+        this.movieDigests = new LongLongMap( movies );
+        this.movieIds = new LongLongMap( movies );
+        this.actorDigests = new LongLongMap( actors );
+        this.actorIds = new LongLongMap( actors );
+    }
+
+    /**
+     * Returns the key of a movie title or an actor name.
+     * @param name
+     *            title or name
+     * @return the key
+     */
+    public static long key( final String name )
+    {
+        return StringIdMap.hash( name );
+    }
+
+    /**
+     * Returns the digest of the content of a movie.
+     * @param title
+     *            movie title
+     * @param year
+     *            year of release
+     * @return the digest
+     */
+    public static long movieDigest( final String title, final int year )
+    {
+        return mix( key( title ) + year ) & DIGEST_MASK;
+    }
+
+    /**
+     * Returns the digest of one role; the digests of the roles of an actor
+     * are added up with {@link #combine(long, long)}.
+     * @param title
+     *            title of the movie
+     * @param role
+     *            name of the role, may be <code>null</code>
+     * @return the digest
+     */
+    public static long roleDigest( final String title, final String role )
+    {
+        return mix( key( title ) * 31 + key( role == null ? "" : role ) )
+            & DIGEST_MASK;
+    }
+
+    /**
+     * Combine two digests. The result does not depend on the order in which
+     * digests are combined.
+     */
+    public static long combine( final long digest, final long other )
+    {
+        return (digest + other) & DIGEST_MASK;
+    }
+
+    // the finalizer of MurmurHash3, spreads every input bit over the result
+    private static long mix( long value )
+    {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Add a movie unless its title is already in the manifest; the first
+     * movie of a title wins, just like the first hit of an index lookup.
+     * @param title
+     *            movie title
+     * @param year
+     *            year of release
+     * @param nodeId
+     *            node id of the movie, or {@link LongLongMap#MISSING}
+     * @return <code>true</code> if the movie was added
+     */
+    public boolean addMovie( final String title, final int year,
+        final long nodeId )
+    {
+        final long key = key( title );
+        if ( movieDigests.containsKey( key ) )
+        {
+            return false;
+        }
+        putMovie( key, movieDigest( title, year ), nodeId );
+        return true;
+    }
+
+    /**
+     * Add the roles of an actor. If the name is already in the manifest the
+     * roles are added to that entry.
+     * @param name
+     *            actor name
+     * @param roles
+     *            the combined digests of the roles
+     * @param nodeId
+     *            node id of the actor, or {@link LongLongMap#MISSING}
+     */
+    public void addActor( final String name, final long roles,
+        final long nodeId )
+    {
+        final long key = key( name );
+        final long digest = actorDigests.get( key );
+        if ( digest == LongLongMap.MISSING )
+        {
+            putActor( key, actorDigest( name, roles ), nodeId );
+        }
+        else
+        {
+            actorDigests.put( key, combine( digest, roles ) );
+        }
+    }
+
+    /**
+     * Returns the digest an actor with this name and roles would have.
+     * @param name
+     *            actor name
+     * @param roles
+     *            the combined digests of all roles of the name
+     * @return the digest
+     */
+    public static long actorDigest( final String name, final long roles )
+    {
+        return combine( mix( key( name ) ) & DIGEST_MASK, roles );
+    }
+
+    public long getMovieDigest( final long key )
+    {
+        return movieDigests.get( key );
+    }
+
+    public long getMovieId( final long key )
+    {
+        return movieIds.get( key );
+    }
+
+    public void putMovie( final long key, final long digest, final long nodeId )
+    {
+        movieDigests.put( key, digest );
+        if ( nodeId != LongLongMap.MISSING )
+        {
+            movieIds.put( key, nodeId );
+        }
+    }
+
+    public void removeMovie( final long key )
+    {
+        movieDigests.remove( key );
+        movieIds.remove( key );
+    }
+
+    public long[] getMovieKeys()
+    {
+        return movieDigests.keys();
+    }
+
+    public int getMovieCount()
+    {
+        return movieDigests.size();
+    }
+
+    public long getActorDigest( final long key )
+    {
+        return actorDigests.get( key );
+    }
+
+    public long getActorId( final long key )
+    {
+        return actorIds.get( key );
+    }
+
+    public void putActor( final long key, final long digest, final long nodeId )
+    {
+        actorDigests.put( key, digest );
+        if ( nodeId != LongLongMap.MISSING )
+        {
+            actorIds.put( key, nodeId );
+        }
+    }
+
+    public void removeActor( final long key )
+    {
+        actorDigests.remove( key );
+        actorIds.remove( key );
+    }
+
+    public long[] getActorKeys()
+    {
+        return actorDigests.keys();
+    }
+
+    public int getActorCount()
+    {
+        return actorDigests.size();
+    }
+
+    /**
+     * Returns the generation of the manifest. A stored manifest is only
+     * valid for a graph that was marked with the same generation.
+     * @return the generation, 0 if not yet saved
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    public void setGeneration( final long generation )
+    {
+        this.generation = generation;
+    }
+
+    /**
+     * Write the manifest to a file. The file is replaced only after the
+     * manifest has been written completely.
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if unable to write the file
+     */
+    public void write( final File file ) throws IOException
+    {
+        final File tempFile = new File( file.getPath() + ".tmp" );
+        final DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+        try
+        {
+            out.writeInt( FORMAT );
+            out.writeLong( generation );
+            writeEntries( out, movieDigests, movieIds );
+            writeEntries( out, actorDigests, actorIds );
+        }
+        finally
+        {
+            out.close();
+        }
+        if ( file.exists() && !file.delete() || !tempFile.renameTo( file ) )
+        {
+            throw new IOException( "Unable to replace " + file );
+        }
+    }
+
+    private static void writeEntries( final DataOutputStream out,
+        final LongLongMap digests, final LongLongMap ids ) throws IOException
+    {
+        final long[] keys = digests.keys();
+        out.writeInt( keys.length );
+        for ( long key : keys )
+        {
+            out.writeLong( key );
+            out.writeLong( digests.get( key ) );
+            out.writeLong( ids.get( key ) );
+        }
+    }
+
+    /**
+     * Read a manifest written by {@link #write(File)}.
+     * @param file
+     *            the file to read
+     * @return the manifest
+     * @throws IOException
+     *             if the file is missing, damaged or of another format
+     */
+    public static ImportManifest read( final File file ) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(
+            new BufferedInputStream( new FileInputStream( file ) ) );
+        try
+        {
+            if ( in.readInt() != FORMAT )
+            {
+                throw new IOException( "Unknown manifest format in " + file );
+            }
+            final long generation = in.readLong();
+            final int movies = in.readInt();
+            final ImportManifest manifest = new ImportManifest( movies, 0 );
+            for ( int i = 0; i < movies; i++ )
+            {
+                manifest.putMovie( in.readLong(), in.readLong(), in.readLong() );
+            }
+            final int actors = in.readInt();
+            for ( int i = 0; i < actors; i++ )
+            {
+                manifest.putActor( in.readLong(), in.readLong(), in.readLong() );
+            }
+            manifest.setGeneration( generation );
+            return manifest;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of an import, read while the parser runs. Every list has the
+ * lines read from it and the bytes read from its file, before decompression,
+ * so the share of the files read gives an estimate of the time left. The
+ * counters are written by the parser threads and may be read from any
+ * thread.
+ */
+public class ImportProgress
+{
+    private final long started = System.nanoTime();
+    private final AtomicLong entitiesWritten = new AtomicLong();
+    // guarded by itself
+    private final List<ListProgress> lists = new ArrayList<ListProgress>();
+    private volatile String phase = null;
+
+    /**
+     * Announce the lists of an import before it starts, so the estimate of
+     * the time left covers the lists that are not opened yet.
+     * @param movieFile
+     *            name of the movie list file
+     * @param actorFile
+     *            name of the actor list file
+     * @param actressFile
+     *            name of the actress list file
+     */
+    public void expect( final String movieFile, final String actorFile,
+        final String actressFile )
+    {
+        getList( ImdbParser.MOVIES_MARKER, movieFile );
+        getList( ImdbParser.ACTOR_MARKER, actorFile );
+        getList( ImdbParser.ACTRESSES_MARKER, actressFile );
+    }
+
+    /**
+     * Set the phase that follows the lists, like the setup of the reference
+     * relationship.
+     * @param phase
+     *            the name of the phase
+     */
+    public void setPhase( final String phase )
+    {
+        this.phase = phase;
+    }
+
+    /**
+     * Returns the set phase, or the name of the first list that is not read
+     * to the end.
+     * @return the name of the current phase, <code>null</code> before any
+     *         list is opened
+     */
+    public String getPhase()
+    {
+        if ( phase != null )
+        {
+            return phase;
+        }
+        for ( ListProgress list : getLists() )
+        {
+            if ( !list.isDone() )
+            {
+                return list.getName();
+            }
+        }
+        return null;
+    }
+
+    public List<ListProgress> getLists()
+    {
+        synchronized ( lists )
+        {
+            return new ArrayList<ListProgress>( lists );
+        }
+    }
+
+    public long getLinesRead()
+    {
+        long linesRead = 0;
+        for ( ListProgress list : getLists() )
+        {
+            linesRead += list.getLinesRead();
+        }
+        return linesRead;
+    }
+
+    /**
+     * Returns the number of items committed, where an actor counts with its
+     * roles.
+     * @return entities written
+     */
+    public long getEntitiesWritten()
+    {
+        return entitiesWritten.get();
+    }
+
+    public double getElapsedSeconds()
+    {
+        return (System.nanoTime() - started) / (double) TimeUnit.SECONDS
+            .toNanos( 1 );
+    }
+
+    public double getEntitiesPerSecond()
+    {
+        return getEntitiesWritten() / getElapsedSeconds();
+    }
+
+    /**
+     * Returns the estimated seconds left, from the rate the files have been
+     * read at so far. Lists skipped as already imported do not count.
+     * @return seconds left, or <code>-1</code> before anything is read
+     */
+    public long getSecondsLeft()
+    {
+        long bytesLeft = 0;
+        long bytesRead = 0;
+        for ( ListProgress list : getLists() )
+        {
+            if ( !list.isDone() )
+            {
+                bytesLeft += Math.max( list.getBytes() - list.getBytesRead(),
+                    0 );
+            }
+            bytesRead += list.getBytesRead();
+        }
+        if ( bytesRead == 0 )
+        {
+            return -1;
+        }
+        return (long) (bytesLeft * getElapsedSeconds() / bytesRead);
+    }
+
+    void written( final int items )
+    {
+        entitiesWritten.addAndGet( items );
+    }
+
+    /**
+     * Mark a list as done without reading it, when an earlier import has
+     * committed all of it.
+     */
+    void skipped( final String list )
+    {
+        synchronized ( lists )
+        {
+            for ( ListProgress listProgress : lists )
+            {
+                if ( listProgress.list.equals( list ) )
+                {
+                    listProgress.done = true;
+                }
+            }
+        }
+    }
+
+    ListProgress getList( final String list, final String file )
+    {
+        synchronized ( lists )
+        {
+            for ( ListProgress listProgress : lists )
+            {
+                if ( listProgress.list.equals( list ) )
+                {
+                    return listProgress;
+                }
+            }
+            final ListProgress listProgress = new ListProgress( list,
+                new File( file ).length() );
+            lists.add( listProgress );
+            return listProgress;
+        }
+    }
+
+    /**
+     * The progress of reading one list, which may be read more than once.
+     */
+    public static final class ListProgress
+    {
+        private final String list;
+        private final long fileBytes;
+        private final AtomicInteger opened = new AtomicInteger();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong linesRead = new AtomicLong();
+        private volatile int passes = 1;
+        private volatile boolean done = false;
+
+        ListProgress( final String list, final long fileBytes )
+        {
+            this.list = list;
+            this.fileBytes = fileBytes;
+        }
+
+        /**
+         * Returns the name of the list as a phase of the import, like
+         * <code>actresses</code>.
+         * @return the name of the list
+         */
+        public String getName()
+        {
+            if ( ImdbParser.MOVIES_MARKER.equals( list ) )
+            {
+                return "movies";
+            }
+            if ( ImdbParser.ACTOR_MARKER.equals( list ) )
+            {
+                return "actors";
+            }
+            if ( ImdbParser.ACTRESSES_MARKER.equals( list ) )
+            {
+                return "actresses";
+            }
+            return list;
+        }
+
+        /**
+         * Returns the size of the list file, compressed if the file is,
+         * times the number of times it is read.
+         * @return bytes to read
+         */
+        public long getBytes()
+        {
+            return fileBytes * passes;
+        }
+
+        /**
+         * Returns the bytes read from the list file in all passes so far,
+         * before decompression.
+         * @return bytes read
+         */
+        public long getBytesRead()
+        {
+            return bytesRead.get();
+        }
+
+        public long getLinesRead()
+        {
+            return linesRead.get();
+        }
+
+        public boolean isDone()
+        {
+            return done;
+        }
+
+        /**
+         * Expect the list to be read <code>passes</code> times.
+         */
+        void setPasses( final int passes )
+        {
+            this.passes = passes;
+        }
+
+        /**
+         * Count the bytes read from a list file, as a new pass.
+         */
+        InputStream countBytes( final InputStream file )
+        {
+            opened.incrementAndGet();
+            return new FilterInputStream( file )
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    final int b = super.read();
+                    if ( b != -1 )
+                    {
+                        bytesRead.incrementAndGet();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read( final byte[] buffer, final int offset,
+                    final int length ) throws IOException
+                {
+                    final int count = super.read( buffer, offset, length );
+                    if ( count > 0 )
+                    {
+                        bytesRead.addAndGet( count );
+                    }
+                    return count;
+                }
+
+                @Override
+                public long skip( final long count ) throws IOException
+                {
+                    final long skipped = super.skip( count );
+                    bytesRead.addAndGet( skipped );
+                    return skipped;
+                }
+            };
+        }
+
+        /**
+         * Count lines found by the reader of the decompressed list.
+         */
+        void linesRead( final long lines )
+        {
+            linesRead.addAndGet( lines );
+        }
+
+        /**
+         * The reader found the end of the list, which is done if this was
+         * the last pass.
+         */
+        void ended()
+        {
+            if ( opened.get() >= passes )
+            {
+                done = true;
+            }
+        }
+    }
+}
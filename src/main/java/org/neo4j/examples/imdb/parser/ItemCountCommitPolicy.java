@@ -0,0 +1,53 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+/**
+ * Commits after a fixed number of items.
+ */
+public class ItemCountCommitPolicy implements CommitPolicy
+{
+    private final int batchSize;
+
+    /**
+     * Create a policy committing every <code>batchSize</code> items.
+     * @param batchSize
+     *            number of items per commit
+     */
+    public ItemCountCommitPolicy( final int batchSize )
+    {
+        if ( batchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Batch size must be positive" );
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public boolean isBatchFull( final int items, final long bytes )
+    {
+        return items >= batchSize;
+    }
+
+    @Override
+    public void batchCommitted( final int items, final long bytes,
+        final long nanos )
+    {
+    }
+}
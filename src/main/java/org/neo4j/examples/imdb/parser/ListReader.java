@@ -0,0 +1,203 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the lines of a list file as windows on a byte buffer, so a line is
+ * never copied or decoded as a whole. After {@link #next()} the line is
+ * <code>getBytes()[getStart()]</code> to <code>getBytes()[getEnd()]</code>
+ * exclusive, without its line terminator. The window is only valid until
+ * the next call to {@link #next()}.
+ */
+final class ListReader
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final ImportProgress.ListProgress progress;
+    // lines returned since they were last reported to the progress
+    private long lines = 0;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    // the unread bytes are buffer[position] to buffer[limit]
+    private int position = 0;
+    private int limit = 0;
+    private boolean ended = false;
+    private int start = 0;
+    private int end = 0;
+
+    ListReader( final InputStream input )
+    {
+        this( input, null );
+    }
+
+    /**
+     * Create a reader that reports the lines it reads, every time it fills
+     * its buffer and at the end, so the bytes are only scanned once.
+     * @param input
+     *            the list
+     * @param progress
+     *            the progress of the list, or <code>null</code>
+     */
+    ListReader( final InputStream input,
+        final ImportProgress.ListProgress progress )
+    {
+        this.input = input;
+        this.progress = progress;
+    }
+
+    /**
+     * Move to the next line.
+     * @return <code>false</code> at the end of the file
+     * @throws IOException
+     *             if unable to read the file
+     */
+    boolean next() throws IOException
+    {
+        int scan = position;
+        while ( true )
+        {
+            for ( int i = scan; i < limit; i++ )
+            {
+                if ( buffer[i] == '\n' )
+                {
+                    setLine( i );
+                    position = i + 1;
+                    lines++;
+                    return true;
+                }
+            }
+            if ( ended )
+            {
+                if ( position == limit )
+                {
+                    reportLines();
+                    return false;
+                }
+                setLine( limit );
+                position = limit;
+                lines++;
+                return true;
+            }
+            scan = limit - position;
+            fill();
+        }
+    }
+
+    byte[] getBytes()
+    {
+        return buffer;
+    }
+
+    int getStart()
+    {
+        return start;
+    }
+
+    int getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * Returns <code>true</code> if the line is <code>text</code>, which must
+     * be ASCII.
+     */
+    boolean isLine( final String text )
+    {
+        if ( end - start != text.length() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( buffer[start + i] != text.charAt( i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void close() throws IOException
+    {
+        reportLines();
+        input.close();
+    }
+
+    /**
+     * The line ends before <code>terminator</code>, and before a carriage
+     * return in front of it.
+     */
+    private void setLine( final int terminator )
+    {
+        start = position;
+        end = terminator;
+        if ( end > start && buffer[end - 1] == '\r' )
+        {
+            end--;
+        }
+    }
+
+    /**
+     * Move the unread bytes to the front of the buffer, growing it if a
+     * line does not fit, and read more after them.
+     */
+    private void fill() throws IOException
+    {
+        final int unread = limit - position;
+        if ( unread == buffer.length )
+        {
+            final byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy( buffer, position, grown, 0, unread );
+            buffer = grown;
+        }
+        else if ( position > 0 )
+        {
+            System.arraycopy( buffer, position, buffer, 0, unread );
+        }
+        position = 0;
+        limit = unread;
+        reportLines();
+        final int count = input.read( buffer, limit, buffer.length - limit );
+        if ( count == -1 )
+        {
+            ended = true;
+            if ( progress != null )
+            {
+                progress.ended();
+            }
+        }
+        else
+        {
+            limit += count;
+        }
+    }
+
+    private void reportLines()
+    {
+        if ( progress != null && lines > 0 )
+        {
+            progress.linesRead( lines );
+            lines = 0;
+        }
+    }
+}
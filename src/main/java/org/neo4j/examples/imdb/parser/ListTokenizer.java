@@ -0,0 +1,149 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Scans the bytes of a list line in place. The imdb lists are ISO-8859-1,
+ * one byte per character, so offsets found in the bytes are character
+ * offsets, and only the parts kept as strings are decoded. Ranges are given
+ * as <code>from</code> inclusive and <code>to</code> exclusive.
+ */
+final class ListTokenizer
+{
+    static final Charset CHARSET = Charset.forName( "ISO-8859-1" );
+
+    private ListTokenizer()
+    {
+    }
+
+    /**
+     * Returns a table with the ASCII <code>chars</code> set, to check a
+     * byte against all of them at once.
+     */
+    static boolean[] byteSet( final String chars )
+    {
+        final boolean[] set = new boolean[256];
+        for ( int i = 0; i < chars.length(); i++ )
+        {
+            set[chars.charAt( i )] = true;
+        }
+        return set;
+    }
+
+    /**
+     * Returns the offset of the first <code>c</code> in the range, or
+     * <code>-1</code>.
+     */
+    static int indexOf( final byte[] bytes, final int from, final int to,
+        final char c )
+    {
+        for ( int i = from; i < to; i++ )
+        {
+            if ( bytes[i] == c )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the offset of the first occurrence of the ASCII
+     * <code>text</code> in the range, or <code>-1</code>.
+     */
+    static int indexOf( final byte[] bytes, final int from, final int to,
+        final String text )
+    {
+        final int last = to - text.length();
+        for ( int i = from; i <= last; i++ )
+        {
+            int matched = 0;
+            while ( matched < text.length()
+                && bytes[i + matched] == text.charAt( matched ) )
+            {
+                matched++;
+            }
+            if ( matched == text.length() )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start of the range without leading white space and
+     * control characters, like {@link String#trim()}.
+     */
+    static int trimStart( final byte[] bytes, final int from, final int to )
+    {
+        int start = from;
+        while ( start < to && (bytes[start] & 0xff) <= ' ' )
+        {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the end of the range without trailing white space and control
+     * characters, like {@link String#trim()}.
+     */
+    static int trimEnd( final byte[] bytes, final int from, final int to )
+    {
+        int end = to;
+        while ( end > from && (bytes[end - 1] & 0xff) <= ' ' )
+        {
+            end--;
+        }
+        return end;
+    }
+
+    static String decode( final byte[] bytes, final int from, final int to )
+    {
+        return new String( bytes, from, to - from, CHARSET );
+    }
+
+    /**
+     * Returns the digits of the range as a number.
+     * @throws NumberFormatException
+     *             if the range is not a number
+     */
+    static int parseInt( final byte[] bytes, final int from, final int to )
+    {
+        int value = 0;
+        for ( int i = from; i < to; i++ )
+        {
+            final int digit = bytes[i] - '0';
+            if ( digit < 0 || digit > 9 )
+            {
+                // let the JDK parse anything unusual, and say what was wrong
+                return Integer.parseInt( decode( bytes, from, to ) );
+            }
+            value = value * 10 + digit;
+        }
+        if ( from == to )
+        {
+            throw new NumberFormatException( "Empty number" );
+        }
+        return value;
+    }
+}
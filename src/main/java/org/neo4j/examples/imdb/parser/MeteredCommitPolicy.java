@@ -0,0 +1,69 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import org.neo4j.examples.imdb.util.Metrics;
+
+/**
+ * Passes the decisions on to another policy and records every committed
+ * batch in the {@link Metrics}: its size, its commit time and the items
+ * committed per second.
+ */
+public class MeteredCommitPolicy implements CommitPolicy
+{
+    private final CommitPolicy policy;
+    private final Metrics metrics;
+
+    public MeteredCommitPolicy( final CommitPolicy policy,
+        final Metrics metrics )
+    {
+        if ( policy == null )
+        {
+            throw new IllegalArgumentException( "Null CommitPolicy" );
+        }
+        if ( metrics == null )
+        {
+            throw new IllegalArgumentException( "Null Metrics" );
+        }
+        this.policy = policy;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean isBatchFull( final int items, final long bytes )
+    {
+        return policy.isBatchFull( items, bytes );
+    }
+
+    @Override
+    public void batchCommitted( final int items, final long bytes,
+        final long nanos )
+    {
+        metrics.increment( "import.batches" );
+        metrics.add( "import.items", items );
+        metrics.record( "import.batch.items", items );
+        metrics.record( "import.batch.micros", nanos / 1000 );
+        if ( nanos > 0 )
+        {
+            metrics.record( "import.batch.itemsPerSecond", items
+                * 1000000000L / nanos );
+        }
+        policy.batchCommitted( items, bytes, nanos );
+    }
+}
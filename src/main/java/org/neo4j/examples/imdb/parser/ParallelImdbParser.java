@@ -0,0 +1,634 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ImdbParser} that runs the parsing as a pipeline. One thread per
+ * file decompresses and splits the file into chunks of lines, a pool of
+ * workers tokenizes the chunks, and the calling thread feeds the results to
+ * the {@link ImdbReader} in file order. The queues between the stages are
+ * bounded, so a slow reader holds back the file readers. The actor and
+ * actress files are read concurrently; their positions share one
+ * {@link ImportCheckpoint}, so both resume where the last batch left them.
+ */
+public class ParallelImdbParser extends ImdbParser
+{
+    private static final int CHUNK_LINES = 1000;
+    // room for the lines of a chunk of a typical list
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long POLL_MILLIS = 10;
+    private final int workers;
+
+    /**
+     * Create a new pipelined Imdb parser.
+     * @param reader
+     *            reader this parser will use to forward events to
+     * @param workers
+     *            number of tokenizing threads
+     */
+    public ParallelImdbParser( final ImdbReader reader, final int workers )
+    {
+        this( reader, workers, new ItemCountCommitPolicy( DEFAULT_BATCH_SIZE ) );
+    }
+
+    /**
+     * Create a new pipelined Imdb parser.
+     * @param reader
+     *            reader this parser will use to forward events to
+     * @param workers
+     *            number of tokenizing threads
+     * @param commitPolicy
+     *            decides how many items are forwarded per call to the reader
+     */
+    public ParallelImdbParser( final ImdbReader reader, final int workers,
+        final CommitPolicy commitPolicy )
+    {
+        super( reader, commitPolicy );
+        if ( workers < 1 )
+        {
+            throw new IllegalArgumentException( "Need at least one worker" );
+        }
+        this.workers = workers;
+    }
+
+    @Override
+    public String parseMovies( final String file ) throws IOException
+    {
+        if ( file == null )
+        {
+            throw new IllegalArgumentException( "Null movie file" );
+        }
+        final ImportCheckpoint checkpoint = reader.getCheckpoint();
+        if ( checkpoint.isDone( MOVIES_MARKER ) )
+        {
+            progress.skipped( MOVIES_MARKER );
+            return "Movies already imported.";
+        }
+        final long start = checkpoint.getPosition( MOVIES_MARKER );
+        final ExecutorService tokenizers = Executors
+            .newFixedThreadPool( workers );
+        final ExecutorService splitters = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Pipeline<MovieData> pipeline = new Pipeline<MovieData>(
+                getFileReader( file, MOVIES_MARKER, MOVIES_SKIPS, progress ),
+                start, tokenizers )
+            {
+                @Override
+                boolean isChunkBoundary( final byte[] line, final int from,
+                    final int to )
+                {
+                    return true;
+                }
+
+                @Override
+                Chunk<MovieData> tokenize( final Lines lines,
+                    final long firstLine )
+                {
+                    final Chunk<MovieData> movies = new Chunk<MovieData>(
+                        lines.size() );
+                    for ( int i = 0; i < lines.size(); i++ )
+                    {
+                        final MovieData movie = parseMovieLine(
+                            lines.getBytes(), lines.getStart( i ),
+                            lines.getEnd( i ) );
+                        if ( movie != null )
+                        {
+                            movies.add( movie, firstLine + i + 1 );
+                        }
+                    }
+                    return movies;
+                }
+            };
+            splitters.execute( pipeline );
+            final MovieBatch batch = new MovieBatch( checkpoint );
+            int movieCount = 0;
+            Chunk<MovieData> chunk = pipeline.take();
+            while ( chunk != null )
+            {
+                for ( int i = 0; i < chunk.size(); i++ )
+                {
+                    checkpoint.setPosition( MOVIES_MARKER, chunk
+                        .getPosition( i ) );
+                    batch.add( chunk.getItem( i ) );
+                    movieCount++;
+                }
+                chunk = pipeline.take();
+            }
+            checkpoint.setDone( MOVIES_MARKER );
+            batch.close();
+            return (movieCount + " movies parsed and injected" + resumedAt( start ));
+        }
+        finally
+        {
+            splitters.shutdownNow();
+            tokenizers.shutdownNow();
+        }
+    }
+
+    @Override
+    public String parseActors( final String actorFile, final String actressFile )
+        throws IOException
+    {
+        if ( actorFile == null )
+        {
+            throw new IllegalArgumentException( "Null actor file" );
+        }
+        if ( actressFile == null )
+        {
+            throw new IllegalArgumentException( "Null actress file" );
+        }
+        final ImportCheckpoint checkpoint = reader.getCheckpoint();
+        final ExecutorService tokenizers = Executors
+            .newFixedThreadPool( workers );
+        final ExecutorService splitters = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final ActorPipeline actors = new ActorPipeline( actorFile,
+                ACTOR_MARKER, ACTOR_SKIPS, checkpoint, tokenizers, progress );
+            final ActorPipeline actresses;
+            try
+            {
+                actresses = new ActorPipeline( actressFile, ACTRESSES_MARKER,
+                    ACTRESS_SKIPS, checkpoint, tokenizers, progress );
+            }
+            catch ( IOException e )
+            {
+                actors.close();
+                throw e;
+            }
+            catch ( RuntimeException e )
+            {
+                actors.close();
+                throw e;
+            }
+            final List<ActorPipeline> active = new LinkedList<ActorPipeline>();
+            for ( ActorPipeline pipeline : new ActorPipeline[] { actors,
+                actresses } )
+            {
+                if ( pipeline.isDone() )
+                {
+                    progress.skipped( pipeline.list );
+                }
+                else
+                {
+                    splitters.execute( pipeline );
+                    active.add( pipeline );
+                }
+            }
+            final ActorBatch batch = new ActorBatch( checkpoint );
+            while ( !active.isEmpty() )
+            {
+                final Iterator<ActorPipeline> pipelines = active.iterator();
+                while ( pipelines.hasNext() )
+                {
+                    final ActorPipeline pipeline = pipelines.next();
+                    final Future<Chunk<ActorData>> next = pipeline.poll();
+                    if ( next == null )
+                    {
+                        continue;
+                    }
+                    final Chunk<ActorData> chunk = pipeline.get( next );
+                    if ( chunk == null )
+                    {
+                        checkpoint.setDone( pipeline.list );
+                        pipelines.remove();
+                        continue;
+                    }
+                    pipeline.actorCount += chunk.size();
+                    pipeline.movieCount += chunk.roleCount;
+                    for ( int i = 0; i < chunk.size(); i++ )
+                    {
+                        checkpoint.setPosition( pipeline.list, chunk
+                            .getPosition( i ) );
+                        batch.add( chunk.getItem( i ) );
+                    }
+                }
+            }
+            batch.close();
+            return "Actors: " + actors.getSummary() + "\nActresses: "
+                + actresses.getSummary();
+        }
+        finally
+        {
+            splitters.shutdownNow();
+            tokenizers.shutdownNow();
+        }
+    }
+
+    /**
+     * Tokenized items of a chunk, each with the checkpoint position that is
+     * reached once the item is committed.
+     */
+    private static final class Chunk<T>
+    {
+        private final List<T> items;
+        private final long[] positions;
+        private int roleCount = 0;
+
+        Chunk( final int maxItems )
+        {
+            this.items = new ArrayList<T>( maxItems );
+            this.positions = new long[maxItems];
+        }
+
+        void add( final T item, final long position )
+        {
+            positions[items.size()] = position;
+            items.add( item );
+        }
+
+        int size()
+        {
+            return items.size();
+        }
+
+        T getItem( final int index )
+        {
+            return items.get( index );
+        }
+
+        long getPosition( final int index )
+        {
+            return positions[index];
+        }
+    }
+
+    /**
+     * The lines of a chunk, copied one after the other into one array, so a
+     * chunk is two objects whatever its number of lines.
+     */
+    private static final class Lines
+    {
+        private byte[] bytes = new byte[CHUNK_BYTES];
+        private int[] ends = new int[CHUNK_LINES];
+        private int size = 0;
+
+        void add( final byte[] line, final int from, final int to )
+        {
+            final int start = getStart( size );
+            final int end = start + to - from;
+            if ( end > bytes.length )
+            {
+                bytes = Arrays.copyOf( bytes, Math.max( end,
+                    bytes.length * 2 ) );
+            }
+            if ( size == ends.length )
+            {
+                ends = Arrays.copyOf( ends, size * 2 );
+            }
+            System.arraycopy( line, from, bytes, start, to - from );
+            ends[size++] = end;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        byte[] getBytes()
+        {
+            return bytes;
+        }
+
+        int getStart( final int index )
+        {
+            return index == 0 ? 0 : ends[index - 1];
+        }
+
+        int getEnd( final int index )
+        {
+            return ends[index];
+        }
+    }
+
+    /**
+     * Splits a file into chunks of lines and hands them to the tokenizers.
+     * The futures of the chunks are queued in file order.
+     */
+    private abstract static class Pipeline<T> implements Runnable
+    {
+        private final BlockingQueue<Future<Chunk<T>>> queue = new ArrayBlockingQueue<Future<Chunk<T>>>(
+            QUEUE_CAPACITY );
+        private final ListReader fileReader;
+        private final long startLine;
+        private final ExecutorService tokenizers;
+        // what stopped the splitter, reported after the last chunk
+        private volatile Throwable failure = null;
+
+        /**
+         * @param fileReader
+         *            reader positioned after the list header
+         * @param startLine
+         *            number of lines already committed, to be skipped
+         * @param tokenizers
+         *            the pool tokenizing the chunks
+         */
+        Pipeline( final ListReader fileReader, final long startLine,
+            final ExecutorService tokenizers )
+        {
+            this.fileReader = fileReader;
+            this.startLine = startLine;
+            this.tokenizers = tokenizers;
+        }
+
+        /**
+         * Returns <code>true</code> if a chunk may end before this line.
+         */
+        abstract boolean isChunkBoundary( byte[] line, int from, int to );
+
+        /**
+         * Tokenize a chunk of lines.
+         * @param lines
+         *            the lines of the chunk
+         * @param firstLine
+         *            number of lines before the chunk
+         * @return the tokenized items with their positions
+         */
+        abstract Chunk<T> tokenize( Lines lines, long firstLine );
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                skipLines( fileReader, startLine );
+                long firstLine = startLine;
+                Lines lines = new Lines();
+                while ( fileReader.next() )
+                {
+                    final byte[] line = fileReader.getBytes();
+                    final int from = fileReader.getStart();
+                    final int to = fileReader.getEnd();
+                    if ( lines.size() >= CHUNK_LINES
+                        && isChunkBoundary( line, from, to ) )
+                    {
+                        submit( lines, firstLine );
+                        firstLine += lines.size();
+                        lines = new Lines();
+                    }
+                    lines.add( line, from, to );
+                }
+                submit( lines, firstLine );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                failure = new IOException( "Interrupted while parsing" );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // the import failed and the tokenizers are shut down
+            }
+            catch ( Throwable e )
+            {
+                // also bad lines and running out of memory, the parser
+                // would otherwise wait for the end of the file forever
+                failure = e;
+            }
+            finally
+            {
+                close();
+                queueEnd();
+            }
+        }
+
+        private void queueEnd()
+        {
+            // a future with a null result marks the end of the file
+            final FutureTask<Chunk<T>> end = new FutureTask<Chunk<T>>(
+                new Callable<Chunk<T>>()
+                {
+                    @Override
+                    public Chunk<T> call()
+                    {
+                        return null;
+                    }
+                } );
+            end.run();
+            if ( queue.offer( end ) )
+            {
+                return;
+            }
+            try
+            {
+                queue.put( end );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Close the file, also for a pipeline that is never run.
+         */
+        void close()
+        {
+            if ( fileReader == null )
+            {
+                return;
+            }
+            try
+            {
+                fileReader.close();
+            }
+            catch ( IOException e )
+            {
+                // nothing more to read anyway
+            }
+        }
+
+        private void submit( final Lines lines, final long firstLine )
+            throws InterruptedException
+        {
+            queue.put( tokenizers.submit( new Callable<Chunk<T>>()
+            {
+                @Override
+                public Chunk<T> call()
+                {
+                    return tokenize( lines, firstLine );
+                }
+            } ) );
+        }
+
+        /**
+         * Returns the next chunk in file order, waiting for it if needed, or
+         * <code>null</code> at the end of the file.
+         */
+        Chunk<T> take() throws IOException
+        {
+            try
+            {
+                return get( queue.take() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while parsing" );
+            }
+        }
+
+        /**
+         * Returns the future of the next chunk, or <code>null</code> if the
+         * tokenizers are still behind.
+         */
+        Future<Chunk<T>> poll() throws IOException
+        {
+            try
+            {
+                return queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while parsing" );
+            }
+        }
+
+        Chunk<T> get( final Future<Chunk<T>> future ) throws IOException
+        {
+            try
+            {
+                final Chunk<T> chunk = future.get();
+                if ( chunk == null && failure != null )
+                {
+                    rethrow( failure );
+                }
+                return chunk;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while parsing" );
+            }
+            catch ( ExecutionException e )
+            {
+                rethrow( e.getCause() );
+                return null;
+            }
+        }
+
+        private static void rethrow( final Throwable failure )
+            throws IOException
+        {
+            if ( failure instanceof IOException )
+            {
+                throw (IOException) failure;
+            }
+            if ( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) failure;
+            }
+            if ( failure instanceof Error )
+            {
+                throw (Error) failure;
+            }
+            throw new IOException( failure.getMessage(), failure );
+        }
+    }
+
+    /**
+     * Chunks of an actor list always start at a new actor, so every chunk
+     * can be tokenized on its own. A list that is done according to the
+     * checkpoint is not opened.
+     */
+    private static final class ActorPipeline extends Pipeline<ActorData>
+    {
+        private final String list;
+        private final long start;
+        private int actorCount = 0;
+        private int movieCount = 0;
+
+        ActorPipeline( final String file, final String list, final int skips,
+            final ImportCheckpoint checkpoint, final ExecutorService tokenizers,
+            final ImportProgress progress ) throws IOException
+        {
+            super( checkpoint.isDone( list ) ? null : getFileReader( file,
+                list, skips, progress ), checkpoint.getPosition( list ),
+                tokenizers );
+            this.list = list;
+            this.start = checkpoint.getPosition( list );
+        }
+
+        boolean isDone()
+        {
+            return start == ImportCheckpoint.DONE;
+        }
+
+        @Override
+        boolean isChunkBoundary( final byte[] line, final int from,
+            final int to )
+        {
+            return isActorStart( line, from, to );
+        }
+
+        @Override
+        Chunk<ActorData> tokenize( final Lines lines, final long firstLine )
+        {
+            final ActorCollector collector = new ActorCollector();
+            final Chunk<ActorData> actors = new Chunk<ActorData>( lines.size() );
+            for ( int i = 0; i < lines.size(); i++ )
+            {
+                final ActorData actor = collector.addLine( lines.getBytes(),
+                    lines.getStart( i ), lines.getEnd( i ) );
+                if ( actor != null )
+                {
+                    // the completed actor ended with the previous line
+                    actors.add( actor, firstLine + i );
+                }
+            }
+            final ActorData lastActor = collector.finish();
+            if ( lastActor != null )
+            {
+                actors.add( lastActor, firstLine + lines.size() );
+            }
+            actors.roleCount = collector.getMovieCount();
+            return actors;
+        }
+
+        String getSummary()
+        {
+            if ( isDone() )
+            {
+                return "already imported.";
+            }
+            return (actorCount + " added including " + movieCount
+                + " characters parsed and injected" + resumedAt( start ));
+        }
+    }
+}
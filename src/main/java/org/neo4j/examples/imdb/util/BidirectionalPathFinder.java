@@ -0,0 +1,167 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Finds a shortest path with a breadth first search from both ends at once.
+ * Each step expands one whole frontier, always the smaller one, so a search
+ * between a prolific and an obscure actor mostly grows from the obscure
+ * side. Visited nodes are kept as node ids in {@link LongLongMap}s mapping
+ * each node to its parent, and the frontiers are arrays of node ids, so
+ * nothing but the relationship reads is allocated per visited node. There
+ * is no depth limit; if the nodes are not connected the search ends when
+ * the smaller of their components is exhausted. The time, the number of
+ * nodes on the path and the number of visited nodes of every search are
+ * recorded in the {@link Metrics}.
+ */
+public class BidirectionalPathFinder implements PathFinder
+{
+    @Autowired
+    private Metrics metrics;
+
+    @Override
+    public List<Node> shortestPath( final Node startNode, final Node endNode,
+        final RelationshipType relType )
+    {
+        if ( startNode.equals( endNode ) )
+        {
+            return Collections.singletonList( startNode );
+        }
+        final long start = System.nanoTime();
+        final Search forward = new Search( startNode.getId() );
+        final Search backward = new Search( endNode.getId() );
+        final List<Node> path = search( startNode.getGraphDatabase(), relType,
+            forward, backward );
+        metrics.recordSince( "path.micros", start );
+        metrics.record( "path.length", path.size() );
+        metrics.record( "path.visited", forward.parents.size()
+            + backward.parents.size() );
+        return path;
+    }
+
+    private static List<Node> search( final GraphDatabaseService graphDb,
+        final RelationshipType relType, final Search forward,
+        final Search backward )
+    {
+        while ( !forward.frontier.isEmpty() && !backward.frontier.isEmpty() )
+        {
+            final long meeting;
+            if ( forward.frontier.size() <= backward.frontier.size() )
+            {
+                meeting = forward.expand( graphDb, relType, backward );
+            }
+            else
+            {
+                meeting = backward.expand( graphDb, relType, forward );
+            }
+            if ( meeting != LongLongMap.MISSING )
+            {
+                return toNodes( graphDb, forward, backward, meeting );
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<Node> toNodes( final GraphDatabaseService graphDb,
+        final Search forward, final Search backward, final long meeting )
+    {
+        final LongList ids = new LongList();
+        for ( long id = meeting; id != forward.root; id = forward.parents
+            .get( id ) )
+        {
+            ids.add( id );
+        }
+        ids.add( forward.root );
+        final List<Node> path = new ArrayList<Node>();
+        for ( int i = ids.size() - 1; i >= 0; i-- )
+        {
+            path.add( graphDb.getNodeById( ids.get( i ) ) );
+        }
+        for ( long id = meeting; id != backward.root; )
+        {
+            id = backward.parents.get( id );
+            path.add( graphDb.getNodeById( id ) );
+        }
+        return path;
+    }
+
+    /**
+     * One side of the search.
+     */
+    private static final class Search
+    {
+        private final long root;
+        // parent of every visited node, the root is its own parent
+        private final LongLongMap parents = new LongLongMap();
+        private LongList frontier = new LongList();
+
+        Search( final long root )
+        {
+            this.root = root;
+            parents.put( root, root );
+            frontier.add( root );
+        }
+
+        /**
+         * Visit the neighbours of the frontier, which become the new
+         * frontier.
+         * @return a node visited by both sides, or {@link LongLongMap#MISSING}
+         */
+        long expand( final GraphDatabaseService graphDb,
+            final RelationshipType relType, final Search other )
+        {
+            final LongList next = new LongList();
+            for ( int i = 0; i < frontier.size(); i++ )
+            {
+                final long id = frontier.get( i );
+                final Node node = graphDb.getNodeById( id );
+                for ( Relationship rel : node.getRelationships( relType,
+                    Direction.BOTH ) )
+                {
+                    final long neighbour = rel.getOtherNode( node ).getId();
+                    if ( parents.containsKey( neighbour ) )
+                    {
+                        continue;
+                    }
+                    parents.put( neighbour, id );
+                    // the first meeting is on a shortest path, since both
+                    // sides are expanded one whole level at a time
+                    if ( other.parents.containsKey( neighbour ) )
+                    {
+                        return neighbour;
+                    }
+                    next.add( neighbour );
+                }
+            }
+            frontier = next;
+            return LongLongMap.MISSING;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of recorded values in buckets that grow with the value, so any
+ * value is kept to within 1/64 of itself. The first 128 values have a
+ * bucket each, and every following power of two is split into 64 buckets,
+ * as HdrHistogram does with two significant digits. Recording is a few
+ * atomic increments and never allocates, so it can be done on every
+ * request. Reads are not a consistent snapshot while values are recorded.
+ */
+public class Histogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_VALUES = SUB_BUCKETS * 2;
+    private static final int BUCKETS = bucket( Long.MAX_VALUE ) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     * @param value
+     *            the value, negative values are recorded as 0
+     */
+    public void record( final long value )
+    {
+        final long recorded = Math.max( value, 0 );
+        counts.incrementAndGet( bucket( recorded ) );
+        count.incrementAndGet();
+        sum.addAndGet( recorded );
+        long currentMax = max.get();
+        while ( recorded > currentMax
+            && !max.compareAndSet( currentMax, recorded ) )
+        {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public double getMean()
+    {
+        final long recorded = count.get();
+        return recorded == 0 ? 0 : (double) sum.get() / recorded;
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Returns the value that <code>percentile</code> percent of the recorded
+     * values are at or below, as the highest value of its bucket.
+     * @param percentile
+     *            the percentile, from 0 to 100
+     * @return the value, 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile( final double percentile )
+    {
+        final long recorded = count.get();
+        if ( recorded == 0 )
+        {
+            return 0;
+        }
+        final long rank = Math.max( 1, (long) Math.ceil( recorded
+            * Math.min( percentile, 100 ) / 100 ) );
+        long seen = 0;
+        for ( int bucket = 0; bucket < BUCKETS; bucket++ )
+        {
+            seen += counts.get( bucket );
+            if ( seen >= rank )
+            {
+                return Math.min( highestValue( bucket ), max.get() );
+            }
+        }
+        return max.get();
+    }
+
+    static int bucket( final long value )
+    {
+        if ( value < LINEAR_VALUES )
+        {
+            return (int) value;
+        }
+        // keep the highest SUB_BUCKET_BITS + 1 bits of the value
+        final int shift = 63 - Long.numberOfLeadingZeros( value )
+            - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift)
+            - SUB_BUCKETS;
+    }
+
+    static long highestValue( final int bucket )
+    {
+        if ( bucket < LINEAR_VALUES )
+        {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Counting and slicing of iterables without copying them, so a page of a
+ * long relationship chain only costs the elements that are on it, plus
+ * stepping over the ones before it.
+ */
+public final class Iterables
+{
+    private Iterables()
+    {
+    }
+
+    /**
+     * Returns the number of elements of an iterable, by iterating it.
+     * @param items
+     *            the elements to count
+     * @return number of elements
+     */
+    public static int count( final Iterable<?> items )
+    {
+        int count = 0;
+        for ( Iterator<?> iterator = items.iterator(); iterator.hasNext(); )
+        {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a lazy view of at most <code>count</code> elements of an
+     * iterable, starting after the first <code>offset</code> ones. Every
+     * iteration of the view starts a new iteration of the source.
+     * @param source
+     *            the elements to slice
+     * @param offset
+     *            number of elements to skip
+     * @param count
+     *            maximum number of elements to return
+     * @return the slice
+     */
+    public static <T> Iterable<T> slice( final Iterable<T> source,
+        final int offset, final int count )
+    {
+        if ( offset < 0 || count < 0 )
+        {
+            throw new IllegalArgumentException( "Negative offset or count: "
+                + offset + ", " + count );
+        }
+        return new Iterable<T>()
+        {
+            @Override
+            public Iterator<T> iterator()
+            {
+                final Iterator<T> iterator = source.iterator();
+                for ( int i = 0; i < offset && iterator.hasNext(); i++ )
+                {
+                    iterator.next();
+                }
+                return new Iterator<T>()
+                {
+                    private int remaining = count;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return remaining > 0 && iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next()
+                    {
+                        if ( !hasNext() )
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        remaining--;
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
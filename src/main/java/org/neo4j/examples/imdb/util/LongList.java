@@ -0,0 +1,65 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of <code>long</code> values, such as node ids. Not
+ * thread safe.
+ */
+public class LongList
+{
+    private long[] values = new long[16];
+    private int size = 0;
+
+    public void add( final long value )
+    {
+        if ( size == values.length )
+        {
+            values = Arrays.copyOf( values, size * 2 );
+        }
+        values[size++] = value;
+    }
+
+    public long get( final int index )
+    {
+        if ( index >= size )
+        {
+            throw new IndexOutOfBoundsException( "Index " + index
+                + " of a list of " + size );
+        }
+        return values[index];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public long[] toArray()
+    {
+        return Arrays.copyOf( values, size );
+    }
+}
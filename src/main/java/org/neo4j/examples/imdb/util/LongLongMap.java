@@ -0,0 +1,226 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+/**
+ * An open addressing hash map from <code>long</code> to <code>long</code>
+ * that stores its entries in two primitive arrays, so there is no boxing and
+ * no per-entry object. Values may not be <code>-1</code>, which is what
+ * {@link #get(long)} returns for missing keys. Not thread safe.
+ */
+public class LongLongMap
+{
+    public static final long MISSING = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    public LongLongMap()
+    {
+        this( MIN_CAPACITY );
+    }
+
+    /**
+     * Create a map that can hold <code>expectedSize</code> entries without
+     * growing.
+     * @param expectedSize
+     *            number of entries to make room for
+     */
+    public LongLongMap( final int expectedSize )
+    {
+        int capacity = MIN_CAPACITY;
+        while ( capacity < expectedSize * 2 )
+        {
+            capacity <<= 1;
+        }
+        allocate( capacity );
+    }
+
+    /**
+     * Returns the value of <code>key</code> or {@link #MISSING}.
+     * @param key
+     *            the key to look up
+     * @return the value or {@link #MISSING}
+     */
+    public long get( final long key )
+    {
+        final int mask = keys.length - 1;
+        int slot = hash( key ) & mask;
+        while ( used[slot] )
+        {
+            if ( keys[slot] == key )
+            {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey( final long key )
+    {
+        return get( key ) != MISSING;
+    }
+
+    /**
+     * Associate <code>value</code> with <code>key</code>.
+     * @param key
+     *            the key
+     * @param value
+     *            the value, not {@link #MISSING}
+     * @return the previous value or {@link #MISSING}
+     */
+    public long put( final long key, final long value )
+    {
+        if ( value == MISSING )
+        {
+            throw new IllegalArgumentException( "Value may not be " + MISSING );
+        }
+        if ( (size + 1) * 2 > keys.length )
+        {
+            grow();
+        }
+        final int mask = keys.length - 1;
+        int slot = hash( key ) & mask;
+        while ( used[slot] )
+        {
+            if ( keys[slot] == key )
+            {
+                final long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * Remove <code>key</code> from the map.
+     * @param key
+     *            the key to remove
+     * @return the removed value or {@link #MISSING}
+     */
+    public long remove( final long key )
+    {
+        final int mask = keys.length - 1;
+        int slot = hash( key ) & mask;
+        while ( used[slot] )
+        {
+            if ( keys[slot] == key )
+            {
+                final long previous = values[slot];
+                used[slot] = false;
+                size--;
+                // re-insert the rest of the cluster so lookups stay correct
+                slot = (slot + 1) & mask;
+                while ( used[slot] )
+                {
+                    used[slot] = false;
+                    size--;
+                    put( keys[slot], values[slot] );
+                    slot = (slot + 1) & mask;
+                }
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        allocate( MIN_CAPACITY );
+    }
+
+    /**
+     * Returns the keys of this map, in no particular order.
+     * @return a new array holding the keys
+     */
+    public long[] keys()
+    {
+        final long[] result = new long[size];
+        int count = 0;
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( used[i] )
+            {
+                result[count++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the approximate number of bytes held by the arrays of this
+     * map.
+     * @return memory footprint in bytes
+     */
+    public long memoryFootprint()
+    {
+        return keys.length * (8L + 8L + 1L);
+    }
+
+    private void grow()
+    {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        final boolean[] oldUsed = used;
+        allocate( oldKeys.length * 2 );
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldUsed[i] )
+            {
+                put( oldKeys[i], oldValues[i] );
+            }
+        }
+    }
+
+    private void allocate( final int capacity )
+    {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    private static int hash( final long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
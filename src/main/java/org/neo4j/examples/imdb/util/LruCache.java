@@ -0,0 +1,439 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A thread safe, read-through cache that holds at most a fixed number of
+ * entries, and optionally at most a fixed total weight of them, and evicts
+ * the least recently used ones to make room. Values are
+ * loaded outside the lock, and a value loaded while the cache was
+ * invalidated, or had a key removed, is not kept. Invalidating the whole
+ * cache takes constant time: entries of an older generation are dropped as
+ * they are found.
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public class LruCache<K,V>
+{
+    /**
+     * Loads the value of a key that is not in the cache.
+     * @param <K>
+     *            the key type
+     * @param <V>
+     *            the value type
+     */
+    public interface Loader<K,V>
+    {
+        V load( K key );
+    }
+
+    /**
+     * Weighs an entry, for example by the memory its key takes.
+     * @param <K>
+     *            the key type
+     * @param <V>
+     *            the value type
+     */
+    public interface Weigher<K,V>
+    {
+        long weigh( K key, V value );
+    }
+
+    /**
+     * Selects the keys to remove from the cache.
+     * @param <K>
+     *            the key type
+     */
+    public interface KeyFilter<K>
+    {
+        boolean accept( K key );
+    }
+
+    private final String name;
+    private final int capacity;
+    private final long maximumWeight;
+    private final Weigher<K,V> weigher;
+
+    // guarded by this
+    private final Map<K,Entry<V>> entries = new LinkedHashMap<K,Entry<V>>(
+        16, 0.75f, true );
+    private long weight = 0;
+    private long generation = 0;
+    private long removals = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Create a cache.
+     * @param name
+     *            name of the cache, for its statistics
+     * @param capacity
+     *            maximum number of entries
+     */
+    public LruCache( final String name, final int capacity )
+    {
+        this( name, capacity, Long.MAX_VALUE, null );
+    }
+
+    /**
+     * Create a cache that also bounds the total weight of its entries.
+     * @param name
+     *            name of the cache, for its statistics
+     * @param capacity
+     *            maximum number of entries
+     * @param maximumWeight
+     *            maximum total weight of the entries
+     * @param weigher
+     *            weighs the entries, <code>null</code> to only bound their
+     *            number
+     */
+    public LruCache( final String name, final int capacity,
+        final long maximumWeight, final Weigher<K,V> weigher )
+    {
+        if ( capacity < 1 )
+        {
+            throw new IllegalArgumentException( "Capacity must be positive: "
+                + capacity );
+        }
+        if ( maximumWeight < 1 )
+        {
+            throw new IllegalArgumentException(
+                "Maximum weight must be positive: " + maximumWeight );
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value of a key, loading it if it is not cached.
+     * @param key
+     *            the key
+     * @param loader
+     *            loads the value on a miss
+     * @return the value
+     */
+    public V get( final K key, final Loader<K,V> loader )
+    {
+        final long loadGeneration;
+        final long loadRemovals;
+        synchronized ( this )
+        {
+            final Entry<V> entry = entries.get( key );
+            if ( entry != null && entry.generation == generation )
+            {
+                hits++;
+                entry.hits++;
+                return entry.value;
+            }
+            if ( entry != null )
+            {
+                removeEntry( key );
+            }
+            misses++;
+            loadGeneration = generation;
+            loadRemovals = removals;
+        }
+        final V value = loader.load( key );
+        synchronized ( this )
+        {
+            // the value may have been loaded from what was removed
+            if ( loadGeneration == generation && loadRemovals == removals )
+            {
+                putEntry( key, new Entry<V>( value, generation, weigh( key,
+                    value ) ) );
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value of a key, without loading it or counting a
+     * lookup.
+     * @param key
+     *            the key
+     * @return the value, <code>null</code> if it is not cached
+     */
+    public synchronized V peek( final K key )
+    {
+        final Entry<V> entry = entries.get( key );
+        return entry == null || entry.generation != generation ? null
+            : entry.value;
+    }
+
+    /**
+     * Replace the value of a cached key, for example with one updated for a
+     * change. A value being loaded for any key is not kept, as it may have
+     * been loaded from before the change.
+     * @param key
+     *            the key
+     * @param value
+     *            the new value
+     */
+    public synchronized void replace( final K key, final V value )
+    {
+        final Entry<V> entry = entries.get( key );
+        if ( entry != null && entry.generation == generation )
+        {
+            final Entry<V> replaced = new Entry<V>( value, generation, weigh(
+                key, value ) );
+            replaced.hits = entry.hits;
+            putEntry( key, replaced );
+        }
+        removals++;
+    }
+
+    /**
+     * Remove a key, for example because its value turned out to be stale.
+     * @param key
+     *            the key
+     */
+    public synchronized void remove( final K key )
+    {
+        removeEntry( key );
+        removals++;
+    }
+
+    /**
+     * Remove the keys accepted by a filter, which takes time linear in the
+     * number of entries.
+     * @param filter
+     *            accepts the keys to remove
+     */
+    public synchronized void removeAll( final KeyFilter<K> filter )
+    {
+        final Iterator<Map.Entry<K,Entry<V>>> iterator = entries.entrySet()
+            .iterator();
+        while ( iterator.hasNext() )
+        {
+            final Map.Entry<K,Entry<V>> entry = iterator.next();
+            if ( filter.accept( entry.getKey() ) )
+            {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+        removals++;
+    }
+
+    /**
+     * Drop all entries, including values being loaded.
+     */
+    public synchronized void invalidateAll()
+    {
+        generation++;
+    }
+
+    /**
+     * Returns the cached keys that were hit most often since they were
+     * loaded, most hit first.
+     * @param count
+     *            maximum number of keys
+     * @return the keys
+     */
+    public synchronized List<K> getHottestKeys( final int count )
+    {
+        final List<Map.Entry<K,Entry<V>>> current = new ArrayList<Map.Entry<K,Entry<V>>>();
+        for ( Map.Entry<K,Entry<V>> entry : entries.entrySet() )
+        {
+            if ( entry.getValue().generation == generation )
+            {
+                current.add( entry );
+            }
+        }
+        Collections.sort( current, new Comparator<Map.Entry<K,Entry<V>>>()
+        {
+            @Override
+            public int compare( final Map.Entry<K,Entry<V>> left,
+                final Map.Entry<K,Entry<V>> right )
+            {
+                final long leftHits = left.getValue().hits;
+                final long rightHits = right.getValue().hits;
+                return leftHits > rightHits ? -1 : (leftHits == rightHits ? 0
+                    : 1);
+            }
+        } );
+        final List<K> keys = new ArrayList<K>();
+        for ( int i = 0; i < current.size() && i < count; i++ )
+        {
+            keys.add( current.get( i ).getKey() );
+        }
+        return keys;
+    }
+
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics( name, capacity, entries.size(), weight, hits,
+            misses, evictions );
+    }
+
+    private long weigh( final K key, final V value )
+    {
+        return weigher == null ? 0 : weigher.weigh( key, value );
+    }
+
+    /**
+     * Put an entry and evict the least recently used ones until both the
+     * number and the weight of the entries are within bounds.
+     */
+    private void putEntry( final K key, final Entry<V> entry )
+    {
+        final Entry<V> previous = entries.put( key, entry );
+        if ( previous != null )
+        {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+        final Iterator<Entry<V>> eldest = entries.values().iterator();
+        while ( (entries.size() > capacity || weight > maximumWeight)
+            && eldest.hasNext() )
+        {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void removeEntry( final K key )
+    {
+        final Entry<V> entry = entries.remove( key );
+        if ( entry != null )
+        {
+            weight -= entry.weight;
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long generation;
+        private final long weight;
+        private long hits = 0;
+
+        Entry( final V value, final long generation, final long weight )
+        {
+            this.value = value;
+            this.generation = generation;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The counters of a cache at one point in time.
+     */
+    public static final class Statistics
+    {
+        private final String name;
+        private final int capacity;
+        private final int size;
+        private final long weight;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Statistics( final String name, final int capacity, final int size,
+            final long weight, final long hits, final long misses,
+            final long evictions )
+        {
+            this.name = name;
+            this.capacity = capacity;
+            this.size = size;
+            this.weight = weight;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getCapacity()
+        {
+            return capacity;
+        }
+
+        /**
+         * Returns the number of entries, including invalidated ones that
+         * have not been dropped yet.
+         * @return number of entries
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * Returns the total weight of the entries, 0 if the cache does not
+         * weigh them.
+         * @return total weight
+         */
+        public long getWeight()
+        {
+            return weight;
+        }
+
+        public long getHits()
+        {
+            return hits;
+        }
+
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+        /**
+         * Returns the share of lookups that were hits.
+         * @return the hit ratio, 0 if there were no lookups
+         */
+        public double getHitRatio()
+        {
+            final long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(
+                "%s: %d/%d entries, %d hits, %d misses (%.1f%% hits), %d evictions",
+                name, size, capacity, hits, misses, getHitRatio() * 100,
+                evictions );
+        }
+    }
+}
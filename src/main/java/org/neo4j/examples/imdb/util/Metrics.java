@@ -0,0 +1,234 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Named counters and {@link Histogram}s of the hot paths, created on first
+ * use. Latencies are recorded in microseconds, in histograms whose names end
+ * with <code>.micros</code>. The metrics are a dynamic MBean with a read
+ * only attribute per counter and per histogram summary value, named like
+ * <code>search.actor.micros.p99</code>.
+ */
+public class Metrics implements DynamicMBean
+{
+    private static final String[] SUMMARY = { "count", "mean", "p50", "p90",
+        "p99", "max" };
+
+    private final ConcurrentMap<String,AtomicLong> counters = new ConcurrentHashMap<String,AtomicLong>();
+    private final ConcurrentMap<String,Histogram> histograms = new ConcurrentHashMap<String,Histogram>();
+
+    public void increment( final String name )
+    {
+        add( name, 1 );
+    }
+
+    public void add( final String name, final long delta )
+    {
+        AtomicLong counter = counters.get( name );
+        if ( counter == null )
+        {
+            final AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent( name, created );
+            if ( counter == null )
+            {
+                counter = created;
+            }
+        }
+        counter.addAndGet( delta );
+    }
+
+    public void record( final String name, final long value )
+    {
+        getHistogram( name ).record( value );
+    }
+
+    /**
+     * Record the microseconds since <code>startNanos</code> in a latency
+     * histogram.
+     * @param name
+     *            name of the histogram, ending with <code>.micros</code>
+     * @param startNanos
+     *            start time from {@link System#nanoTime()}
+     */
+    public void recordSince( final String name, final long startNanos )
+    {
+        record( name, (System.nanoTime() - startNanos) / 1000 );
+    }
+
+    public Histogram getHistogram( final String name )
+    {
+        Histogram histogram = histograms.get( name );
+        if ( histogram == null )
+        {
+            final Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent( name, created );
+            if ( histogram == null )
+            {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the counters by name.
+     * @return a copy of the counter values
+     */
+    public SortedMap<String,Long> getCounters()
+    {
+        final SortedMap<String,Long> values = new TreeMap<String,Long>();
+        for ( Map.Entry<String,AtomicLong> counter : counters.entrySet() )
+        {
+            values.put( counter.getKey(), counter.getValue().get() );
+        }
+        return values;
+    }
+
+    /**
+     * Returns the histograms by name.
+     * @return the live histograms
+     */
+    public SortedMap<String,Histogram> getHistograms()
+    {
+        return new TreeMap<String,Histogram>( histograms );
+    }
+
+    @Override
+    public Object getAttribute( final String attribute )
+        throws AttributeNotFoundException
+    {
+        final AtomicLong counter = counters.get( attribute );
+        if ( counter != null )
+        {
+            return counter.get();
+        }
+        final int dot = attribute.lastIndexOf( '.' );
+        final Histogram histogram = dot < 0 ? null : histograms
+            .get( attribute.substring( 0, dot ) );
+        if ( histogram != null )
+        {
+            final String value = attribute.substring( dot + 1 );
+            if ( "count".equals( value ) )
+            {
+                return histogram.getCount();
+            }
+            if ( "mean".equals( value ) )
+            {
+                return histogram.getMean();
+            }
+            if ( "max".equals( value ) )
+            {
+                return histogram.getMax();
+            }
+            if ( value.startsWith( "p" ) )
+            {
+                try
+                {
+                    return histogram.getValueAtPercentile( Double
+                        .parseDouble( value.substring( 1 ) ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    // not a percentile, not found below
+                }
+            }
+        }
+        throw new AttributeNotFoundException( attribute );
+    }
+
+    @Override
+    public AttributeList getAttributes( final String[] attributes )
+    {
+        final AttributeList list = new AttributeList();
+        for ( String attribute : attributes )
+        {
+            try
+            {
+                list.add( new Attribute( attribute, getAttribute( attribute ) ) );
+            }
+            catch ( AttributeNotFoundException e )
+            {
+                // left out, as the interface asks
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute( final Attribute attribute )
+        throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException( "Read only: "
+            + attribute.getName() );
+    }
+
+    @Override
+    public AttributeList setAttributes( final AttributeList attributes )
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke( final String actionName, final Object[] params,
+        final String[] signature ) throws ReflectionException
+    {
+        throw new ReflectionException( new NoSuchMethodException( actionName ) );
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for ( String counter : getCounters().keySet() )
+        {
+            attributes.add( new MBeanAttributeInfo( counter, "long", "Counter",
+                true, false, false ) );
+        }
+        for ( String histogram : getHistograms().keySet() )
+        {
+            for ( String value : SUMMARY )
+            {
+                attributes.add( new MBeanAttributeInfo( histogram + "."
+                    + value, "mean".equals( value ) ? "double" : "long",
+                    "Histogram " + value, true, false, false ) );
+            }
+        }
+        return new MBeanInfo( getClass().getName(), "Hot path metrics",
+            attributes.toArray( new MBeanAttributeInfo[attributes.size()] ),
+            null, new MBeanOperationInfo[0], null );
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, sorted set of ids, such as the nodes a search word is part
+ * of. The ids are split into blocks; the first id of every block is kept as
+ * is and the rest as variable length deltas, so a list of dense ids costs
+ * one or two bytes per id. A {@link Cursor} skips to a target id by
+ * galloping over the block heads and only decodes the block the target is
+ * in, which makes intersecting a short list with a long one cheap.
+ */
+public final class PostingList
+{
+    static final int BLOCK_SIZE = 64;
+
+    private final int size;
+    private final long[] blockHeads;
+    private final int[] blockOffsets;
+    private final byte[] deltas;
+
+    private PostingList( final int size, final long[] blockHeads,
+        final int[] blockOffsets, final byte[] deltas )
+    {
+        this.size = size;
+        this.blockHeads = blockHeads;
+        this.blockOffsets = blockOffsets;
+        this.deltas = deltas;
+    }
+
+    /**
+     * Create a posting list of some ids, in any order.
+     * @param ids
+     *            non negative ids, duplicates are dropped
+     * @return the posting list
+     */
+    public static PostingList of( final long[] ids )
+    {
+        final long[] sorted = ids.clone();
+        Arrays.sort( sorted );
+        int count = 0;
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            if ( sorted[i] < 0 )
+            {
+                throw new IllegalArgumentException( "Negative id " + sorted[i] );
+            }
+            if ( count == 0 || sorted[i] != sorted[count - 1] )
+            {
+                sorted[count++] = sorted[i];
+            }
+        }
+        final int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final long[] heads = new long[blocks];
+        final int[] offsets = new int[blocks];
+        byte[] buffer = new byte[Math.max( 16, count * 2 )];
+        int length = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( i % BLOCK_SIZE == 0 )
+            {
+                heads[i / BLOCK_SIZE] = sorted[i];
+                offsets[i / BLOCK_SIZE] = length;
+                continue;
+            }
+            if ( length + 10 > buffer.length )
+            {
+                buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+            }
+            long delta = sorted[i] - sorted[i - 1];
+            while ( (delta & ~0x7FL) != 0 )
+            {
+                buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[length++] = (byte) delta;
+        }
+        return new PostingList( count, heads, offsets, Arrays.copyOf(
+            buffer, length ) );
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    /**
+     * Returns the approximate number of bytes held by the arrays of this
+     * list.
+     * @return memory footprint in bytes
+     */
+    public long memoryFootprint()
+    {
+        return blockHeads.length * (8L + 4L) + deltas.length;
+    }
+
+    /**
+     * A position in a posting list. A new cursor is before the first id.
+     */
+    public final class Cursor
+    {
+        private int block = -1;
+        private int index = 0;
+        private int offset = 0;
+        private long current = -1;
+        private boolean exhausted = size == 0;
+
+        /**
+         * Move to the next id.
+         * @return <code>false</code> if there are no more ids
+         */
+        public boolean next()
+        {
+            if ( exhausted )
+            {
+                return false;
+            }
+            if ( block >= 0 && index + 1 < blockLength( block ) )
+            {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do
+                {
+                    b = deltas[offset++];
+                    delta |= (b & 0x7FL) << shift;
+                    shift += 7;
+                }
+                while ( b < 0 );
+                current += delta;
+                index++;
+                return true;
+            }
+            if ( block + 1 < blockHeads.length )
+            {
+                seek( block + 1 );
+                return true;
+            }
+            exhausted = true;
+            return false;
+        }
+
+        /**
+         * Move to the first id that is equal to or greater than
+         * <code>target</code>; does not move if the cursor is already
+         * there.
+         * @param target
+         *            the id to look for
+         * @return <code>false</code> if there is no such id
+         */
+        public boolean advanceTo( final long target )
+        {
+            if ( exhausted )
+            {
+                return false;
+            }
+            if ( block >= 0 && current >= target )
+            {
+                return true;
+            }
+            final int found = findBlock( target );
+            if ( found != block )
+            {
+                seek( found );
+            }
+            while ( current < target )
+            {
+                if ( !next() )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the id the cursor is at.
+         * @return the current id
+         */
+        public long get()
+        {
+            if ( block < 0 || exhausted )
+            {
+                throw new IllegalStateException( "No current id" );
+            }
+            return current;
+        }
+
+        /**
+         * Returns the last block, from the current one on, that starts at or
+         * before <code>target</code>, galloping and then bisecting.
+         */
+        private int findBlock( final long target )
+        {
+            int low = Math.max( block, 0 );
+            int step = 1;
+            int high = low + step;
+            while ( high < blockHeads.length && blockHeads[high] <= target )
+            {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min( high, blockHeads.length );
+            // blockHeads[low] <= target, or low is where the search began,
+            // and blockHeads[high] > target if it exists
+            while ( high - low > 1 )
+            {
+                final int middle = (low + high) >>> 1;
+                if ( blockHeads[middle] <= target )
+                {
+                    low = middle;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void seek( final int newBlock )
+        {
+            block = newBlock;
+            index = 0;
+            offset = blockOffsets[newBlock];
+            current = blockHeads[newBlock];
+        }
+
+        private int blockLength( final int ofBlock )
+        {
+            return Math.min( BLOCK_SIZE, size - ofBlock * BLOCK_SIZE );
+        }
+    }
+}
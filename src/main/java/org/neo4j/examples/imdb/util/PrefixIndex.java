@@ -0,0 +1,246 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable index from string keys to numbered entries that finds the
+ * heaviest entries with a key starting with a given prefix. The keys are
+ * kept sorted, so the keys with a prefix form one range, and a segment tree
+ * over the weights of the range gives its heaviest entry in logarithmic
+ * time. The top entries are taken by repeatedly splitting ranges around
+ * their heaviest entry, so the cost depends on how many entries are asked
+ * for, not on how many keys share the prefix.
+ */
+public final class PrefixIndex
+{
+    private static final int NONE = -1;
+
+    private final String[] keys;
+    private final int[] entries;
+    private final int[] weights;
+    // tree[size + i] is position i, the other nodes hold the heaviest
+    // position below them
+    private final int[] tree;
+    private final int size;
+
+    private PrefixIndex( final String[] keys, final int[] entries,
+        final int[] weights )
+    {
+        this.keys = keys;
+        this.entries = entries;
+        this.weights = weights;
+        this.size = keys.length;
+        this.tree = new int[Math.max( 2, size * 2 )];
+        for ( int i = 0; i < size; i++ )
+        {
+            tree[size + i] = i;
+        }
+        for ( int node = size - 1; node > 0; node-- )
+        {
+            tree[node] = heavier( tree[node * 2], tree[node * 2 + 1] );
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the heaviest entries with a key starting with
+     * <code>prefix</code>, heaviest first. An entry with several matching
+     * keys is returned once.
+     * @param prefix
+     *            the start of the keys
+     * @param count
+     *            maximum number of entries to return
+     * @return the entries
+     */
+    public int[] top( final String prefix, final int count )
+    {
+        final int from = lowerBound( prefix );
+        final int to = lowerBound( prefix + Character.MAX_VALUE );
+        final List<Integer> found = new ArrayList<Integer>( Math.min( count,
+            to - from ) );
+        final PriorityQueue<int[]> ranges = new PriorityQueue<int[]>( 16,
+            new Comparator<int[]>()
+            {
+                @Override
+                public int compare( final int[] left, final int[] right )
+                {
+                    // each range is { from, to, heaviest position }
+                    return left[2] == heavier( left[2], right[2] ) ? -1 : 1;
+                }
+            } );
+        addRange( ranges, from, to );
+        while ( found.size() < count && !ranges.isEmpty() )
+        {
+            final int[] range = ranges.poll();
+            final Integer entry = entries[range[2]];
+            if ( !found.contains( entry ) )
+            {
+                found.add( entry );
+            }
+            addRange( ranges, range[0], range[2] );
+            addRange( ranges, range[2] + 1, range[1] );
+        }
+        final int[] result = new int[found.size()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = found.get( i );
+        }
+        return result;
+    }
+
+    private void addRange( final PriorityQueue<int[]> ranges, final int from,
+        final int to )
+    {
+        if ( from < to )
+        {
+            ranges.add( new int[] { from, to, heaviest( from, to ) } );
+        }
+    }
+
+    /**
+     * Returns the heaviest position in <code>[from, to)</code>.
+     */
+    private int heaviest( final int from, final int to )
+    {
+        int best = NONE;
+        for ( int low = from + size, high = to + size; low < high; low >>= 1, high >>= 1 )
+        {
+            if ( (low & 1) == 1 )
+            {
+                best = heavier( best, tree[low++] );
+            }
+            if ( (high & 1) == 1 )
+            {
+                best = heavier( best, tree[--high] );
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the position with the heaviest entry, or the first of two
+     * equally heavy ones.
+     */
+    private int heavier( final int left, final int right )
+    {
+        if ( left == NONE )
+        {
+            return right;
+        }
+        if ( right == NONE )
+        {
+            return left;
+        }
+        final int leftWeight = weights[entries[left]];
+        final int rightWeight = weights[entries[right]];
+        if ( leftWeight != rightWeight )
+        {
+            return leftWeight > rightWeight ? left : right;
+        }
+        return left < right ? left : right;
+    }
+
+    private int lowerBound( final String key )
+    {
+        int low = 0;
+        int high = size;
+        while ( low < high )
+        {
+            final int middle = (low + high) >>> 1;
+            if ( keys[middle].compareTo( key ) < 0 )
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects the keys of a {@link PrefixIndex}. Not thread safe.
+     */
+    public static final class Builder
+    {
+        private final List<Key> keys = new ArrayList<Key>();
+
+        /**
+         * Add a key of an entry; an entry can have many keys.
+         * @param key
+         *            the key
+         * @param entry
+         *            number of the entry, an index into the weights
+         */
+        public void add( final String key, final int entry )
+        {
+            keys.add( new Key( key, entry ) );
+        }
+
+        /**
+         * Create the index.
+         * @param weights
+         *            the weight of each entry
+         * @return the index
+         */
+        public PrefixIndex build( final int[] weights )
+        {
+            Collections.sort( keys );
+            final String[] sortedKeys = new String[keys.size()];
+            final int[] entries = new int[keys.size()];
+            for ( int i = 0; i < sortedKeys.length; i++ )
+            {
+                sortedKeys[i] = keys.get( i ).key;
+                entries[i] = keys.get( i ).entry;
+            }
+            return new PrefixIndex( sortedKeys, entries, Arrays.copyOf(
+                weights, weights.length ) );
+        }
+    }
+
+    private static final class Key implements Comparable<Key>
+    {
+        private final String key;
+        private final int entry;
+
+        Key( final String key, final int entry )
+        {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo( final Key other )
+        {
+            return key.compareTo( other.key );
+        }
+    }
+}
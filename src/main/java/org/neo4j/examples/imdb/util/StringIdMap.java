@@ -0,0 +1,123 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+/**
+ * A compact map from strings, such as movie titles, to node ids. Only a 64
+ * bit hash of each string is kept, so an entry costs between 34 and 68 bytes
+ * no matter how long the string is. With a million entries the chance that
+ * two strings share a hash is in the order of 10<sup>-8</sup>; such a
+ * collision would resolve one of them to the other's node. Not thread safe.
+ */
+public class StringIdMap
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LongLongMap ids;
+
+    public StringIdMap()
+    {
+        this.ids = new LongLongMap();
+    }
+
+    /**
+     * Create a map that can hold <code>expectedSize</code> entries without
+     * growing.
+     * @param expectedSize
+     *            number of entries to make room for
+     */
+    public StringIdMap( final int expectedSize )
+    {
+        this.ids = new LongLongMap( expectedSize );
+    }
+
+    /**
+     * Add a string unless it is already mapped; the first id wins, just like
+     * the first hit of an index lookup.
+     * @param key
+     *            the string
+     * @param id
+     *            the node id
+     */
+    public void add( final String key, final long id )
+    {
+        final long hash = hash( key );
+        if ( !ids.containsKey( hash ) )
+        {
+            ids.put( hash, id );
+        }
+    }
+
+    /**
+     * Returns the id of <code>key</code> or {@link LongLongMap#MISSING}.
+     * @param key
+     *            the string
+     * @return the node id or {@link LongLongMap#MISSING}
+     */
+    public long get( final String key )
+    {
+        return ids.get( hash( key ) );
+    }
+
+    public void remove( final String key )
+    {
+        ids.remove( hash( key ) );
+    }
+
+    public int size()
+    {
+        return ids.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return ids.isEmpty();
+    }
+
+    public void clear()
+    {
+        ids.clear();
+    }
+
+    public long memoryFootprint()
+    {
+        return ids.memoryFootprint();
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of a string.
+     * @param key
+     *            the string to hash
+     * @return the hash
+     */
+    public static long hash( final String key )
+    {
+        long hash = FNV_OFFSET;
+        for ( int i = 0; i < key.length(); i++ )
+        {
+            final char c = key.charAt( i );
+            hash ^= c & 0xff;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable vocabulary that finds the words closest to a misspelled one.
+ * Every word is indexed by the trigrams of the word padded with two
+ * boundary marks on each side. A word within edit distance <i>d</i> of
+ * another shares all but at most 4<i>d</i> of its distinct trigrams, so only
+ * words that share enough trigrams are compared character by character.
+ * That only finds all close words if at least one trigram must be shared, so
+ * short words are looked up with a smaller distance.
+ */
+public final class TrigramIndex
+{
+    private static final char BOUNDARY = '\u0000';
+    private static final int[] NO_WORDS = new int[0];
+
+    private final String[] words;
+    // trigram to a slot of postings, which holds the sorted word ids
+    private final LongLongMap slots;
+    private final int[][] postings;
+
+    // scratch space of closest, guarded by this
+    private final int[] shared;
+
+    private TrigramIndex( final String[] words, final LongLongMap slots,
+        final int[][] postings )
+    {
+        this.words = words;
+        this.slots = slots;
+        this.postings = postings;
+        this.shared = new int[words.length];
+    }
+
+    /**
+     * Create the index of some words.
+     * @param vocabulary
+     *            the words, without duplicates
+     * @return the index
+     */
+    public static TrigramIndex of( final Collection<String> vocabulary )
+    {
+        final String[] words = vocabulary.toArray( new String[vocabulary
+            .size()] );
+        final Map<Long,LongList> wordsByTrigram = new HashMap<Long,LongList>();
+        for ( int id = 0; id < words.length; id++ )
+        {
+            for ( long trigram : trigrams( words[id] ) )
+            {
+                LongList ids = wordsByTrigram.get( trigram );
+                if ( ids == null )
+                {
+                    ids = new LongList();
+                    wordsByTrigram.put( trigram, ids );
+                }
+                ids.add( id );
+            }
+        }
+        final LongLongMap slots = new LongLongMap( wordsByTrigram.size() );
+        final int[][] postings = new int[wordsByTrigram.size()][];
+        int slot = 0;
+        for ( Map.Entry<Long,LongList> entry : wordsByTrigram.entrySet() )
+        {
+            final LongList ids = entry.getValue();
+            final int[] posting = new int[ids.size()];
+            for ( int i = 0; i < posting.length; i++ )
+            {
+                posting[i] = (int) ids.get( i );
+            }
+            slots.put( entry.getKey(), slot );
+            postings[slot++] = posting;
+        }
+        return new TrigramIndex( words, slots, postings );
+    }
+
+    public int size()
+    {
+        return words.length;
+    }
+
+    /**
+     * Returns the words that are closest to <code>word</code>, if they are
+     * within <code>maximumDistance</code> edits of it. Only words at the
+     * smallest distance found are returned, the ones sharing the most
+     * trigrams with <code>word</code> first.
+     * @param word
+     *            the misspelled word
+     * @param maximumDistance
+     *            largest edit distance to accept; lowered to one edit per
+     *            four distinct trigrams of <code>word</code> beyond the first
+     * @param maximumCount
+     *            maximum number of words to return
+     * @return the closest words, empty if none is close enough
+     */
+    public synchronized List<String> closest( final String word,
+        final int maximumDistance, final int maximumCount )
+    {
+        final long[] trigrams = trigrams( word );
+        final int distanceLimit = Math.min( maximumDistance,
+            (trigrams.length - 1) / 4 );
+        final int required = trigrams.length - 4 * distanceLimit;
+        final LongList touched = new LongList();
+        for ( long trigram : trigrams )
+        {
+            for ( int id : wordsWith( trigram ) )
+            {
+                if ( shared[id]++ == 0 )
+                {
+                    touched.add( id );
+                }
+            }
+        }
+        int bestDistance = distanceLimit + 1;
+        final List<int[]> best = new ArrayList<int[]>();
+        for ( int i = 0; i < touched.size(); i++ )
+        {
+            final int id = (int) touched.get( i );
+            final int sharedCount = shared[id];
+            shared[id] = 0;
+            if ( sharedCount < required
+                || Math.abs( words[id].length() - word.length() ) > bestDistance )
+            {
+                continue;
+            }
+            final int distance = editDistance( word, words[id], bestDistance );
+            if ( distance < bestDistance )
+            {
+                bestDistance = distance;
+                best.clear();
+            }
+            if ( distance == bestDistance && distance <= distanceLimit )
+            {
+                best.add( new int[] { id, sharedCount } );
+            }
+        }
+        Collections.sort( best, new Comparator<int[]>()
+        {
+            @Override
+            public int compare( final int[] left, final int[] right )
+            {
+                if ( left[1] != right[1] )
+                {
+                    return right[1] - left[1];
+                }
+                return words[left[0]].compareTo( words[right[0]] );
+            }
+        } );
+        final List<String> closest = new ArrayList<String>();
+        for ( int i = 0; i < best.size() && i < maximumCount; i++ )
+        {
+            closest.add( words[best.get( i )[0]] );
+        }
+        return closest;
+    }
+
+    /**
+     * Returns the number of insertions, deletions, substitutions and
+     * transpositions of adjacent characters that turn one string into the
+     * other, or <code>maximum + 1</code> if it takes more than
+     * <code>maximum</code>.
+     * @param left
+     *            a string
+     * @param right
+     *            another string
+     * @param maximum
+     *            the largest distance of interest
+     * @return the edit distance, at most <code>maximum + 1</code>
+     */
+    public static int editDistance( final String left, final String right,
+        final int maximum )
+    {
+        if ( Math.abs( left.length() - right.length() ) > maximum )
+        {
+            return maximum + 1;
+        }
+        int[] previous = new int[right.length() + 1];
+        int[] current = new int[right.length() + 1];
+        int[] next = new int[right.length() + 1];
+        for ( int j = 0; j <= right.length(); j++ )
+        {
+            current[j] = j;
+        }
+        for ( int i = 1; i <= left.length(); i++ )
+        {
+            final int[] rotated = previous;
+            previous = current;
+            current = next;
+            next = rotated;
+            current[0] = i;
+            int rowMinimum = i;
+            for ( int j = 1; j <= right.length(); j++ )
+            {
+                final int cost = left.charAt( i - 1 ) == right.charAt( j - 1 ) ? 0
+                    : 1;
+                int distance = Math.min( Math.min( previous[j] + 1,
+                    current[j - 1] + 1 ), previous[j - 1] + cost );
+                if ( i > 1 && j > 1
+                    && left.charAt( i - 1 ) == right.charAt( j - 2 )
+                    && left.charAt( i - 2 ) == right.charAt( j - 1 ) )
+                {
+                    distance = Math.min( distance, next[j - 2] + 1 );
+                }
+                current[j] = distance;
+                rowMinimum = Math.min( rowMinimum, distance );
+            }
+            if ( rowMinimum > maximum )
+            {
+                return maximum + 1;
+            }
+        }
+        return Math.min( current[right.length()], maximum + 1 );
+    }
+
+    private int[] wordsWith( final long trigram )
+    {
+        final long slot = slots.get( trigram );
+        return slot == LongLongMap.MISSING ? NO_WORDS : postings[(int) slot];
+    }
+
+    /**
+     * Returns the distinct trigrams of a word padded with boundary marks,
+     * each packed into a long.
+     */
+    private static long[] trigrams( final String word )
+    {
+        final String padded = "" + BOUNDARY + BOUNDARY + word + BOUNDARY
+            + BOUNDARY;
+        final LongLongMap seen = new LongLongMap( padded.length() );
+        final LongList trigrams = new LongList();
+        for ( int i = 0; i + 3 <= padded.length(); i++ )
+        {
+            final long trigram = ((long) padded.charAt( i ) << 32)
+                | ((long) padded.charAt( i + 1 ) << 16) | padded.charAt( i + 2 );
+            if ( seen.put( trigram, 1 ) == LongLongMap.MISSING )
+            {
+                trigrams.add( trigram );
+            }
+        }
+        return trigrams.toArray();
+    }
+}
@@ -18,12 +18,11 @@
  */
 package org.neo4j.examples.imdb.web;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
 
 import javax.servlet.ServletException;
 
@@ -31,13 +30,25 @@ import org.neo4j.examples.imdb.domain.Actor;
 import org.neo4j.examples.imdb.domain.ImdbService;
 import org.neo4j.examples.imdb.domain.Movie;
 import org.neo4j.examples.imdb.domain.Role;
+import org.neo4j.examples.imdb.domain.SearchHit;
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.examples.imdb.util.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 public class ActorFindControllerDelegate implements FindControllerDelegate
 {
+    private static final int MATCHES_PER_PAGE = 10;
+    // deeper pages cost a bigger heap in the search
+    private static final int MAXIMUM_PAGE = 50;
+    private static final int MOVIES_PER_PAGE = 100;
+
     @Autowired
     private ImdbService imdbService;
+    @Autowired
+    private PageModelCache pageModelCache;
+    @Autowired
+    private Metrics metrics;
 
     @Override
     public String getFieldName()
@@ -50,47 +61,127 @@ public class ActorFindControllerDelegate implements FindControllerDelegate
     public void getModel( final Object command, final Map<String,Object> model )
         throws ServletException
     {
-        final String name = ((ActorForm) command).getName();
+        final long start = System.nanoTime();
+        final ActorForm form = (ActorForm) command;
+        final String name = form.getName();
         final Actor actor = imdbService.getActor( name );
-        populateModel( model, actor );
+        populateModel( model, actor, form.getRolePage() );
+        populateMatches( model, name, form.getPage() );
+        metrics.recordSince( "page.actor.micros", start );
+    }
+
+    private void populateMatches( final Map<String,Object> model,
+        final String name, final int requestedPage )
+    {
+        final int page = Math.min( Math.max( requestedPage, 0 ), MAXIMUM_PAGE );
+        // one more than fits on the page, to know if there is a next page
+        final List<SearchHit<Actor>> hits = imdbService.findActors( name, page
+            * MATCHES_PER_PAGE, MATCHES_PER_PAGE + 1 );
+        final List<MatchInfo> matches = new ArrayList<MatchInfo>();
+        for ( SearchHit<Actor> hit : hits.subList( 0, Math.min( hits.size(),
+            MATCHES_PER_PAGE ) ) )
+        {
+            matches.add( new MatchInfo( hit.getItem().getName(), hit
+                .getScore() ) );
+        }
+        model.put( "query", name );
+        model.put( "matches", matches );
+        model.put( "page", page );
+        model.put( "hasNextPage", hits.size() > MATCHES_PER_PAGE
+            && page < MAXIMUM_PAGE );
     }
 
     private void populateModel( final Map<String,Object> model,
-        final Actor actor )
+        final Actor actor, final int requestedRolePage )
     {
         if ( actor == null )
         {
             model.put( "actorName", "No actor found" );
             model.put( "kevinBaconNumber", "" );
-            model.put( "movieTitles", Collections.emptyList() );
+            model.put( "movieInfo", Collections.emptyList() );
         }
         else
         {
-            model.put( "actorName", actor.getName() );
-            final List<?> baconPathList = imdbService.getBaconPath( actor );
-            model.put( "kevinBaconNumber", baconPathList.size() / 2 );
-            final Collection<MovieInfo> movieInfo = new TreeSet<MovieInfo>();
-            for ( Movie movie : actor.getMovies() )
-            {
-                movieInfo.add( new MovieInfo( movie, actor.getRole( movie ) ) );
-            }
-            model.put( "movieInfo", movieInfo );
-            final List<String> baconPath = new LinkedList<String>();
-            for ( Object actorOrMovie : baconPathList )
-            {
-                if ( actorOrMovie instanceof Actor )
+            final List<Role> filmography = imdbService.getFilmography( actor );
+            // pages past the end show the last one, and are cached as it
+            final int rolePage = Math.min( Math.max( requestedRolePage, 0 ),
+                getLastPage( filmography ) );
+            model.putAll( pageModelCache.getPage( actor.getId(), rolePage,
+                new LruCache.Loader<PageModelCache.PageKey,Map<String,Object>>()
                 {
-                    baconPath.add( ((Actor) actorOrMovie).getName() );
-                }
-                else if ( actorOrMovie instanceof Movie )
+                    @Override
+                    public Map<String,Object> load(
+                        final PageModelCache.PageKey key )
+                    {
+                        return loadPage( actor, filmography, rolePage );
+                    }
+                } ) );
+            final List<String> baconPath = pageModelCache.getBaconPath( actor
+                .getId(), new LruCache.Loader<Long,List<String>>()
+            {
+                @Override
+                public List<String> load( final Long actorId )
                 {
-                    baconPath.add( ((Movie) actorOrMovie).getTitle() );
+                    return loadBaconPath( actor );
                 }
-            }
+            } );
+            model.put( "kevinBaconNumber", baconPath.size() / 2 );
             model.put( "baconPath", baconPath );
         }
     }
 
+    /**
+     * Only the requested page of the filmography is read, in the order kept
+     * by the service, so the model has the same size for any actor.
+     */
+    private static void populateRoles( final Map<String,Object> model,
+        final List<Role> filmography, final int rolePage )
+    {
+        final int from = rolePage * MOVIES_PER_PAGE;
+        final int to = Math.min( from + MOVIES_PER_PAGE, filmography.size() );
+        final List<MovieInfo> movieInfo = new ArrayList<MovieInfo>( to - from );
+        for ( Role role : filmography.subList( from, to ) )
+        {
+            movieInfo.add( new MovieInfo( role.getMovie(), role ) );
+        }
+        model.put( "movieInfo", movieInfo );
+        model.put( "movieCount", filmography.size() );
+        model.put( "rolePage", rolePage );
+        model.put( "hasNextRolePage", rolePage < getLastPage( filmography ) );
+    }
+
+    private static int getLastPage( final List<Role> filmography )
+    {
+        return Math.max( filmography.size() - 1, 0 ) / MOVIES_PER_PAGE;
+    }
+
+    private static Map<String,Object> loadPage( final Actor actor,
+        final List<Role> filmography, final int rolePage )
+    {
+        final Map<String,Object> page = new HashMap<String,Object>();
+        page.put( "actorName", actor.getName() );
+        populateRoles( page, filmography, rolePage );
+        return Collections.unmodifiableMap( page );
+    }
+
+    private List<String> loadBaconPath( final Actor actor )
+    {
+        final List<?> baconPathList = imdbService.getBaconPath( actor );
+        final List<String> baconPath = new ArrayList<String>();
+        for ( Object actorOrMovie : baconPathList )
+        {
+            if ( actorOrMovie instanceof Actor )
+            {
+                baconPath.add( ((Actor) actorOrMovie).getName() );
+            }
+            else if ( actorOrMovie instanceof Movie )
+            {
+                baconPath.add( ((Movie) actorOrMovie).getTitle() );
+            }
+        }
+        return Collections.unmodifiableList( baconPath );
+    }
+
     public static final class MovieInfo implements Comparable<MovieInfo>
     {
         private String title;
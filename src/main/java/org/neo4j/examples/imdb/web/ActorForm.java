@@ -21,6 +21,8 @@ package org.neo4j.examples.imdb.web;
 public class ActorForm
 {
     private String name;
+    private int page;
+    private int rolePage;
 
     public void setName( final String name )
     {
@@ -31,4 +33,32 @@ public class ActorForm
     {
         return this.name;
     }
+
+    public void setPage( final int page )
+    {
+        this.page = page;
+    }
+
+    /**
+     * Returns the page of other matches to show, starting at 0.
+     * @return the page number
+     */
+    public int getPage()
+    {
+        return this.page;
+    }
+
+    public void setRolePage( final int rolePage )
+    {
+        this.rolePage = rolePage;
+    }
+
+    /**
+     * Returns the page of movies to show, starting at 0.
+     * @return the page number
+     */
+    public int getRolePage()
+    {
+        return this.rolePage;
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.neo4j.examples.imdb.domain.ImdbService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.AbstractController;
+
+/**
+ * Answers type-ahead requests of the find pages with a JSON array of actor
+ * names or movie titles starting with the <code>q</code> parameter.
+ */
+public class CompletionController extends AbstractController
+{
+    private static final int MAXIMUM_COMPLETIONS = 10;
+
+    @Autowired
+    private ImdbService imdbService;
+    private boolean movies = false;
+
+    /**
+     * Complete movie titles instead of actor names.
+     * @param movies
+     *            <code>true</code> for movie titles
+     */
+    public void setMovies( final boolean movies )
+    {
+        this.movies = movies;
+    }
+
+    @Override
+    protected ModelAndView handleRequestInternal(
+        final HttpServletRequest request, final HttpServletResponse response )
+        throws IOException
+    {
+        final String prefix = ServletRequestUtils.getStringParameter( request,
+            "q", "" );
+        final List<String> completions;
+        if ( prefix.trim().length() == 0 )
+        {
+            completions = Collections.emptyList();
+        }
+        else if ( movies )
+        {
+            completions = imdbService.completeMovieTitles( prefix,
+                MAXIMUM_COMPLETIONS );
+        }
+        else
+        {
+            completions = imdbService.completeActorNames( prefix,
+                MAXIMUM_COMPLETIONS );
+        }
+        response.setContentType( "application/json" );
+        response.setCharacterEncoding( "UTF-8" );
+        response.getWriter().print( Json.array( completions ) );
+        return null;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the few JSON values the web layer answers with.
+ */
+final class Json
+{
+    private Json()
+    {
+    }
+
+    /**
+     * Returns a string as a quoted JSON string.
+     * @param value
+     *            the string
+     * @return the JSON string
+     */
+    static String quote( final String value )
+    {
+        final StringBuilder json = new StringBuilder( value.length() + 2 );
+        json.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            final char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    json.append( "\\\"" );
+                    break;
+                case '\\':
+                    json.append( "\\\\" );
+                    break;
+                case '\n':
+                    json.append( "\\n" );
+                    break;
+                case '\r':
+                    json.append( "\\r" );
+                    break;
+                case '\t':
+                    json.append( "\\t" );
+                    break;
+                default:
+                    // also keeps "</" from ending a script element
+                    if ( c < 0x20 || c == '<' || c > 0x7e )
+                    {
+                        json.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        json.append( c );
+                    }
+            }
+        }
+        return json.append( '"' ).toString();
+    }
+
+    /**
+     * Returns values as a JSON array.
+     * @param values
+     *            the values, as taken by {@link #value(Object)}
+     * @return the JSON array
+     */
+    static String array( final List<?> values )
+    {
+        final StringBuilder json = new StringBuilder( "[" );
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            if ( i > 0 )
+            {
+                json.append( ',' );
+            }
+            json.append( value( values.get( i ) ) );
+        }
+        return json.append( ']' ).toString();
+    }
+
+    /**
+     * Returns a map as a JSON object, in the iteration order of the map.
+     * @param values
+     *            the values by key, as taken by {@link #value(Object)}
+     * @return the JSON object
+     */
+    static String object( final Map<String,?> values )
+    {
+        final StringBuilder json = new StringBuilder( "{" );
+        for ( Map.Entry<String,?> entry : values.entrySet() )
+        {
+            if ( json.length() > 1 )
+            {
+                json.append( ',' );
+            }
+            json.append( quote( entry.getKey() ) ).append( ':' ).append(
+                value( entry.getValue() ) );
+        }
+        return json.append( '}' ).toString();
+    }
+
+    /**
+     * Returns a string, number, boolean, list or map with string keys as a
+     * JSON value. Numbers that JSON can not hold and <code>null</code>
+     * become <code>null</code>.
+     * @param value
+     *            the value
+     * @return the JSON value
+     */
+    @SuppressWarnings( "unchecked" )
+    static String value( final Object value )
+    {
+        if ( value instanceof String )
+        {
+            return quote( (String) value );
+        }
+        if ( value instanceof Double || value instanceof Float )
+        {
+            final double number = ((Number) value).doubleValue();
+            return Double.isNaN( number ) || Double.isInfinite( number ) ? "null"
+                : String.valueOf( number );
+        }
+        if ( value instanceof Number || value instanceof Boolean )
+        {
+            return String.valueOf( value );
+        }
+        if ( value instanceof List )
+        {
+            return array( (List<?>) value );
+        }
+        if ( value instanceof Map )
+        {
+            return object( (Map<String,?>) value );
+        }
+        return "null";
+    }
+}
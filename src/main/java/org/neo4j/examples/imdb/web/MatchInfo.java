@@ -0,0 +1,48 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+/**
+ * An actor or movie on a page of search matches.
+ */
+public final class MatchInfo
+{
+    private final String name;
+    private final String score;
+
+    MatchInfo( final String name, final double score )
+    {
+        this.name = name;
+        this.score = String.format( "%.2f", score );
+    }
+
+    /**
+     * Returns the name of the actor or the title of the movie.
+     * @return name or title
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getScore()
+    {
+        return score;
+    }
+}
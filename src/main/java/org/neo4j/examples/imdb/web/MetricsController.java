@@ -0,0 +1,113 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.neo4j.examples.imdb.domain.ImdbService;
+import org.neo4j.examples.imdb.util.Histogram;
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.examples.imdb.util.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.AbstractController;
+
+/**
+ * Answers with the {@link Metrics} and the statistics of the caches as a
+ * JSON object, with <code>counters</code>, <code>histograms</code> and
+ * <code>caches</code> members. The same metrics are exported over JMX.
+ */
+public class MetricsController extends AbstractController
+{
+    private static final int[] PERCENTILES = { 50, 90, 99 };
+
+    @Autowired
+    private Metrics metrics;
+    @Autowired
+    private ImdbService imdbService;
+    @Autowired
+    private PageModelCache pageModelCache;
+
+    @Override
+    protected ModelAndView handleRequestInternal(
+        final HttpServletRequest request, final HttpServletResponse response )
+        throws IOException
+    {
+        final Map<String,Object> json = new LinkedHashMap<String,Object>();
+        json.put( "counters", metrics.getCounters() );
+        final Map<String,Object> histograms = new LinkedHashMap<String,Object>();
+        for ( Map.Entry<String,Histogram> entry : metrics.getHistograms()
+            .entrySet() )
+        {
+            histograms.put( entry.getKey(), summarize( entry.getValue() ) );
+        }
+        json.put( "histograms", histograms );
+        final List<Object> caches = new ArrayList<Object>();
+        for ( LruCache.Statistics statistics : imdbService
+            .getLookupCacheStatistics() )
+        {
+            caches.add( summarize( statistics ) );
+        }
+        for ( LruCache.Statistics statistics : pageModelCache.getStatistics() )
+        {
+            caches.add( summarize( statistics ) );
+        }
+        json.put( "caches", caches );
+        response.setContentType( "application/json" );
+        response.setCharacterEncoding( "UTF-8" );
+        response.getWriter().print( Json.object( json ) );
+        return null;
+    }
+
+    private static Map<String,Object> summarize( final Histogram histogram )
+    {
+        final Map<String,Object> summary = new LinkedHashMap<String,Object>();
+        summary.put( "count", histogram.getCount() );
+        summary.put( "mean", histogram.getMean() );
+        for ( int percentile : PERCENTILES )
+        {
+            summary.put( "p" + percentile, histogram
+                .getValueAtPercentile( percentile ) );
+        }
+        summary.put( "max", histogram.getMax() );
+        return summary;
+    }
+
+    private static Map<String,Object> summarize(
+        final LruCache.Statistics statistics )
+    {
+        final Map<String,Object> summary = new LinkedHashMap<String,Object>();
+        summary.put( "name", statistics.getName() );
+        summary.put( "capacity", statistics.getCapacity() );
+        summary.put( "size", statistics.getSize() );
+        summary.put( "weight", statistics.getWeight() );
+        summary.put( "hits", statistics.getHits() );
+        summary.put( "misses", statistics.getMisses() );
+        summary.put( "evictions", statistics.getEvictions() );
+        summary.put( "hitRatio", statistics.getHitRatio() );
+        return summary;
+    }
+}
@@ -18,10 +18,11 @@
  */
 package org.neo4j.examples.imdb.web;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
 
 import javax.servlet.ServletException;
 
@@ -29,13 +30,25 @@ import org.neo4j.examples.imdb.domain.Actor;
 import org.neo4j.examples.imdb.domain.ImdbService;
 import org.neo4j.examples.imdb.domain.Movie;
 import org.neo4j.examples.imdb.domain.Role;
+import org.neo4j.examples.imdb.domain.SearchHit;
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.examples.imdb.util.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 public class MovieFindControllerDelegate implements FindControllerDelegate
 {
+    private static final int MATCHES_PER_PAGE = 10;
+    // deeper pages cost a bigger heap in the search
+    private static final int MAXIMUM_PAGE = 50;
+    private static final int ACTORS_PER_PAGE = 100;
+
     @Autowired
     private ImdbService imdbService;
+    @Autowired
+    private PageModelCache pageModelCache;
+    @Autowired
+    private Metrics metrics;
 
     @Override
     public String getFieldName()
@@ -48,31 +61,97 @@ public class MovieFindControllerDelegate implements FindControllerDelegate
     public void getModel( final Object command, final Map<String,Object> model )
         throws ServletException
     {
-        final String title = ((MovieForm) command).getTitle();
+        final long start = System.nanoTime();
+        final MovieForm form = (MovieForm) command;
+        final String title = form.getTitle();
         final Movie movie = imdbService.getMovie( title );
-        populateModel( model, movie );
+        populateModel( model, movie, form.getRolePage() );
+        populateMatches( model, title, form.getPage() );
+        metrics.recordSince( "page.movie.micros", start );
+    }
+
+    private void populateMatches( final Map<String,Object> model,
+        final String title, final int requestedPage )
+    {
+        final int page = Math.min( Math.max( requestedPage, 0 ), MAXIMUM_PAGE );
+        // one more than fits on the page, to know if there is a next page
+        final List<SearchHit<Movie>> hits = imdbService.findMovies( title, page
+            * MATCHES_PER_PAGE, MATCHES_PER_PAGE + 1 );
+        final List<MatchInfo> matches = new ArrayList<MatchInfo>();
+        for ( SearchHit<Movie> hit : hits.subList( 0, Math.min( hits.size(),
+            MATCHES_PER_PAGE ) ) )
+        {
+            matches.add( new MatchInfo( hit.getItem().getTitle(), hit
+                .getScore() ) );
+        }
+        model.put( "query", title );
+        model.put( "matches", matches );
+        model.put( "page", page );
+        model.put( "hasNextPage", hits.size() > MATCHES_PER_PAGE
+            && page < MAXIMUM_PAGE );
     }
 
     private void populateModel( final Map<String,Object> model,
-        final Movie movie )
+        final Movie movie, final int requestedRolePage )
     {
         if ( movie == null )
         {
             model.put( "movieTitle", "No movie found" );
-            model.put( "actorNames", Collections.emptyList() );
+            model.put( "actorInfo", Collections.emptyList() );
         }
         else
         {
-            model.put( "movieTitle", movie.getTitle() );
-            final Collection<ActorInfo> actorInfo = new TreeSet<ActorInfo>();
-            for ( Actor actor : movie.getActors() )
-            {
-                actorInfo.add( new ActorInfo( actor, actor.getRole( movie ) ) );
-            }
-            model.put( "actorInfo", actorInfo );
+            final List<Role> cast = imdbService.getCast( movie );
+            // pages past the end show the last one, and are cached as it
+            final int rolePage = Math.min( Math.max( requestedRolePage, 0 ),
+                getLastPage( cast ) );
+            model.putAll( pageModelCache.getPage( movie.getId(), rolePage,
+                new LruCache.Loader<PageModelCache.PageKey,Map<String,Object>>()
+                {
+                    @Override
+                    public Map<String,Object> load(
+                        final PageModelCache.PageKey key )
+                    {
+                        return loadPage( movie, cast, rolePage );
+                    }
+                } ) );
         }
     }
 
+    /**
+     * Only the requested page of the cast is read, in the order kept by the
+     * service, so the model has the same size for any movie.
+     */
+    private static void populateRoles( final Map<String,Object> model,
+        final List<Role> cast, final int rolePage )
+    {
+        final int from = rolePage * ACTORS_PER_PAGE;
+        final int to = Math.min( from + ACTORS_PER_PAGE, cast.size() );
+        final List<ActorInfo> actorInfo = new ArrayList<ActorInfo>( to - from );
+        for ( Role role : cast.subList( from, to ) )
+        {
+            actorInfo.add( new ActorInfo( role.getActor(), role ) );
+        }
+        model.put( "actorInfo", actorInfo );
+        model.put( "actorCount", cast.size() );
+        model.put( "rolePage", rolePage );
+        model.put( "hasNextRolePage", rolePage < getLastPage( cast ) );
+    }
+
+    private static int getLastPage( final List<Role> cast )
+    {
+        return Math.max( cast.size() - 1, 0 ) / ACTORS_PER_PAGE;
+    }
+
+    private static Map<String,Object> loadPage( final Movie movie,
+        final List<Role> cast, final int rolePage )
+    {
+        final Map<String,Object> page = new HashMap<String,Object>();
+        page.put( "movieTitle", movie.getTitle() );
+        populateRoles( page, cast, rolePage );
+        return Collections.unmodifiableMap( page );
+    }
+
     public static final class ActorInfo implements Comparable<ActorInfo>
     {
         private String name;
@@ -21,6 +21,8 @@ package org.neo4j.examples.imdb.web;
 public class MovieForm
 {
     private String title;
+    private int page;
+    private int rolePage;
 
     public void setTitle( final String title )
     {
@@ -31,4 +33,32 @@ public class MovieForm
     {
         return this.title;
     }
+
+    public void setPage( final int page )
+    {
+        this.page = page;
+    }
+
+    /**
+     * Returns the page of other matches to show, starting at 0.
+     * @return the page number
+     */
+    public int getPage()
+    {
+        return this.page;
+    }
+
+    public void setRolePage( final int rolePage )
+    {
+        this.rolePage = rolePage;
+    }
+
+    /**
+     * Returns the page of actors to show, starting at 0.
+     * @return the page number
+     */
+    public int getRolePage()
+    {
+        return this.rolePage;
+    }
 }
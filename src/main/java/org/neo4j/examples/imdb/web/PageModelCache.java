@@ -0,0 +1,206 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.examples.imdb.domain.RelTypes;
+import org.neo4j.examples.imdb.util.LruCache;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * The parts of the actor and movie pages that are read from the graph, by
+ * node id of the actor or movie and page of its roles, so repeated views of
+ * a page do not touch the graph. The pages of an actor or movie are evicted
+ * when one of its roles is added or renamed. Bacon paths are cached apart
+ * from the pages, since any new role can make any of them shorter. Removed
+ * roles and deleted nodes can not be traced to the pages showing them and
+ * evict everything.
+ */
+public class PageModelCache
+{
+    private static final int CAPACITY = 1000;
+
+    private final LruCache<PageKey,Map<String,Object>> pages = new LruCache<PageKey,Map<String,Object>>(
+        "pages", CAPACITY );
+    private final LruCache<Long,List<String>> baconPaths = new LruCache<Long,List<String>>(
+        "bacon paths", CAPACITY );
+
+    private GraphDatabaseService graphDbService;
+    private final TransactionEventHandler<Void> changeHandler = new TransactionEventHandler.Adapter<Void>()
+    {
+        @Override
+        public void afterCommit( final TransactionData data, final Void state )
+        {
+            graphChanged( data );
+        }
+    };
+
+    @Autowired
+    public void setGraphDbService( final GraphDatabaseService graphDbService )
+    {
+        this.graphDbService = graphDbService;
+        graphDbService.registerTransactionEventHandler( changeHandler );
+    }
+
+    public void shutdown()
+    {
+        graphDbService.unregisterTransactionEventHandler( changeHandler );
+    }
+
+    /**
+     * Returns the model of a page of an actor or movie.
+     * @param nodeId
+     *            node id of the actor or movie
+     * @param rolePage
+     *            the page of the roles shown
+     * @param loader
+     *            reads the model from the graph on a miss; the model must
+     *            not be changed afterwards
+     * @return the model
+     */
+    public Map<String,Object> getPage( final long nodeId, final int rolePage,
+        final LruCache.Loader<PageKey,Map<String,Object>> loader )
+    {
+        return pages.get( new PageKey( nodeId, rolePage ), loader );
+    }
+
+    /**
+     * Returns the names and titles on the Bacon path of an actor.
+     * @param actorId
+     *            node id of the actor
+     * @param loader
+     *            finds the path on a miss
+     * @return the path
+     */
+    public List<String> getBaconPath( final long actorId,
+        final LruCache.Loader<Long,List<String>> loader )
+    {
+        return baconPaths.get( actorId, loader );
+    }
+
+    public List<LruCache.Statistics> getStatistics()
+    {
+        final List<LruCache.Statistics> statistics = new ArrayList<LruCache.Statistics>();
+        statistics.add( pages.getStatistics() );
+        statistics.add( baconPaths.getStatistics() );
+        return statistics;
+    }
+
+    private void graphChanged( final TransactionData data )
+    {
+        if ( data.deletedRelationships().iterator().hasNext()
+            || data.deletedNodes().iterator().hasNext()
+            || data.assignedNodeProperties().iterator().hasNext() )
+        {
+            pages.invalidateAll();
+            baconPaths.invalidateAll();
+            return;
+        }
+        final Set<Long> changedNodes = new HashSet<Long>();
+        for ( Relationship rel : data.createdRelationships() )
+        {
+            if ( rel.isType( RelTypes.ACTS_IN ) )
+            {
+                roleChanged( rel, changedNodes );
+                baconPaths.invalidateAll();
+            }
+        }
+        for ( PropertyEntry<Relationship> entry : data
+            .assignedRelationshipProperties() )
+        {
+            roleChanged( entry.entity(), changedNodes );
+        }
+        for ( PropertyEntry<Relationship> entry : data
+            .removedRelationshipProperties() )
+        {
+            roleChanged( entry.entity(), changedNodes );
+        }
+        if ( !changedNodes.isEmpty() )
+        {
+            // one pass over the cache for the whole transaction
+            pages.removeAll( new LruCache.KeyFilter<PageKey>()
+            {
+                @Override
+                public boolean accept( final PageKey key )
+                {
+                    return changedNodes.contains( key.getNodeId() );
+                }
+            } );
+        }
+    }
+
+    private static void roleChanged( final Relationship rel,
+        final Set<Long> changedNodes )
+    {
+        changedNodes.add( rel.getStartNode().getId() );
+        changedNodes.add( rel.getEndNode().getId() );
+    }
+
+    /**
+     * A page of an actor or movie: the node and the page of its roles.
+     */
+    public static final class PageKey
+    {
+        private final long nodeId;
+        private final int rolePage;
+
+        PageKey( final long nodeId, final int rolePage )
+        {
+            this.nodeId = nodeId;
+            this.rolePage = rolePage;
+        }
+
+        public long getNodeId()
+        {
+            return nodeId;
+        }
+
+        public int getRolePage()
+        {
+            return rolePage;
+        }
+
+        @Override
+        public boolean equals( final Object other )
+        {
+            if ( !(other instanceof PageKey) )
+            {
+                return false;
+            }
+            final PageKey key = (PageKey) other;
+            return nodeId == key.nodeId && rolePage == key.rolePage;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int) (nodeId ^ (nodeId >>> 32)) * 31 + rolePage;
+        }
+    }
+}
@@ -20,4 +20,15 @@ package org.neo4j.examples.imdb.web;
 
 public class SetupForm
 {
+    private boolean delta;
+
+    public void setDelta( final boolean delta )
+    {
+        this.delta = delta;
+    }
+
+    public boolean isDelta()
+    {
+        return this.delta;
+    }
 }
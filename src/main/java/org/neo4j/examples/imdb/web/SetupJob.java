@@ -0,0 +1,207 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.neo4j.examples.imdb.domain.ImdbSearchEngine;
+import org.neo4j.examples.imdb.domain.ImdbService;
+import org.neo4j.examples.imdb.parser.CommitPolicy;
+import org.neo4j.examples.imdb.parser.DeltaImdbParser;
+import org.neo4j.examples.imdb.parser.DeltaImdbReader;
+import org.neo4j.examples.imdb.parser.ImdbParser;
+import org.neo4j.examples.imdb.parser.ImportProgress;
+import org.neo4j.examples.imdb.parser.ParallelImdbParser;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Imports the imdb lists in the background, one import at a time, so the
+ * setup page can answer at once and show the {@link ImportProgress} while
+ * the import runs.
+ */
+public class SetupJob
+{
+    public enum State
+    {
+        IDLE, RUNNING, DONE, FAILED
+    }
+
+    private static final String IMDB_DATADIR = "target/classes/data/";
+    private static final String REFERENCE_PHASE = "reference relationship";
+
+    @Autowired
+    private DeltaImdbReader imdbReader;
+    @Autowired
+    private ImdbService imdbService;
+    @Autowired
+    private ImdbSearchEngine searchEngine;
+    @Autowired
+    private CommitPolicy commitPolicy;
+    private final ExecutorService runner = Executors
+        .newSingleThreadExecutor( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( final Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, "imdb-setup" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+    // guarded by this
+    private State state = State.IDLE;
+    private ImportProgress progress = null;
+    private String message = "";
+
+    public void shutdown()
+    {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Start an import, unless one is running already.
+     * @param delta
+     *            <code>true</code> to only apply the changes of new lists
+     * @return <code>false</code> if an import was running already
+     */
+    public synchronized boolean start( final boolean delta )
+    {
+        if ( state == State.RUNNING )
+        {
+            return false;
+        }
+        state = State.RUNNING;
+        message = "";
+        final ImportProgress started = new ImportProgress();
+        progress = started;
+        runner.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runImport( delta, started );
+            }
+        } );
+        return true;
+    }
+
+    /**
+     * Wait for the running import, if any, to finish.
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public synchronized void await() throws InterruptedException
+    {
+        while ( state == State.RUNNING )
+        {
+            wait();
+        }
+    }
+
+    public synchronized State getState()
+    {
+        return state;
+    }
+
+    /**
+     * Returns the progress of the last import.
+     * @return the progress, <code>null</code> if there was no import
+     */
+    public synchronized ImportProgress getProgress()
+    {
+        return progress;
+    }
+
+    /**
+     * Returns the report of the last finished import.
+     * @return the report, empty while the import runs
+     */
+    public synchronized String getMessage()
+    {
+        return message;
+    }
+
+    private void runImport( final boolean delta, final ImportProgress progress )
+    {
+        final StringBuffer report = new StringBuffer( 200 );
+        State outcome = State.FAILED;
+        try
+        {
+            final String movieFile = IMDB_DATADIR + "movies.list.gz";
+            final String actorFile = IMDB_DATADIR + "actors.list.gz";
+            final String actressFile = IMDB_DATADIR + "actresses.list.gz";
+            progress.expect( movieFile, actorFile, actressFile );
+            if ( delta )
+            {
+                final DeltaImdbParser parser = new DeltaImdbParser(
+                    imdbReader, commitPolicy );
+                parser.setProgress( progress );
+                report.append(
+                    parser.parseDelta( movieFile, actorFile, actressFile ) )
+                    .append( '\n' );
+            }
+            else
+            {
+                final ImdbParser parser = new ParallelImdbParser( imdbReader,
+                    Runtime.getRuntime().availableProcessors(), commitPolicy );
+                parser.setProgress( progress );
+                report.append( parser.parseMovies( movieFile ) ).append( '\n' );
+                report.append( parser.parseActors( actorFile, actressFile ) )
+                    .append( '\n' );
+            }
+            progress.setPhase( REFERENCE_PHASE );
+            imdbService.setupReferenceRelationship();
+            outcome = State.DONE;
+        }
+        catch ( IOException e )
+        {
+            reportFailure( report, e.getMessage() );
+        }
+        catch ( RuntimeException e )
+        {
+            reportFailure( report, e.toString() );
+        }
+        finally
+        {
+            searchEngine.clearIndexCache();
+            finished( outcome, report.toString() );
+        }
+    }
+
+    private static void reportFailure( final StringBuffer report,
+        final String cause )
+    {
+        report.append( "Something went wrong during the setup process:\n" )
+            .append( cause ).append(
+                "\nRun the setup again to resume after the last "
+                    + "committed batch." );
+    }
+
+    private synchronized void finished( final State outcome,
+        final String report )
+    {
+        state = outcome;
+        message = report;
+        notifyAll();
+    }
+}
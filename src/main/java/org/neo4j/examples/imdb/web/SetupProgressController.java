@@ -0,0 +1,81 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.neo4j.examples.imdb.parser.ImportProgress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.AbstractController;
+
+/**
+ * Answers with the state of the {@link SetupJob} as a JSON object, for the
+ * setup page to poll while the import runs. The progress members are left
+ * out before the first import.
+ */
+public class SetupProgressController extends AbstractController
+{
+    @Autowired
+    private SetupJob setupJob;
+
+    @Override
+    protected ModelAndView handleRequestInternal(
+        final HttpServletRequest request, final HttpServletResponse response )
+        throws IOException
+    {
+        final Map<String,Object> json = new LinkedHashMap<String,Object>();
+        // the state first, so a finished state comes with its report
+        json.put( "state", setupJob.getState().name().toLowerCase() );
+        json.put( "message", setupJob.getMessage() );
+        final ImportProgress progress = setupJob.getProgress();
+        if ( progress != null )
+        {
+            json.put( "phase", progress.getPhase() );
+            json.put( "elapsedSeconds", progress.getElapsedSeconds() );
+            json.put( "linesRead", progress.getLinesRead() );
+            json.put( "entitiesWritten", progress.getEntitiesWritten() );
+            json.put( "entitiesPerSecond", progress.getEntitiesPerSecond() );
+            json.put( "secondsLeft", progress.getSecondsLeft() );
+            final List<Object> lists = new ArrayList<Object>();
+            for ( ImportProgress.ListProgress list : progress.getLists() )
+            {
+                final Map<String,Object> summary = new LinkedHashMap<String,Object>();
+                summary.put( "name", list.getName() );
+                summary.put( "linesRead", list.getLinesRead() );
+                summary.put( "bytesRead", list.getBytesRead() );
+                summary.put( "bytes", list.getBytes() );
+                summary.put( "done", list.isDone() );
+                lists.add( summary );
+            }
+            json.put( "lists", lists );
+        }
+        response.setContentType( "application/json" );
+        response.setCharacterEncoding( "UTF-8" );
+        response.getWriter().print( Json.object( json ) );
+        return null;
+    }
+}
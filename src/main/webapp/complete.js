@@ -0,0 +1,53 @@
+/*
+ * Type-ahead for the find pages: offers the completions answered by
+ * CompletionController in a datalist of the input field.
+ */
+function complete( inputId, url )
+{
+    var input = document.getElementById( inputId );
+    if ( !input || !window.XMLHttpRequest )
+    {
+        return;
+    }
+    var list = document.createElement( "datalist" );
+    list.id = inputId + "Completions";
+    input.parentNode.appendChild( list );
+    input.setAttribute( "list", list.id );
+    input.setAttribute( "autocomplete", "off" );
+    var pending = null;
+    input.oninput = function()
+    {
+        if ( pending )
+        {
+            pending.abort();
+            pending = null;
+        }
+        if ( input.value.replace( /\s+/g, "" ).length < 2 )
+        {
+            return;
+        }
+        var request = new XMLHttpRequest();
+        // the pages are ISO-8859-1, and so is the decoding of parameters
+        request.open( "GET", url + "?q=" + escape( input.value ), true );
+        request.onreadystatechange = function()
+        {
+            if ( request.readyState != 4 || request.status != 200 )
+            {
+                return;
+            }
+            var completions = JSON.parse( request.responseText );
+            while ( list.firstChild )
+            {
+                list.removeChild( list.firstChild );
+            }
+            for ( var i = 0; i < completions.length; i++ )
+            {
+                var option = document.createElement( "option" );
+                option.value = completions[i];
+                list.appendChild( option );
+            }
+        };
+        pending = request;
+        request.send( null );
+    };
+}
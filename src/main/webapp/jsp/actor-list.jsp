@@ -5,7 +5,8 @@
 </head>
 <body>
 <h1><c:out value="${model.movieTitle}" /></h1>
-<h3>Actors</h3>
+<h3>Actors<c:if test="${!empty model.actorCount}"> (<c:out
+	value="${model.actorCount}" />)</c:if></h3>
 <ul class="actors">
 	<c:forEach items="${model.actorInfo}" var="actorInfo">
 		<c:url value="actor.html" var="actorURL">
@@ -16,6 +17,44 @@
 			value="${actorInfo.role}" /></em></li>
 	</c:forEach>
 </ul>
+<p><c:if test="${model.rolePage > 0}">
+	<c:url value="movie.html" var="previousRolesURL">
+		<c:param name="title" value="${model.movieTitle}" />
+		<c:param name="rolePage" value="${model.rolePage - 1}" />
+	</c:url>
+	<a href='<c:out value="${previousRolesURL}"/>'>Previous actors</a>
+</c:if> <c:if test="${model.hasNextRolePage}">
+	<c:url value="movie.html" var="nextRolesURL">
+		<c:param name="title" value="${model.movieTitle}" />
+		<c:param name="rolePage" value="${model.rolePage + 1}" />
+	</c:url>
+	<a href='<c:out value="${nextRolesURL}"/>'>Next actors</a>
+</c:if></p>
+<c:if test="${!empty model.matches}">
+	<h3>Other matches</h3>
+	<ul class="movies">
+		<c:forEach items="${model.matches}" var="match">
+			<c:url value="movie.html" var="matchURL">
+				<c:param name="title" value="${match.name}" />
+			</c:url>
+			<li class="movie"><a href='<c:out value="${matchURL}"/>'><c:out
+				value="${match.name}" /></a> <em><c:out value="${match.score}" /></em></li>
+		</c:forEach>
+	</ul>
+	<p><c:if test="${model.page > 0}">
+		<c:url value="movie.html" var="previousURL">
+			<c:param name="title" value="${model.query}" />
+			<c:param name="page" value="${model.page - 1}" />
+		</c:url>
+		<a href='<c:out value="${previousURL}"/>'>Previous</a>
+	</c:if> <c:if test="${model.hasNextPage}">
+		<c:url value="movie.html" var="nextURL">
+			<c:param name="title" value="${model.query}" />
+			<c:param name="page" value="${model.page + 1}" />
+		</c:url>
+		<a href='<c:out value="${nextURL}"/>'>Next</a>
+	</c:if></p>
+</c:if>
 <%@ include file="/jsp/menu.jsp"%>
 </body>
 </html>
@@ -11,6 +11,8 @@
 	name</label> <form:input path="name" cssClass="inputField" /> <br>
 	<input type="submit" value="Search"></fieldset>
 </form:form>
+<script type="text/javascript" src="/imdb/complete.js"></script>
+<script type="text/javascript">complete( "name", "actor-complete.html" );</script>
 <%@ include file="/jsp/menu.jsp"%>
 </body>
 </html>
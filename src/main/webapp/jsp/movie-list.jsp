@@ -30,7 +30,7 @@
 			<li class="${cssClass}"><a href='<c:out value="${pathElementURL}"/>'>${pathElement}</a></li>
 		</c:forEach>
 	</ul>
-	<h3>Movies</h3>
+	<h3>Movies (<c:out value="${model.movieCount}" />)</h3>
 	<ul class="movies">
 		<c:forEach items="${model.movieInfo}" var="movieInfo">
 			<c:url value="movie.html" var="movieURL">
@@ -41,6 +41,44 @@
 				value="${movieInfo.title}" /></a></li>
 		</c:forEach>
 	</ul>
+	<p><c:if test="${model.rolePage > 0}">
+		<c:url value="actor.html" var="previousRolesURL">
+			<c:param name="name" value="${model.actorName}" />
+			<c:param name="rolePage" value="${model.rolePage - 1}" />
+		</c:url>
+		<a href='<c:out value="${previousRolesURL}"/>'>Previous movies</a>
+	</c:if> <c:if test="${model.hasNextRolePage}">
+		<c:url value="actor.html" var="nextRolesURL">
+			<c:param name="name" value="${model.actorName}" />
+			<c:param name="rolePage" value="${model.rolePage + 1}" />
+		</c:url>
+		<a href='<c:out value="${nextRolesURL}"/>'>Next movies</a>
+	</c:if></p>
+</c:if>
+<c:if test="${!empty model.matches}">
+	<h3>Other matches</h3>
+	<ul class="actors">
+		<c:forEach items="${model.matches}" var="match">
+			<c:url value="actor.html" var="matchURL">
+				<c:param name="name" value="${match.name}" />
+			</c:url>
+			<li class="actor"><a href='<c:out value="${matchURL}"/>'><c:out
+				value="${match.name}" /></a> <em><c:out value="${match.score}" /></em></li>
+		</c:forEach>
+	</ul>
+	<p><c:if test="${model.page > 0}">
+		<c:url value="actor.html" var="previousURL">
+			<c:param name="name" value="${model.query}" />
+			<c:param name="page" value="${model.page - 1}" />
+		</c:url>
+		<a href='<c:out value="${previousURL}"/>'>Previous</a>
+	</c:if> <c:if test="${model.hasNextPage}">
+		<c:url value="actor.html" var="nextURL">
+			<c:param name="name" value="${model.query}" />
+			<c:param name="page" value="${model.page + 1}" />
+		</c:url>
+		<a href='<c:out value="${nextURL}"/>'>Next</a>
+	</c:if></p>
 </c:if>
 <%@ include file="/jsp/menu.jsp"%>
 </body>
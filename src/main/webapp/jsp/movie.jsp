@@ -11,6 +11,8 @@
 	title</label> <form:input path="title" cssClass="inputField" /> <br>
 	<input type="submit" value="Search"></fieldset>
 </form:form>
+<script type="text/javascript" src="/imdb/complete.js"></script>
+<script type="text/javascript">complete( "title", "movie-complete.html" );</script>
 <%@ include file="/jsp/menu.jsp"%>
 </body>
 </html>
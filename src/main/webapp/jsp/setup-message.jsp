@@ -5,8 +5,17 @@
 </head>
 <body>
 <h1>IMDB Setup</h1>
-<h3>Result</h3>
-<pre><c:out value="${model.setupMessage}"/></pre>
+<c:choose>
+	<c:when test="${model.started}">
+		<h3>The setup has started</h3>
+	</c:when>
+	<c:otherwise>
+		<h3>A setup is already running</h3>
+	</c:otherwise>
+</c:choose>
+<pre id="progress">Waiting for the progress of the setup...</pre>
+<script type="text/javascript" src="/imdb/progress.js"></script>
+<script type="text/javascript">pollProgress( "progress", "setup-progress.html" );</script>
 <br><br>
 <%@ include file="/jsp/menu.jsp"%>
 </body>
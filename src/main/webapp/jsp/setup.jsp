@@ -6,8 +6,10 @@
 </head>
 <body>
 <h1>IMDB powered by Neo4j</h1>
-<form:form method="post" commandName="neoSetup">
+<form:form method="post" commandName="imdbSetup">
 	<fieldset><legend class="setup">Inject data into the graph</legend>
+	<form:checkbox path="delta" id="delta" /> <label for="delta">Only
+	apply the changes of new lists to the graph</label> <br>
 	<input type="submit" value="Yes, inject the data!"></fieldset>
 </form:form>
 <%@ include file="/jsp/menu.jsp"%>
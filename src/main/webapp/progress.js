@@ -0,0 +1,67 @@
+/*
+ * Progress of the setup: polls the JSON answered by SetupProgressController
+ * and shows it in an element until the import is no longer running.
+ */
+function pollProgress( elementId, url )
+{
+    var element = document.getElementById( elementId );
+    if ( !element || !window.XMLHttpRequest )
+    {
+        return;
+    }
+    var poll = function()
+    {
+        var request = new XMLHttpRequest();
+        request.open( "GET", url, true );
+        request.onreadystatechange = function()
+        {
+            if ( request.readyState != 4 || request.status != 200 )
+            {
+                return;
+            }
+            var progress = JSON.parse( request.responseText );
+            element.innerHTML = "";
+            element.appendChild( document.createTextNode( describe( progress ) ) );
+            if ( progress.state == "running" )
+            {
+                setTimeout( poll, 1000 );
+            }
+        };
+        request.send( null );
+    };
+    poll();
+}
+
+function describe( progress )
+{
+    if ( progress.state == "idle" )
+    {
+        return "No setup has run yet.";
+    }
+    var text = "State: " + progress.state + "\n";
+    if ( progress.state == "running" )
+    {
+        text += "Phase: " + ( progress.phase || "starting" ) + "\n";
+    }
+    for ( var i = 0; i < progress.lists.length; i++ )
+    {
+        var list = progress.lists[i];
+        var percent = list.bytes > 0 ? Math.min( 100, Math.floor( 100
+            * list.bytesRead / list.bytes ) ) : 0;
+        text += "  " + list.name + ": " + ( list.done ? "done" : percent + "%" )
+            + ", " + list.linesRead + " lines read\n";
+    }
+    text += "Lines read: " + progress.linesRead + "\n";
+    text += "Entities written: " + progress.entitiesWritten + " ("
+        + Math.round( progress.entitiesPerSecond || 0 ) + " per second)\n";
+    text += "Elapsed: " + Math.round( progress.elapsedSeconds ) + " s";
+    if ( progress.state == "running" && progress.secondsLeft >= 0 )
+    {
+        text += ", about " + progress.secondsLeft + " s left";
+    }
+    if ( progress.message )
+    {
+        text += "\n\n" + progress.message;
+    }
+    return text;
+}
@@ -0,0 +1,221 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Lines of the movie and actor lists that the parser has to get right,
+ * taken from the odd corners of the real lists.
+ */
+public class ImdbParserTest
+{
+    @Test
+    public void parsesMovieAndYear()
+    {
+        final MovieData movie = parseMovie( "Plain Movie (1999)\t\t\t1999" );
+        Assert.assertEquals( "Plain Movie (1999)", movie.getTitle() );
+        Assert.assertEquals( 1999, movie.getYear() );
+    }
+
+    @Test
+    public void decodesLatin1Titles()
+    {
+        final MovieData movie = parseMovie( "Caf\u00e9 Latin (2005)\t\t2005" );
+        Assert.assertEquals( "Caf\u00e9 Latin (2005)", movie.getTitle() );
+    }
+
+    @Test
+    public void trimsTitleAndCarriageReturn()
+    {
+        final MovieData movie = parseMovie(
+            "  Spaced Title (2003)  \t\t2003\r" );
+        Assert.assertEquals( "Spaced Title (2003)", movie.getTitle() );
+        Assert.assertEquals( 2003, movie.getYear() );
+    }
+
+    @Test
+    public void takesFirstYearOfRange()
+    {
+        Assert.assertEquals( 2004, parseMovie( "Range (2004)\t\t\t2004-2006" )
+            .getYear() );
+    }
+
+    @Test
+    public void skipsMoviesNotImported()
+    {
+        Assert.assertNull( parseMovie( "" ) );
+        Assert.assertNull( parseMovie( "TV Thing (2001) (TV)\t\t2001" ) );
+        Assert.assertNull( parseMovie( "\"Series\" (2000)\t\t\t2000-2003" ) );
+        Assert.assertNull( parseMovie( "Episode (2000) {Pilot}\t\t2000" ) );
+        Assert.assertNull( parseMovie( "Unknown Year (????)\t\t????" ) );
+        Assert.assertNull( parseMovie( "NoTab line" ) );
+    }
+
+    @Test
+    public void parsesCharacterBeforeBilling()
+    {
+        assertRole( "Plain Movie (1999)", "Himself",
+            parseRole( "Bacon, Kevin\t\tPlain Movie (1999)  [Himself]  <1>" ) );
+        assertRole( "Spaced Title (2003)", "x",
+            parseRole( "\t\t\tSpaced Title (2003)   [x] <2>" ) );
+    }
+
+    @Test
+    public void dropsNotesFromTitle()
+    {
+        assertRole( "Caf\u00e9 Latin (2005)", "Waiter",
+            parseRole( "\t\t\tCaf\u00e9 Latin (2005)  (uncredited)"
+                + "  [Waiter]" ) );
+        assertRole( "Range (2004)", null,
+            parseRole( "\t\t\tRange (2004)  <3>" ) );
+        assertRole( "Short (2010)", null,
+            parseRole( "\t\t\tShort (2010)  (voice)" ) );
+    }
+
+    @Test
+    public void keepsFirstOfOddBrackets()
+    {
+        assertRole( "Broken (2001)  ]oops", null,
+            parseRole( "\t\t\tBroken (2001)  ]oops[" ) );
+        assertRole( "Odd (2001)", "ok",
+            parseRole( "\t\t\tOdd (2001)  [ok]  [two]" ) );
+    }
+
+    @Test
+    public void skipsRolesNotImported()
+    {
+        Assert.assertNull( parseRole( "\t\t\t\"Series\" (2000)  [Host]" ) );
+        Assert.assertNull( parseRole( "\t\t\tEpisode (2000) {Pilot}" ) );
+        Assert.assertNull( parseRole( "\t\t\tUnknown Year (????)" ) );
+        Assert.assertNull( parseRole( "\t\t\t" ) );
+    }
+
+    @Test
+    public void startsActorOnlyWithName()
+    {
+        Assert.assertTrue( isActorStart( "Bacon, Kevin\t\tShort (2010)" ) );
+        Assert.assertFalse( isActorStart( "\t\t\tShort (2010)" ) );
+        Assert.assertFalse( isActorStart( "   \t\t\tOrphan (2000)" ) );
+        Assert.assertFalse( isActorStart( "no tab" ) );
+    }
+
+    @Test
+    public void collectsActorsFromList() throws IOException
+    {
+        final List<ActorData> actors = collect( "Bacon, Kevin\t\t"
+            + "Plain Movie (1999)  [Himself]  <1>\n"
+            + "\t\t\t\"Series\" (2000)  [Host]\n"
+            + "\t\t\tShort (2010)  (voice)\n"
+            + "\r\n"
+            + "M\u00fcller, J\u00fcrgen\t"
+            + "Plain Movie (1999)  [Br\u00e4utigam]\r\n"
+            + "\t\t\tOdd (2001)  [ok]  [two]\n"
+            + "\n"
+            + "Nobody\t\t\t\"Only TV\" (1990)\n"
+            + "   \t\t\tOrphan (2000)\n"
+            + "Last, Actor\t\t\tShort (2010)" );
+        Assert.assertEquals( 4, actors.size() );
+        Assert.assertEquals( "Bacon, Kevin", actors.get( 0 ).getName() );
+        Assert.assertEquals( 2, actors.get( 0 ).getMovieRoles().length );
+        final ActorData mueller = actors.get( 1 );
+        Assert.assertEquals( "M\u00fcller, J\u00fcrgen", mueller.getName() );
+        assertRole( "Plain Movie (1999)", "Br\u00e4utigam", mueller
+            .getMovieRoles()[0] );
+        // a blank name continues the roles of the actor before it
+        Assert.assertEquals( "Nobody", actors.get( 2 ).getName() );
+        Assert.assertEquals( 1, actors.get( 2 ).getMovieRoles().length );
+        assertRole( "Orphan (2000)", null,
+            actors.get( 2 ).getMovieRoles()[0] );
+        Assert.assertEquals( "Last, Actor", actors.get( 3 ).getName() );
+    }
+
+    @Test
+    public void dropsActorWithoutRoles() throws IOException
+    {
+        final List<ActorData> actors = collect(
+            "Nobody\t\t\t\"Only TV\" (1990)\n"
+            + "Last, Actor\t\t\tShort (2010)\n" );
+        Assert.assertEquals( 1, actors.size() );
+        Assert.assertEquals( "Last, Actor", actors.get( 0 ).getName() );
+    }
+
+    private static void assertRole( final String title,
+        final String character, final RoleData role )
+    {
+        Assert.assertNotNull( role );
+        Assert.assertEquals( title, role.getTitle() );
+        Assert.assertEquals( character, role.getRole() );
+    }
+
+    private static List<ActorData> collect( final String list )
+        throws IOException
+    {
+        final ListReader reader = new ListReader( new ByteArrayInputStream(
+            bytes( list ) ) );
+        final ImdbParser.ActorCollector collector =
+            new ImdbParser.ActorCollector();
+        final List<ActorData> actors = new ArrayList<ActorData>();
+        while ( reader.next() )
+        {
+            final ActorData actor = collector.addLine( reader.getBytes(),
+                reader.getStart(), reader.getEnd() );
+            if ( actor != null )
+            {
+                actors.add( actor );
+            }
+        }
+        final ActorData lastActor = collector.finish();
+        if ( lastActor != null )
+        {
+            actors.add( lastActor );
+        }
+        return actors;
+    }
+
+    private static MovieData parseMovie( final String line )
+    {
+        final byte[] bytes = bytes( line );
+        return ImdbParser.parseMovieLine( bytes, 0, bytes.length );
+    }
+
+    private static RoleData parseRole( final String line )
+    {
+        final byte[] bytes = bytes( line );
+        return ImdbParser.parseRoleLine( bytes, line.indexOf( '\t' ),
+            bytes.length );
+    }
+
+    private static boolean isActorStart( final String line )
+    {
+        final byte[] bytes = bytes( line );
+        return ImdbParser.isActorStart( bytes, 0, bytes.length );
+    }
+
+    private static byte[] bytes( final String text )
+    {
+        return text.getBytes( ListTokenizer.CHARSET );
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ListReaderTest
+{
+    @Test
+    public void dropsLineTerminators() throws IOException
+    {
+        Assert.assertEquals( Arrays.asList( "a", "b", "", "c\u00e9" ),
+            readLines( "a\r\nb\n\nc\u00e9\n" ) );
+    }
+
+    @Test
+    public void readsLastLineWithoutTerminator() throws IOException
+    {
+        Assert.assertEquals( Arrays.asList( "a", "last" ),
+            readLines( "a\nlast" ) );
+        Assert.assertEquals( Arrays.asList( "only" ),
+            readLines( "only\r" ) );
+        Assert.assertTrue( readLines( "" ).isEmpty() );
+    }
+
+    @Test
+    public void growsBufferForLongLines() throws IOException
+    {
+        final StringBuilder longLine = new StringBuilder();
+        for ( int i = 0; i < 200000; i++ )
+        {
+            longLine.append( (char) ('a' + i % 26) );
+        }
+        final List<String> lines = readLines( "first\n" + longLine + "\nlast" );
+        Assert.assertEquals( 3, lines.size() );
+        Assert.assertEquals( longLine.toString(), lines.get( 1 ) );
+        Assert.assertEquals( "last", lines.get( 2 ) );
+    }
+
+    @Test
+    public void comparesWholeLine() throws IOException
+    {
+        final ListReader reader = reader( "MOVIES LIST\r\nMOVIES LIST 2\n" );
+        Assert.assertTrue( reader.next() );
+        Assert.assertTrue( reader.isLine( "MOVIES LIST" ) );
+        Assert.assertTrue( reader.next() );
+        Assert.assertFalse( reader.isLine( "MOVIES LIST" ) );
+        Assert.assertFalse( reader.next() );
+    }
+
+    @Test
+    public void reportsLinesToProgress() throws IOException
+    {
+        final ImportProgress.ListProgress progress = new ImportProgress.ListProgress(
+            "LIST", 0 );
+        final ListReader reader = new ListReader( progress
+            .countBytes( new ByteArrayInputStream( "a\nb\r\nlast"
+                .getBytes( ListTokenizer.CHARSET ) ) ), progress );
+        int lines = 0;
+        while ( reader.next() )
+        {
+            lines++;
+        }
+        Assert.assertEquals( lines, progress.getLinesRead() );
+        Assert.assertEquals( 3, lines );
+        Assert.assertEquals( 9, progress.getBytesRead() );
+        Assert.assertTrue( progress.isDone() );
+    }
+
+    private static List<String> readLines( final String text )
+        throws IOException
+    {
+        final ListReader reader = reader( text );
+        final List<String> lines = new ArrayList<String>();
+        while ( reader.next() )
+        {
+            lines.add( ListTokenizer.decode( reader.getBytes(), reader
+                .getStart(), reader.getEnd() ) );
+        }
+        return lines;
+    }
+
+    private static ListReader reader( final String text )
+    {
+        return new ListReader( new ByteArrayInputStream( text
+            .getBytes( ListTokenizer.CHARSET ) ) );
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongLongMapTest
+{
+    @Test
+    public void putsAndReplacesValues()
+    {
+        final LongLongMap map = new LongLongMap();
+        Assert.assertEquals( LongLongMap.MISSING, map.put( 7, 70 ) );
+        Assert.assertEquals( 70, map.put( 7, 71 ) );
+        Assert.assertEquals( 71, map.get( 7 ) );
+        Assert.assertEquals( 1, map.size() );
+        Assert.assertEquals( LongLongMap.MISSING, map.get( 8 ) );
+        Assert.assertFalse( map.containsKey( 8 ) );
+    }
+
+    @Test
+    public void keepsExtremeKeys()
+    {
+        final LongLongMap map = new LongLongMap();
+        map.put( Long.MIN_VALUE, 1 );
+        map.put( Long.MAX_VALUE, 2 );
+        map.put( -1, 3 );
+        map.put( 0, 4 );
+        Assert.assertEquals( 1, map.get( Long.MIN_VALUE ) );
+        Assert.assertEquals( 2, map.get( Long.MAX_VALUE ) );
+        Assert.assertEquals( 3, map.get( -1 ) );
+        Assert.assertEquals( 4, map.get( 0 ) );
+    }
+
+    @Test
+    public void growsPastExpectedSize()
+    {
+        final LongLongMap map = new LongLongMap( 4 );
+        for ( long key = 0; key < 10000; key++ )
+        {
+            map.put( key * 1024, key );
+        }
+        Assert.assertEquals( 10000, map.size() );
+        for ( long key = 0; key < 10000; key++ )
+        {
+            Assert.assertEquals( key, map.get( key * 1024 ) );
+        }
+    }
+
+    @Test
+    public void removeKeepsRestOfClusterReachable()
+    {
+        final LongLongMap map = new LongLongMap();
+        for ( long key = 0; key < 1000; key++ )
+        {
+            map.put( key, key + 1 );
+        }
+        for ( long key = 0; key < 1000; key += 2 )
+        {
+            Assert.assertEquals( key + 1, map.remove( key ) );
+        }
+        Assert.assertEquals( LongLongMap.MISSING, map.remove( 0 ) );
+        Assert.assertEquals( 500, map.size() );
+        for ( long key = 0; key < 1000; key++ )
+        {
+            Assert.assertEquals( key % 2 == 0 ? LongLongMap.MISSING : key + 1,
+                map.get( key ) );
+        }
+    }
+
+    @Test
+    public void listsKeys()
+    {
+        final LongLongMap map = new LongLongMap();
+        map.put( 3, 1 );
+        map.put( 1, 1 );
+        map.put( 2, 1 );
+        final long[] keys = map.keys();
+        Arrays.sort( keys );
+        Assert.assertArrayEquals( new long[] { 1, 2, 3 }, keys );
+        map.clear();
+        Assert.assertTrue( map.isEmpty() );
+        Assert.assertEquals( 0, map.keys().length );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsMissingAsValue()
+    {
+        new LongLongMap().put( 1, LongLongMap.MISSING );
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LruCacheTest
+{
+    private static final LruCache.Loader<String,Integer> LENGTH = new LruCache.Loader<String,Integer>()
+    {
+        @Override
+        public Integer load( final String key )
+        {
+            return key.length();
+        }
+    };
+
+    private static final LruCache.Weigher<String,Integer> KEY_LENGTH = new LruCache.Weigher<String,Integer>()
+    {
+        @Override
+        public long weigh( final String key, final Integer value )
+        {
+            return key.length();
+        }
+    };
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        final LruCache<String,Integer> cache = new LruCache<String,Integer>(
+            "test", 2 );
+        cache.get( "a", LENGTH );
+        cache.get( "bb", LENGTH );
+        cache.get( "a", LENGTH );
+        cache.get( "ccc", LENGTH );
+        Assert.assertEquals( Integer.valueOf( 1 ), cache.peek( "a" ) );
+        Assert.assertNull( cache.peek( "bb" ) );
+        Assert.assertEquals( 1, cache.getStatistics().getHits() );
+        Assert.assertEquals( 1, cache.getStatistics().getEvictions() );
+    }
+
+    @Test
+    public void boundsTotalWeight()
+    {
+        final LruCache<String,Integer> cache = new LruCache<String,Integer>(
+            "test", 100, 10, KEY_LENGTH );
+        cache.get( "aaaa", LENGTH );
+        cache.get( "bbbb", LENGTH );
+        Assert.assertEquals( 8, cache.getStatistics().getWeight() );
+        cache.get( "cccc", LENGTH );
+        Assert.assertNull( cache.peek( "aaaa" ) );
+        Assert.assertEquals( 8, cache.getStatistics().getWeight() );
+        cache.remove( "bbbb" );
+        Assert.assertEquals( 4, cache.getStatistics().getWeight() );
+        // heavier than the whole cache, so not kept
+        cache.get( "dddddddddddd", LENGTH );
+        Assert.assertEquals( 0, cache.getStatistics().getSize() );
+        Assert.assertEquals( 0, cache.getStatistics().getWeight() );
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PostingListTest
+{
+    @Test
+    public void sortsAndDropsDuplicates()
+    {
+        final PostingList list = PostingList
+            .of( new long[] { 5, 1, 300, 5, 2 } );
+        Assert.assertEquals( 4, list.size() );
+        Assert.assertArrayEquals( new long[] { 1, 2, 5, 300 },
+            toArray( list ) );
+    }
+
+    @Test
+    public void readsIdsOverManyBlocks()
+    {
+        final long[] ids = new long[PostingList.BLOCK_SIZE * 5 + 3];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            // small deltas and ones that take several bytes
+            ids[i] = i % 7 == 0 ? (1L << 40) + i : i * 3L;
+        }
+        final PostingList list = PostingList.of( ids );
+        final long[] sorted = ids.clone();
+        Arrays.sort( sorted );
+        Assert.assertArrayEquals( sorted, toArray( list ) );
+    }
+
+    @Test
+    public void advancesToTarget()
+    {
+        final long[] ids = new long[1000];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            ids[i] = i * 10L;
+        }
+        final PostingList.Cursor cursor = PostingList.of( ids ).cursor();
+        Assert.assertTrue( cursor.advanceTo( 15 ) );
+        Assert.assertEquals( 20, cursor.get() );
+        // within the same block, and the target already reached
+        Assert.assertTrue( cursor.advanceTo( 20 ) );
+        Assert.assertEquals( 20, cursor.get() );
+        Assert.assertTrue( cursor.advanceTo( 5 ) );
+        Assert.assertEquals( 20, cursor.get() );
+        // blocks ahead
+        Assert.assertTrue( cursor.advanceTo( 7001 ) );
+        Assert.assertEquals( 7010, cursor.get() );
+        Assert.assertTrue( cursor.next() );
+        Assert.assertEquals( 7020, cursor.get() );
+        Assert.assertTrue( cursor.advanceTo( 9990 ) );
+        Assert.assertFalse( cursor.advanceTo( 9991 ) );
+        Assert.assertFalse( cursor.next() );
+    }
+
+    @Test
+    public void emptyListHasNoIds()
+    {
+        final PostingList list = PostingList.of( new long[0] );
+        Assert.assertTrue( list.isEmpty() );
+        Assert.assertFalse( list.cursor().next() );
+        Assert.assertFalse( list.cursor().advanceTo( 0 ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void newCursorHasNoCurrentId()
+    {
+        PostingList.of( new long[] { 1 } ).cursor().get();
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsNegativeIds()
+    {
+        PostingList.of( new long[] { 1, -1 } );
+    }
+
+    private static long[] toArray( final PostingList list )
+    {
+        final LongList ids = new LongList();
+        final PostingList.Cursor cursor = list.cursor();
+        while ( cursor.next() )
+        {
+            ids.add( cursor.get() );
+        }
+        return ids.toArray();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefixIndexTest
+{
+    private static final int BACON = 0;
+    private static final int COSTNER = 1;
+    private static final int KLINE = 2;
+    private static final int BAKER = 3;
+
+    private static PrefixIndex index()
+    {
+        final PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        builder.add( "kevin bacon", BACON );
+        builder.add( "bacon", BACON );
+        builder.add( "kevin costner", COSTNER );
+        builder.add( "costner", COSTNER );
+        builder.add( "kevin kline", KLINE );
+        builder.add( "kline", KLINE );
+        builder.add( "baker", BAKER );
+        return builder.build( new int[] { 60, 40, 50, 40 } );
+    }
+
+    @Test
+    public void returnsHeaviestFirst()
+    {
+        Assert.assertArrayEquals( new int[] { BACON, KLINE, COSTNER }, index()
+            .top( "kevin", 10 ) );
+        Assert.assertArrayEquals( new int[] { BACON, BAKER },
+            index().top( "ba", 10 ) );
+    }
+
+    @Test
+    public void returnsAtMostCount()
+    {
+        Assert.assertArrayEquals( new int[] { BACON, KLINE }, index().top(
+            "kevin", 2 ) );
+        Assert.assertArrayEquals( new int[0], index().top( "kevin", 0 ) );
+    }
+
+    @Test
+    public void returnsEntryWithSeveralKeysOnce()
+    {
+        // "baker" sorts before "costner", which is as heavy
+        Assert.assertArrayEquals( new int[] { BACON, KLINE, BAKER, COSTNER },
+            index().top( "", 10 ) );
+    }
+
+    @Test
+    public void breaksTiesByKeyOrder()
+    {
+        final PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        builder.add( "b", 0 );
+        builder.add( "a", 1 );
+        builder.add( "c", 2 );
+        Assert.assertArrayEquals( new int[] { 1, 0, 2 }, builder.build(
+            new int[] { 5, 5, 5 } ).top( "", 3 ) );
+    }
+
+    @Test
+    public void findsNothingForUnknownPrefix()
+    {
+        Assert.assertArrayEquals( new int[0], index().top( "z", 10 ) );
+        Assert.assertArrayEquals( new int[0], new PrefixIndex.Builder()
+            .build( new int[0] ).top( "a", 10 ) );
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.examples.imdb.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrigramIndexTest
+{
+    @Test
+    public void countsEdits()
+    {
+        assertDistance( 0, "bacon", "bacon", 3 );
+        assertDistance( 1, "kevin", "kelvin", 3 );
+        assertDistance( 1, "kelvin", "kevin", 3 );
+        assertDistance( 1, "bacon", "bakon", 3 );
+        assertDistance( 3, "", "abc", 3 );
+        assertDistance( 3, "kitten", "sitting", 3 );
+    }
+
+    @Test
+    public void countsTranspositionAsOneEdit()
+    {
+        assertDistance( 1, "bacon", "baocn", 3 );
+        assertDistance( 2, "abcd", "badc", 3 );
+    }
+
+    @Test
+    public void stopsAboveMaximum()
+    {
+        assertDistance( 2, "kitten", "sitting", 1 );
+        // the length difference alone is too much
+        assertDistance( 3, "a", "abcdef", 2 );
+        assertDistance( 1, "a", "b", 0 );
+    }
+
+    private static void assertDistance( final int expected,
+        final String left, final String right, final int maximum )
+    {
+        Assert.assertEquals( expected, TrigramIndex.editDistance( left, right,
+            maximum ) );
+    }
+}